@@ -0,0 +1,86 @@
+package de.fritze.marcus.benchmark;
+
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * packs a whole generated file shaped like sampleInput.txt, one operation is one file
+ * the output is written into a stream that drops everything, so we measure the packer and not the console
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileThroughputBenchmark {
+
+    @Param({"10000"})
+    private int amountOfLines;
+
+    @Param({"false", "true"})
+    private boolean memoryMappedInput;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    @Param({"false", "true"})
+    private boolean splitInput;
+
+    private Path file;
+    private PackagerConfiguration configuration;
+    private PrintStream systemOut;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("packages", ".txt");
+        new LineGenerator(42).writeFile(file, amountOfLines, 1, 15);
+
+        configuration = new PackagerConfiguration()
+                .setMemoryMappedInput(memoryMappedInput)
+                .setSplitInput(splitInput)
+                .setParallelism(parallelism);
+
+        systemOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        System.setOut(systemOut);
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void startPackaging() throws AppException {
+        Packager.startPackaging(file.toString(), configuration);
+    }
+}
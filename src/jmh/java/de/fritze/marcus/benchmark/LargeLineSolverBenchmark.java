@@ -0,0 +1,52 @@
+package de.fritze.marcus.benchmark;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.solver.KnapsackSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the solvers for lines with more than 15 items, the subset enumeration is left out because it needs 2^n steps
+ * the meet-in-the-middle solver uses the branch-and-bound solver for lines with more than 44 items
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LargeLineSolverBenchmark {
+
+    @Param({"dynamic-programming", "meet-in-the-middle", "branch-and-bound"})
+    private String solver;
+
+    @Param({"25", "40", "100"})
+    private int amountOfItems;
+
+    private KnapsackSolver knapsackSolver;
+    private ItemBatch[] itemBatches;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        knapsackSolver  = SolverBenchmark.createSolver(solver);
+        itemBatches     = SolverBenchmark.parseLines(new LineGenerator(1337).nextLines(SolverBenchmark.AMOUNT_OF_LINES, amountOfItems, amountOfItems));
+    }
+
+    @Benchmark
+    public BitmaskPacket solve() {
+        return knapsackSolver.solve(itemBatches[next++ & (SolverBenchmark.AMOUNT_OF_LINES - 1)]);
+    }
+}
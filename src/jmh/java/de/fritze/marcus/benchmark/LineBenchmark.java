@@ -0,0 +1,116 @@
+package de.fritze.marcus.benchmark;
+
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.model.PackageItem;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import de.fritze.marcus.parser.LineParser;
+import de.fritze.marcus.solver.KnapsackSolver;
+import de.fritze.marcus.validation.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the steps for one line: parsing, validation and the whole line from the text to the ids of the packet
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineBenchmark {
+
+    /* a power of two, so the next line is found with a mask */
+    private static final int AMOUNT_OF_LINES = 1024;
+
+    @Param({"1", "5", "10", "15"})
+    private int amountOfItems;
+
+    private String[] lines;
+    private String[] items;
+    private ItemBatch[] itemBatches;
+    private List<List<PackageItem>> packageItems;
+    private float[] maxWeights;
+
+    private final LineParser lineParser                 = new LineParser();
+    private final PackagerConfiguration configuration   = new PackagerConfiguration();
+    private final KnapsackSolver knapsackSolver         = configuration.getKnapsackSolver();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        lines           = new LineGenerator(4711).nextLines(AMOUNT_OF_LINES, amountOfItems, amountOfItems);
+        items           = new String[AMOUNT_OF_LINES];
+        itemBatches     = new ItemBatch[AMOUNT_OF_LINES];
+        packageItems    = new ArrayList<>();
+        maxWeights      = new float[AMOUNT_OF_LINES];
+
+        for (int i = 0; i < AMOUNT_OF_LINES; i++) {
+            LineParser parser = new LineParser();
+            parser.parse(lines[i]);
+
+            itemBatches[i]  = parser.getItemBatch();
+            maxWeights[i]   = itemBatches[i].getMaxWeightPackage();
+            items[i]        = lines[i].substring(lines[i].indexOf('('), lines[i].indexOf(')') + 1);
+
+            List<PackageItem> lineItems = new ArrayList<>();
+            for (int item = 0; item < itemBatches[i].size(); item++) {
+                lineItems.add(itemBatches[i].getPackageItem(item));
+            }
+            packageItems.add(lineItems);
+        }
+    }
+
+    private int nextIndex() {
+        return next++ & (AMOUNT_OF_LINES - 1);
+    }
+
+    @Benchmark
+    public ItemBatch parseLine() {
+        lineParser.parse(lines[nextIndex()]);
+
+        return lineParser.getItemBatch();
+    }
+
+    @Benchmark
+    public PackageItem createFromString() {
+        return PackageItem.createFromString(items[nextIndex()]);
+    }
+
+    @Benchmark
+    public ItemBatch checkConstraints() throws AppException {
+        int index = nextIndex();
+        Validator.checkConstraints(index + 1, itemBatches[index]);
+
+        return itemBatches[index];
+    }
+
+    @Benchmark
+    public String buildPackage() throws AppException {
+        int index = nextIndex();
+
+        return Packager.packPackage(index + 1, maxWeights[index], packageItems.get(index), knapsackSolver);
+    }
+
+    @Benchmark
+    public String packageLine() throws AppException {
+        int index = nextIndex();
+
+        return Packager.packageLine(index + 1, lines[index], configuration);
+    }
+}
@@ -0,0 +1,255 @@
+package de.fritze.marcus.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * creates random lines shaped like the lines in sampleInput.txt, the same seed always gives the same lines
+ *
+ * 81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3)
+ *
+ * the max weight of the package and the prices are whole numbers up to 100, the weights have two decimals
+ *
+ * a workload mixes in invalid lines (every kind of error of the parser and the Validator) and lines that repeat
+ * an earlier line, like a real manifest with the same orders again. the amount of items of a line follows the distribution
+ */
+public class LineGenerator {
+
+    /**
+     * how the amount of items between min and max is spread over the lines
+     */
+    public enum ItemCountDistribution {
+        /* every amount is equally likely */
+        UNIFORM,
+        /* most lines have few items, the lower of two uniform amounts */
+        FEW_ITEMS,
+        /* most lines have many items, the higher of two uniform amounts */
+        MANY_ITEMS
+    }
+
+    /* the lines that can be repeated, only the last ones are kept so millions of lines don't stay in memory */
+    private static final int DUPLICATE_POOL_SIZE = 4096;
+
+    /* the kinds of invalid lines, see nextInvalidLine */
+    private static final int INVALID_KINDS = 6;
+
+    private final Random random;
+    private final String[] duplicatePool = new String[DUPLICATE_POOL_SIZE];
+    private int pooledLines;
+    private boolean lastLineInvalid;
+
+    private double invalidRatio                         = 0;
+    private double duplicateRatio                       = 0;
+    private ItemCountDistribution itemCountDistribution = ItemCountDistribution.UNIFORM;
+
+    public LineGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param invalidRatio the share of invalid lines in a workload, between 0 and 1
+     * @return
+     */
+    public LineGenerator setInvalidRatio(double invalidRatio) {
+        if (!(invalidRatio >= 0 && invalidRatio <= 1)) {
+            throw new IllegalArgumentException("The invalid ratio must be between 0 and 1");
+        }
+        this.invalidRatio = invalidRatio;
+        return this;
+    }
+
+    /**
+     * @param duplicateRatio the share of lines in a workload that repeat an earlier valid line, between 0 and 1
+     * @return
+     */
+    public LineGenerator setDuplicateRatio(double duplicateRatio) {
+        if (!(duplicateRatio >= 0 && duplicateRatio <= 1)) {
+            throw new IllegalArgumentException("The duplicate ratio must be between 0 and 1");
+        }
+        this.duplicateRatio = duplicateRatio;
+        return this;
+    }
+
+    public LineGenerator setItemCountDistribution(ItemCountDistribution itemCountDistribution) {
+        this.itemCountDistribution = itemCountDistribution;
+        return this;
+    }
+
+    /**
+     * creates one line, lines with more than 15 items are not valid for the Validator but can be used for the solvers
+     *
+     * @param amountOfItems
+     * @return
+     */
+    public String nextLine(int amountOfItems) {
+        StringBuilder line = new StringBuilder(16 + amountOfItems * 18);
+
+        line.append(1 + random.nextInt(100)).append(" :");
+
+        for (int id = 1; id <= amountOfItems; id++) {
+            appendItem(line, id, 1 + random.nextInt(10000), 1 + random.nextInt(100));
+        }
+        return line.toString();
+    }
+
+    /**
+     * creates a line that the parser or the Validator rejects, the kind of the error is chosen at random
+     *
+     * @param amountOfItems between 1 and 15
+     * @return
+     */
+    public String nextInvalidLine(int amountOfItems) {
+        int kind            = random.nextInt(INVALID_KINDS);
+        int brokenItem      = 1 + random.nextInt(amountOfItems);
+        StringBuilder line  = new StringBuilder(16 + 16 * 18);
+
+        switch (kind) {
+            case 0:
+                // the colon is missing, the line is not in the correct format
+                line.append(1 + random.nextInt(100));
+                break;
+            case 1:
+                // the max weight of the package is above 100
+                line.append(101 + random.nextInt(900)).append(" :");
+                break;
+            default:
+                line.append(1 + random.nextInt(100)).append(" :");
+                break;
+        }
+
+        // more than 15 items
+        int items = kind == 2 ? 16 + random.nextInt(5) : amountOfItems;
+
+        for (int id = 1; id <= items; id++) {
+            int weightInCents   = 1 + random.nextInt(10000);
+            int price           = 1 + random.nextInt(100);
+
+            if (id == brokenItem && kind == 3) {
+                // an item is heavier than 100
+                weightInCents = 10001 + random.nextInt(10000);
+            } else if (id == brokenItem && kind == 4) {
+                // an item is more expensive than 100
+                price = 101 + random.nextInt(100);
+            }
+            // the ids start with 2, so the item number 1 is missing
+            appendItem(line, kind == 5 ? id + 1 : id, weightInCents, price);
+        }
+        return line.toString();
+    }
+
+    /**
+     * creates the next line of a workload: a repeated line, an invalid line or a new valid line
+     *
+     * @param minItems
+     * @param maxItems
+     * @return
+     */
+    public String nextWorkloadLine(int minItems, int maxItems) {
+        lastLineInvalid = false;
+
+        if (pooledLines > 0 && random.nextDouble() < duplicateRatio) {
+            return duplicatePool[random.nextInt(Math.min(pooledLines, DUPLICATE_POOL_SIZE))];
+        }
+        int amountOfItems = nextAmountOfItems(minItems, maxItems);
+
+        if (random.nextDouble() < invalidRatio) {
+            lastLineInvalid = true;
+            return nextInvalidLine(Math.min(amountOfItems, 15));
+        }
+        String line = nextLine(amountOfItems);
+
+        duplicatePool[pooledLines++ % DUPLICATE_POOL_SIZE] = line;
+        return line;
+    }
+
+    /**
+     * creates count lines with minItems to maxItems items
+     *
+     * @param count
+     * @param minItems
+     * @param maxItems
+     * @return
+     */
+    public String[] nextLines(int count, int minItems, int maxItems) {
+        String[] lines = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            lines[i] = nextLine(minItems + random.nextInt(maxItems - minItems + 1));
+        }
+        return lines;
+    }
+
+    /**
+     * writes count lines with minItems to maxItems items into the file
+     *
+     * @param file
+     * @param count
+     * @param minItems
+     * @param maxItems
+     * @throws IOException
+     */
+    public void writeFile(Path file, int count, int minItems, int maxItems) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                writer.write(nextLine(minItems + random.nextInt(maxItems - minItems + 1)));
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * writes count lines of the workload into the file, see nextWorkloadLine
+     *
+     * @param file
+     * @param count
+     * @param minItems
+     * @param maxItems
+     * @return the amount of invalid lines that were written
+     * @throws IOException
+     */
+    public long writeWorkload(Path file, long count, int minItems, int maxItems) throws IOException {
+        long invalidLines = 0;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long i = 0; i < count; i++) {
+                writer.write(nextWorkloadLine(minItems, maxItems));
+                writer.newLine();
+
+                if (lastLineInvalid) {
+                    invalidLines++;
+                }
+            }
+        }
+        return invalidLines;
+    }
+
+    private int nextAmountOfItems(int minItems, int maxItems) {
+        int range   = maxItems - minItems + 1;
+        int first   = random.nextInt(range);
+
+        switch (itemCountDistribution) {
+            case FEW_ITEMS:
+                return minItems + Math.min(first, random.nextInt(range));
+            case MANY_ITEMS:
+                return minItems + Math.max(first, random.nextInt(range));
+            default:
+                return minItems + first;
+        }
+    }
+
+    /**
+     * appends " (id,weight,€price)", the weight in cents is written with two decimals like %.2f
+     */
+    private static void appendItem(StringBuilder line, int id, int weightInCents, int price) {
+        int cents = weightInCents % 100;
+
+        line.append(" (")
+            .append(id).append(',')
+            .append(weightInCents / 100).append('.').append(cents < 10 ? "0" : "").append(cents).append(",€")
+            .append(price).append(')');
+    }
+}
@@ -0,0 +1,98 @@
+package de.fritze.marcus.benchmark;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.parser.LineParser;
+import de.fritze.marcus.solver.BranchAndBoundSolver;
+import de.fritze.marcus.solver.DynamicProgrammingSolver;
+import de.fritze.marcus.solver.KnapsackSolver;
+import de.fritze.marcus.solver.MeetInTheMiddleSolver;
+import de.fritze.marcus.solver.SubsetEnumerationSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * the solvers for lines with up to 15 items, the limit of the Validator
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    /* a power of two, so the next line is found with a mask */
+    static final int AMOUNT_OF_LINES = 256;
+
+    @Param({"dynamic-programming", "meet-in-the-middle", "branch-and-bound", "subset-enumeration"})
+    private String solver;
+
+    @Param({"1", "5", "10", "15"})
+    private int amountOfItems;
+
+    private KnapsackSolver knapsackSolver;
+    private ItemBatch[] itemBatches;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        knapsackSolver  = createSolver(solver);
+        itemBatches     = parseLines(new LineGenerator(815).nextLines(AMOUNT_OF_LINES, amountOfItems, amountOfItems));
+    }
+
+    @Benchmark
+    public BitmaskPacket solve() {
+        return knapsackSolver.solve(itemBatches[next++ & (AMOUNT_OF_LINES - 1)]);
+    }
+
+    /**
+     * parses the lines without the Validator, so lines with more than 15 items can be used too
+     *
+     * @param lines
+     * @return
+     */
+    static ItemBatch[] parseLines(String[] lines) {
+        ItemBatch[] itemBatches = new ItemBatch[lines.length];
+
+        for (int i = 0; i < lines.length; i++) {
+            LineParser lineParser = new LineParser();
+            lineParser.parse(lines[i]);
+
+            itemBatches[i] = lineParser.getItemBatch();
+        }
+        return itemBatches;
+    }
+
+    /**
+     * the same names as the --solver option of the command line
+     *
+     * @param name
+     * @return
+     */
+    static KnapsackSolver createSolver(String name) {
+        switch (name) {
+            case "dynamic-programming":
+                return new DynamicProgrammingSolver();
+            case "meet-in-the-middle":
+                return new MeetInTheMiddleSolver();
+            case "branch-and-bound":
+                return new BranchAndBoundSolver();
+            case "subset-enumeration":
+                return new SubsetEnumerationSolver();
+            default:
+                throw new IllegalArgumentException("The solver " + name + " is unknown");
+        }
+    }
+}
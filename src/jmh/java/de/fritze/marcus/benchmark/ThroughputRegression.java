@@ -0,0 +1,279 @@
+package de.fritze.marcus.benchmark;
+
+import de.fritze.marcus.cache.SolutionCache;
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+/**
+ * runs Packager.startPackaging end to end over large generated workloads and compares lines/s, the peak heap
+ * and the GC time of every scenario with a stored baseline, so a slower packer is found before it is released
+ *
+ * java -Xmx1g -cp target/benchmarks.jar de.fritze.marcus.benchmark.ThroughputRegression [options]
+ *
+ * --lines N            the lines of every workload (default 200000, millions work with a larger heap)
+ * --runs N             the measured runs of every scenario after one warm-up run (default 3), lines/s is the median of the runs
+ * --baseline FILE      the stored baseline (default src/jmh/throughput-baseline.properties)
+ * --tolerance RATIO    how much worse than the baseline a value may be (default 0.2)
+ * --update             writes the results as the new baseline instead of comparing them
+ *
+ * the exit status is 1 if a scenario is worse than the baseline or a workload has the wrong amount of errors.
+ * the baseline belongs to one machine and one heap size, it is only compared if it was made with the same amount of lines
+ */
+public class ThroughputRegression {
+
+    private static final long SEED              = 42;
+    private static final String DEFAULT_BASELINE = "src/jmh/throughput-baseline.properties";
+
+    /* the GC time of short runs jumps by a few collections, so it may always grow by this */
+    private static final long GC_MILLIS_SLACK   = 50;
+
+    /**
+     * one workload and the configuration it is packaged with
+     */
+    private static final class Scenario {
+
+        private final String name;
+        private final Supplier<LineGenerator> generator;
+        private final int minItems;
+        private final int maxItems;
+        private final Supplier<PackagerConfiguration> configuration;
+
+        private Scenario(String name, Supplier<LineGenerator> generator, int minItems, int maxItems, Supplier<PackagerConfiguration> configuration) {
+            this.name           = name;
+            this.generator      = generator;
+            this.minItems       = minItems;
+            this.maxItems       = maxItems;
+            this.configuration  = configuration;
+        }
+    }
+
+    /**
+     * the measured values of one scenario
+     */
+    private static final class Result {
+
+        private double linesPerSecond;
+        private long peakHeapBytes;
+        private long gcMillis;
+    }
+
+    /**
+     * the scenarios, every configuration gets a fresh ErrorReport (fail-soft) because the workloads have invalid lines
+     */
+    private static List<Scenario> scenarios() {
+        return Arrays.asList(
+                new Scenario("lines",
+                        () -> new LineGenerator(SEED).setInvalidRatio(0.05).setDuplicateRatio(0.1), 1, 15,
+                        () -> new PackagerConfiguration()),
+                new Scenario("mapped-parallel",
+                        () -> new LineGenerator(SEED).setInvalidRatio(0.05).setDuplicateRatio(0.1), 1, 15,
+                        () -> new PackagerConfiguration().setMemoryMappedInput(true).setParallelism(4)),
+                new Scenario("few-items",
+                        () -> new LineGenerator(SEED).setInvalidRatio(0.01).setItemCountDistribution(LineGenerator.ItemCountDistribution.FEW_ITEMS), 1, 15,
+                        () -> new PackagerConfiguration().setMemoryMappedInput(true)),
+                new Scenario("many-items",
+                        () -> new LineGenerator(SEED).setInvalidRatio(0.01).setItemCountDistribution(LineGenerator.ItemCountDistribution.MANY_ITEMS), 1, 15,
+                        () -> new PackagerConfiguration().setMemoryMappedInput(true)),
+                new Scenario("duplicates-cached",
+                        () -> new LineGenerator(SEED).setInvalidRatio(0.05).setDuplicateRatio(0.5), 1, 15,
+                        () -> new PackagerConfiguration().setSolutionCache(new SolutionCache(SolutionCache.DEFAULT_MAX_ENTRIES)))
+        );
+    }
+
+    public static void main(String[] args) throws IOException, AppException {
+        long lines          = 200_000;
+        int runs            = 3;
+        Path baselineFile   = Paths.get(DEFAULT_BASELINE);
+        double tolerance    = 0.2;
+        boolean update      = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--lines":
+                    lines = Long.parseLong(args[++i]);
+                    break;
+                case "--runs":
+                    runs = Integer.parseInt(args[++i]);
+                    break;
+                case "--baseline":
+                    baselineFile = Paths.get(args[++i]);
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--update":
+                    update = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        Properties baseline = new Properties();
+
+        if (!update && Files.exists(baselineFile)) {
+            try (InputStream inputStream = Files.newInputStream(baselineFile)) {
+                baseline.load(inputStream);
+            }
+            if (!String.valueOf(lines).equals(baseline.getProperty("lines"))) {
+                System.out.println("The baseline was made with " + baseline.getProperty("lines") + " lines, it is not compared");
+                baseline.clear();
+            }
+        }
+
+        Properties results  = new Properties();
+        boolean regression  = false;
+
+        results.setProperty("lines", String.valueOf(lines));
+
+        for (Scenario scenario : scenarios()) {
+            Path inputFile      = Files.createTempFile("workload-" + scenario.name, ".txt");
+            Path outputFile     = Files.createTempFile("workload-" + scenario.name, ".out");
+
+            try {
+                long invalidLines   = scenario.generator.get().writeWorkload(inputFile, lines, scenario.minItems, scenario.maxItems);
+                Result result       = measure(scenario, inputFile, outputFile, lines, invalidLines, runs);
+
+                if (result == null) {
+                    regression = true;
+                    continue;
+                }
+
+                results.setProperty(scenario.name + ".linesPerSecond", String.format(Locale.ROOT, "%.0f", result.linesPerSecond));
+                results.setProperty(scenario.name + ".peakHeapBytes", String.valueOf(result.peakHeapBytes));
+                results.setProperty(scenario.name + ".gcMillis", String.valueOf(result.gcMillis));
+
+                System.out.println(String.format(Locale.ROOT, "%-20s %12.0f lines/s %8d MB peak heap %6d ms gc",
+                        scenario.name, result.linesPerSecond, result.peakHeapBytes >> 20, result.gcMillis));
+
+                regression |= !compare(scenario.name, result, baseline, tolerance);
+            } finally {
+                Files.deleteIfExists(inputFile);
+                Files.deleteIfExists(outputFile);
+            }
+        }
+
+        if (update) {
+            try (OutputStream outputStream = Files.newOutputStream(baselineFile)) {
+                results.store(outputStream, "baseline of ThroughputRegression, " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version")
+                        + ", max heap " + (Runtime.getRuntime().maxMemory() >> 20) + " MB");
+            }
+            System.out.println("The baseline was written into " + baselineFile);
+        }
+
+        if (regression) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * packages the workload once to warm up and then runs times, every run must have one error per invalid line
+     *
+     * @return the median lines/s, the highest peak heap and the median GC time of the runs or null if the errors are wrong
+     */
+    private static Result measure(Scenario scenario, Path inputFile, Path outputFile, long lines, long invalidLines, int runs) throws AppException {
+        double[] linesPerSecond = new double[runs];
+        long[] gcMillis         = new long[runs];
+        Result result           = new Result();
+
+        for (int run = -1; run < runs; run++) {
+            ErrorReport errorReport             = new ErrorReport(Integer.MAX_VALUE);
+            PackagerConfiguration configuration = scenario.configuration.get().setErrorReport(errorReport).setOutputFile(outputFile);
+
+            System.gc();
+            ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+
+            long gcMillisBefore = gcMillis();
+            long startNanos     = System.nanoTime();
+
+            Packager.startPackaging(inputFile.toString(), configuration);
+
+            long nanos = System.nanoTime() - startNanos;
+
+            if (errorReport.getErrors().size() != invalidLines) {
+                System.out.println(scenario.name + ": " + errorReport.getErrors().size() + " errors instead of " + invalidLines);
+                return null;
+            }
+            if (run < 0) {
+                // the warm-up run
+                continue;
+            }
+            linesPerSecond[run]     = lines * 1e9 / nanos;
+            gcMillis[run]           = gcMillis() - gcMillisBefore;
+            result.peakHeapBytes    = Math.max(result.peakHeapBytes, peakHeapBytes());
+        }
+
+        Arrays.sort(linesPerSecond);
+        Arrays.sort(gcMillis);
+
+        result.linesPerSecond   = linesPerSecond[runs / 2];
+        result.gcMillis         = gcMillis[runs / 2];
+        return result;
+    }
+
+    /**
+     * @return false if a value of the result is worse than the baseline with the tolerance
+     */
+    private static boolean compare(String name, Result result, Properties baseline, double tolerance) {
+        if (baseline.getProperty(name + ".linesPerSecond") == null) {
+            return true;
+        }
+        double baselineLinesPerSecond   = Double.parseDouble(baseline.getProperty(name + ".linesPerSecond"));
+        long baselinePeakHeapBytes      = Long.parseLong(baseline.getProperty(name + ".peakHeapBytes"));
+        long baselineGcMillis           = Long.parseLong(baseline.getProperty(name + ".gcMillis"));
+        boolean passed                  = true;
+
+        if (result.linesPerSecond < baselineLinesPerSecond * (1 - tolerance)) {
+            System.out.println(String.format(Locale.ROOT, "%s: %.0f lines/s, the baseline is %.0f lines/s", name, result.linesPerSecond, baselineLinesPerSecond));
+            passed = false;
+        }
+        if (result.peakHeapBytes > baselinePeakHeapBytes * (1 + tolerance)) {
+            System.out.println(name + ": " + (result.peakHeapBytes >> 20) + " MB peak heap, the baseline is " + (baselinePeakHeapBytes >> 20) + " MB");
+            passed = false;
+        }
+        if (result.gcMillis > baselineGcMillis * (1 + tolerance) + GC_MILLIS_SLACK) {
+            System.out.println(name + ": " + result.gcMillis + " ms gc, the baseline is " + baselineGcMillis + " ms");
+            passed = false;
+        }
+        return passed;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+
+        for (GarbageCollectorMXBean garbageCollector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            // -1 if the collector doesn't know its time
+            millis += Math.max(0, garbageCollector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private static long peakHeapBytes() {
+        long bytes = 0;
+
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP && memoryPool.getPeakUsage() != null) {
+                bytes += memoryPool.getPeakUsage().getUsed();
+            }
+        }
+        return bytes;
+    }
+}
@@ -1,23 +1,94 @@
 package de.fritze.marcus;
 
 
+import de.fritze.marcus.batch.BatchPackager;
+import de.fritze.marcus.binary.BinaryConverter;
+import de.fritze.marcus.cache.SolutionCache;
 import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
 import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.metrics.PackagerMetrics;
 import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import de.fritze.marcus.server.PackageServer;
+import de.fritze.marcus.solver.BranchAndBoundSolver;
+import de.fritze.marcus.solver.DynamicProgrammingSolver;
+import de.fritze.marcus.solver.ExactMultipleKnapsackSolver;
+import de.fritze.marcus.solver.FptasSolver;
+import de.fritze.marcus.solver.GreedyLocalSearchSolver;
+import de.fritze.marcus.solver.KnapsackSolver;
+import de.fritze.marcus.solver.MeetInTheMiddleSolver;
+import de.fritze.marcus.solver.MultipleKnapsackSolver;
+import de.fritze.marcus.solver.SubsetEnumerationSolver;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public class Main {
 
     public static void main(String[] args) {
         try {
-            // check if app has only one argument
-            if (args.length != 1) {
+            // the options start with "--", all other arguments are file names
+            PackagerConfiguration configuration = new PackagerConfiguration();
+            List<String> fileNames              = new ArrayList<>();
+            String serverOption                 = null;
+            String conversionOption             = null;
+            boolean batch                       = false;
+
+            for (String argument : args) {
+                if (argument.equals("--server") || argument.startsWith("--server=")) {
+                    serverOption = argument;
+                } else if (argument.equals("--batch")) {
+                    batch = true;
+                } else if (argument.startsWith("--to-binary=") || argument.startsWith("--to-text=")) {
+                    conversionOption = argument;
+                } else if (argument.startsWith("--")) {
+                    applyOption(argument, configuration);
+                } else {
+                    fileNames.add(argument);
+                }
+            }
+
+            if (configuration.getAlternatives() > 1 && !configuration.getKnapsackSolver().hasAlternatives()) {
+                // the solver would silently give only the best package
+                throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The solver gives only the best package, --alternatives needs --solver=subset-enumeration!");
+            }
+
+            if (serverOption != null) {
+                // the lines come from stdin or a local port instead of a file
+                if (!fileNames.isEmpty()) {
+                    throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The server mode doesn't take a file name!");
+                }
+                startServer(serverOption, configuration);
+            }
+            else if (batch) {
+                // every file gets its own output file, the summary is written to stdout
+                startBatch(fileNames, configuration);
+            }
+            // check if app has only one file argument
+            else if (fileNames.size() != 1) {
                 throw new AppException(GlobalErrorCodes.ARGUMENT_NOT_ONE, "Please pass the file name as one argument!");
+            } else if (conversionOption != null) {
+                // the file is converted instead of packaged
+                convert(fileNames.get(0), conversionOption);
             } else {
                 // starts packaging
-                Packager.startPackaging(args[0]);
+                Packager.startPackaging(fileNames.get(0), configuration);
+            }
+
+            if (configuration.getMetrics() != null && configuration.getMetricsFile() == null) {
+                System.err.println(configuration.getMetrics().getJson());
             }
         } catch (AppException e) {
             // here is the normal AppException shown to the user
@@ -30,4 +101,253 @@ public class Main {
             System.exit(10);
         }
     }
+
+    /**
+     * sets the option from the command line in the configuration
+     * --parallelism=N  packages the lines with N worker threads
+     * --memory-mapped  reads the file as UTF-8 from a memory-mapped buffer
+     * --solver=NAME    the solver for the lines: dynamic-programming (default), meet-in-the-middle, branch-and-bound or subset-enumeration
+     *                  or fptas[:EPSILON[:MILLIS]] for an approximation with at least (1 - EPSILON) of the best price, default 0.1,
+     *                  and a time budget per line. a line that runs out of the budget or whose table would get too big gets less,
+     *                  the guaranteed optimality gap of every line is in the metrics
+     * --alternatives=K writes the K best packages of every line, the subset-enumeration solver is needed for K > 1,
+     *                  with another solver the option is rejected
+     * --packages=N     fills N packages from the items of every line, a line with the prefix "N x " has its own amount
+     * --packages-solver=NAME the solver for more than one package: exact (default, greedy for long lines and large searches) or greedy
+     * --max-package-weight=W, --max-items=N, --max-item-weight=W, --max-item-price=P, --max-packages=N
+     *                  change the limits of the lines, the defaults are 100, 15, 100, 100 and 100 packages,
+     *                  the subset-enumeration solver can choose from up to 63 items
+     * --flush-interval=N flushes the output after every N lines, without this option the output is flushed at the end
+     * --cache=N        keeps the output of the last N different lines, repeated lines are not solved again
+     * --cache-file=PATH loads the cache from the file and saves it after the run
+     * --max-errors=N   goes on after a line with an error, the line gets "!" as output and the error is written to stderr,
+     *                  the (N+1)th error stops the packager
+     * --metrics[=PATH] measures the stages of every line, the metrics are available over JMX while running
+     *                  and are written as JSON to the file or to stderr at the end
+     * --output=PATH    writes the output lines into the file instead of stdout, in the batch mode PATH is the directory of the output files
+     * --checkpoint=N   writes the progress after every N lines into PATH.checkpoint next to the output file
+     * --resume         goes on at the checkpoint of the output file and appends the following lines
+     * --binary         reads the file as binary records instead of text lines
+     * --split[=BYTES]  splits the file into byte ranges of about BYTES that are read by the worker threads, needs --parallelism
+     *
+     * @param argument
+     * @param configuration
+     * @throws AppException
+     */
+    private static void applyOption(String argument, PackagerConfiguration configuration) throws AppException, JMException {
+        String[] option = argument.substring(2).split("=", 2);
+
+        try {
+            switch (option[0]) {
+                case "parallelism":
+                    configuration.setParallelism(Integer.parseInt(option[1]));
+                    break;
+                case "memory-mapped":
+                    configuration.setMemoryMappedInput(true);
+                    break;
+                case "solver":
+                    configuration.setKnapsackSolver(createSolver(option[1]));
+                    break;
+                case "alternatives":
+                    configuration.setAlternatives(Integer.parseInt(option[1]));
+                    break;
+                case "packages":
+                    configuration.setAmountOfPackages(Integer.parseInt(option[1]));
+                    break;
+                case "packages-solver":
+                    configuration.setMultipleKnapsackSolver(createMultipleKnapsackSolver(option[1]));
+                    break;
+                case "max-package-weight":
+                    configuration.getValidator().setMaxWeightPackage(Double.parseDouble(option[1]));
+                    break;
+                case "max-items":
+                    configuration.getValidator().setMaxItemsInLine(Integer.parseInt(option[1]));
+                    break;
+                case "max-item-weight":
+                    configuration.getValidator().setMaxWeightItem(Double.parseDouble(option[1]));
+                    break;
+                case "max-item-price":
+                    configuration.getValidator().setMaxPriceItem(Double.parseDouble(option[1]));
+                    break;
+                case "max-packages":
+                    configuration.getValidator().setMaxPackages(Integer.parseInt(option[1]));
+                    break;
+                case "flush-interval":
+                    configuration.setFlushInterval(Integer.parseInt(option[1]));
+                    break;
+                case "cache":
+                    configuration.setSolutionCache(new SolutionCache(Integer.parseInt(option[1])));
+                    break;
+                case "cache-file":
+                    configuration.setSolutionCacheFile(Paths.get(option[1]));
+
+                    if (configuration.getSolutionCache() == null) {
+                        configuration.setSolutionCache(new SolutionCache(SolutionCache.DEFAULT_MAX_ENTRIES));
+                    }
+                    break;
+                case "max-errors":
+                    configuration.setErrorReport(new ErrorReport(Integer.parseInt(option[1]), System.err));
+                    break;
+                case "metrics":
+                    configuration.setMetrics(new PackagerMetrics());
+                    configuration.getMetrics().registerMBean();
+
+                    if (option.length > 1) {
+                        configuration.setMetricsFile(Paths.get(option[1]));
+                    }
+                    break;
+                case "output":
+                    configuration.setOutputFile(Paths.get(option[1]));
+                    break;
+                case "checkpoint":
+                    configuration.setCheckpointInterval(Integer.parseInt(option[1]));
+                    break;
+                case "resume":
+                    configuration.setResume(true);
+                    break;
+                case "split":
+                    configuration.setSplitInput(true);
+
+                    if (option.length > 1) {
+                        configuration.setSplitRangeSize(Long.parseLong(option[1]));
+                    }
+                    break;
+                case "binary":
+                    configuration.setBinaryInput(true);
+                    break;
+                default:
+                    throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The option " + argument + " is unknown!");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The option " + argument + " has no valid value!");
+        }
+    }
+
+    /**
+     * runs the server until stdin ends or the process is stopped
+     * --server         reads the lines from stdin and writes the answers to stdout
+     * --server=PORT    reads the lines from the connections to the local TCP port
+     *
+     * @param serverOption
+     * @param configuration
+     * @throws AppException
+     * @throws IOException
+     */
+    private static void startServer(String serverOption, PackagerConfiguration configuration) throws AppException, IOException {
+        try (PackageServer packageServer = new PackageServer(configuration)) {
+
+            if (serverOption.equals("--server")) {
+                packageServer.serve(new InputStreamReader(System.in, Charset.defaultCharset()), System.out);
+                return;
+            }
+
+            try {
+                packageServer.bind(Integer.parseInt(serverOption.substring("--server=".length())));
+            } catch (IOException | IllegalArgumentException e) {
+                throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The option " + serverOption + " has no valid value!");
+            }
+            packageServer.acceptConnections();
+        }
+    }
+
+    /**
+     * packages all files of the arguments on one worker pool and prints the summary
+     * --batch          the arguments are files, directories or globs like data/*.txt, every file gets FILE.out,
+     *                  with --output=DIR the output files are written into the directory, --parallelism=N files are packaged at once
+     *
+     * @param fileNames
+     * @param configuration
+     * @throws AppException with the error of the first file that failed, after the summary
+     */
+    private static void startBatch(List<String> fileNames, PackagerConfiguration configuration) throws AppException {
+        long startNanos = System.nanoTime();
+
+        // the output option is the directory of the output files
+        Path outputDirectory                    = configuration.getOutputFile();
+        List<BatchPackager.FileResult> results  = BatchPackager.startPackaging(BatchPackager.findFiles(fileNames), outputDirectory, configuration);
+
+        System.out.println(BatchPackager.summary(results, System.nanoTime() - startNanos));
+
+        if (configuration.getMetrics() != null && configuration.getMetricsFile() != null) {
+            try {
+                Files.write(configuration.getMetricsFile(), configuration.getMetrics().getJson().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ioException) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage());
+            }
+        }
+
+        for (BatchPackager.FileResult result : results) {
+            if (result.getFailure() != null) {
+                throw new AppException(result.getFailure().getCode(), result.getInputFile() + ": " + result.getFailure().getMessage());
+            }
+        }
+    }
+
+    /**
+     * converts the file into the other format
+     * --to-binary=PATH converts the text file into binary records
+     * --to-text=PATH   converts the binary records into a text file
+     *
+     * @param fileName
+     * @param conversionOption
+     * @throws AppException
+     */
+    private static void convert(String fileName, String conversionOption) throws AppException {
+        String[] option = conversionOption.substring(2).split("=", 2);
+
+        if (option[1].isEmpty()) {
+            throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The option " + conversionOption + " has no valid value!");
+        }
+        if (option[0].equals("to-binary")) {
+            BinaryConverter.textToBinary(Paths.get(fileName), Paths.get(option[1]));
+        } else {
+            BinaryConverter.binaryToText(Paths.get(fileName), Paths.get(option[1]));
+        }
+    }
+
+    /**
+     * creates the solver for more than one package with the name from the command line
+     *
+     * @param name
+     * @return
+     */
+    private static MultipleKnapsackSolver createMultipleKnapsackSolver(String name) {
+        switch (name) {
+            case "exact":
+                return new ExactMultipleKnapsackSolver();
+            case "greedy":
+                return new GreedyLocalSearchSolver();
+            default:
+                throw new IllegalArgumentException("The solver " + name + " is unknown");
+        }
+    }
+
+    /**
+     * creates the solver with the name from the command line
+     *
+     * @param name
+     * @return
+     */
+    private static KnapsackSolver createSolver(String name) {
+        if (name.equals("fptas") || name.startsWith("fptas:")) {
+            // fptas[:EPSILON[:MILLIS]]
+            String[] parameters = name.split(":", 3);
+            double epsilon      = parameters.length > 1 ? Double.parseDouble(parameters[1]) : FptasSolver.DEFAULT_EPSILON;
+            long budgetMillis   = parameters.length > 2 ? Long.parseLong(parameters[2]) : 0;
+
+            return new FptasSolver(epsilon, TimeUnit.MILLISECONDS.toNanos(budgetMillis));
+        }
+        switch (name) {
+            case "dynamic-programming":
+                return new DynamicProgrammingSolver();
+            case "meet-in-the-middle":
+                return new MeetInTheMiddleSolver();
+            case "branch-and-bound":
+                return new BranchAndBoundSolver();
+            case "subset-enumeration":
+                return new SubsetEnumerationSolver();
+            default:
+                throw new IllegalArgumentException("The solver " + name + " is unknown");
+        }
+    }
 }
@@ -0,0 +1,347 @@
+package de.fritze.marcus.batch;
+
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.exception.LineError;
+import de.fritze.marcus.output.BufferedResultSink;
+import de.fritze.marcus.output.StringResultSink;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This packages many files in one run, every file is one task of a shared worker pool
+ *
+ * the lines of a file are packaged one after another by its task, the output goes into its own output file.
+ * only a limited amount of files are submitted to the pool at the same time, so thousands of files don't wait in the queue
+ * with open buffers. a line with an error never stops the run: the line gets "!" as output like in the fail-soft mode,
+ * the file stops at the (N+1)th error of the ErrorReport or at the first error without ErrorReport and the next files go on.
+ * the result of every file has the amount of lines, the errors and the time it took
+ */
+public class BatchPackager {
+
+    /* the output file of an input file gets this suffix, a directory or glob doesn't take these files as input */
+    public static final String OUTPUT_SUFFIX = ".out";
+
+    /* how many files per worker may be submitted to the pool */
+    private static final int PENDING_FILES_PER_WORKER = 2;
+
+    /**
+     * the result of one file
+     */
+    public static class FileResult {
+
+        private final Path inputFile;
+        private final Path outputFile;
+        private int lines;
+        private List<LineError> errors = Collections.emptyList();
+        private AppException failure;
+        private long nanos;
+
+        FileResult(Path inputFile, Path outputFile) {
+            this.inputFile  = inputFile;
+            this.outputFile = outputFile;
+        }
+
+        public Path getInputFile() {
+            return inputFile;
+        }
+
+        public Path getOutputFile() {
+            return outputFile;
+        }
+
+        /**
+         * @return the amount of lines that were written into the output file
+         */
+        public int getLines() {
+            return lines;
+        }
+
+        /**
+         * @return the errors of the lines that got "!" as output
+         */
+        public List<LineError> getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return the error that stopped the file or null if all lines were packaged
+         */
+        public AppException getFailure() {
+            return failure;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return one line like "input.txt -> input.txt.out: 120 lines, 2 errors, 35 ms"
+         */
+        @Override
+        public String toString() {
+            String summary = inputFile + " -> " + outputFile + ": " + lines + " lines, " + errors.size() + " errors, " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms";
+
+            return failure == null ? summary : summary + ", failed with code " + failure.getCode() + ": " + failure.getMessage();
+        }
+    }
+
+    /**
+     * finds the input files of the arguments: a file, a directory with its files or a glob like data/*.txt for the names of a directory
+     * the files of a directory or glob are sorted by name, output files are left out
+     *
+     * @param arguments
+     * @return
+     * @throws AppException
+     */
+    public static List<Path> findFiles(List<String> arguments) throws AppException {
+        List<Path> inputFiles = new ArrayList<>();
+
+        for (String argument : arguments) {
+            try {
+                if (isGlob(argument)) {
+                    // only the name can be a pattern, the directory must exist
+                    int nameStart   = Math.max(argument.lastIndexOf('/'), argument.lastIndexOf(File.separatorChar)) + 1;
+                    Path directory  = Paths.get(nameStart > 0 ? argument.substring(0, nameStart) : ".");
+
+                    inputFiles.addAll(listFiles(directory, argument.substring(nameStart)));
+                    continue;
+                }
+                Path path = Paths.get(argument);
+
+                if (Files.isDirectory(path)) {
+                    inputFiles.addAll(listFiles(path, "*"));
+                } else if (Files.isRegularFile(path)) {
+                    inputFiles.add(path);
+                } else {
+                    throw new AppException(GlobalErrorCodes.NO_PATH_DEFINED, "The passed file path " + argument + " does not exists!");
+                }
+            } catch (IOException | InvalidPathException exception) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_READING_FILE, exception.getMessage());
+            }
+        }
+
+        if (inputFiles.isEmpty()) {
+            throw new AppException(GlobalErrorCodes.NO_PATH_DEFINED, "The passed paths have no files!");
+        }
+        return inputFiles;
+    }
+
+    /**
+     * the output file of the input file, in the output directory or next to the input file if the directory is null
+     *
+     * @param inputFile
+     * @param outputDirectory
+     * @return
+     */
+    public static Path outputFileOf(Path inputFile, Path outputDirectory) {
+        String name = inputFile.getFileName() + OUTPUT_SUFFIX;
+
+        return outputDirectory != null ? outputDirectory.resolve(name) : inputFile.resolveSibling(name);
+    }
+
+    /**
+     * packages the files on the worker pool of the configuration or on a pool with parallelism threads
+     * the solver, the validator, the cache and the metrics of the configuration are shared by all files
+     *
+     * @param inputFiles
+     * @param outputDirectory the directory of the output files or null for output files next to the input files
+     * @param configuration
+     * @return the results in the order of the input files
+     * @throws AppException if the configuration doesn't fit the batch mode
+     */
+    public static List<FileResult> startPackaging(List<Path> inputFiles, Path outputDirectory, PackagerConfiguration configuration) throws AppException {
+
+        if (configuration.isBinaryInput() || configuration.isCheckpointing() || configuration.isResume() || configuration.getResultSink() != null) {
+            // every file is read as text lines and has its own output file
+            throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The batch mode reads text files and writes an output file for every file!");
+        }
+        if (outputDirectory != null) {
+            try {
+                Files.createDirectories(outputDirectory);
+            } catch (IOException ioException) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage());
+            }
+        }
+
+        ExecutorService workerPool  = configuration.getWorkerPool() != null ? configuration.getWorkerPool() : Executors.newFixedThreadPool(configuration.getParallelism());
+        int workers                 = configuration.getWorkerPool() != null ? Runtime.getRuntime().availableProcessors() : configuration.getParallelism();
+        Semaphore pendingFiles      = new Semaphore(workers * PENDING_FILES_PER_WORKER);
+        List<Future<FileResult>> results = new ArrayList<>(inputFiles.size());
+
+        try {
+            for (Path inputFile : inputFiles) {
+                Path outputFile = outputFileOf(inputFile, outputDirectory);
+
+                // we wait for a free place before the next file is submitted
+                pendingFiles.acquire();
+
+                try {
+                    results.add(workerPool.submit(() -> {
+                        try {
+                            return packageFile(inputFile, outputFile, configuration);
+                        } finally {
+                            pendingFiles.release();
+                        }
+                    }));
+                } catch (RuntimeException e) {
+                    pendingFiles.release();
+                    throw e;
+                }
+            }
+
+            List<FileResult> fileResults = new ArrayList<>(results.size());
+
+            for (Future<FileResult> result : results) {
+                fileResults.add(result.get());
+            }
+            return fileResults;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AppException(GlobalErrorCodes.UNDEFINED_EXCEPTION, "The batch was interrupted!");
+        } catch (ExecutionException e) {
+            throw new AppException(GlobalErrorCodes.UNDEFINED_EXCEPTION, e.getCause().toString());
+        } finally {
+            if (workerPool != configuration.getWorkerPool()) {
+                workerPool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * the summary of the results, one line per file and the sums of all files in the last line
+     *
+     * @param fileResults
+     * @param nanos the time of the whole batch
+     * @return
+     */
+    public static String summary(List<FileResult> fileResults, long nanos) {
+        StringBuilder summary   = new StringBuilder();
+        long lines              = 0;
+        long errors             = 0;
+        int failedFiles         = 0;
+
+        for (FileResult fileResult : fileResults) {
+            summary.append(fileResult).append(System.lineSeparator());
+
+            lines   += fileResult.getLines();
+            errors  += fileResult.getErrors().size();
+
+            if (fileResult.getFailure() != null) {
+                failedFiles++;
+            }
+        }
+        return summary.append(String.format(Locale.ROOT, "%d files, %d lines, %d errors, %d failed files, %d ms",
+                fileResults.size(), lines, errors, failedFiles, TimeUnit.NANOSECONDS.toMillis(nanos))).toString();
+    }
+
+    /**
+     * packages the lines of one file into its output file, this runs in a worker thread
+     *
+     * @param inputFile
+     * @param outputFile
+     * @param configuration
+     * @return
+     */
+    private static FileResult packageFile(Path inputFile, Path outputFile, PackagerConfiguration configuration) {
+        FileResult fileResult   = new FileResult(inputFile, outputFile);
+        long startNanos         = System.nanoTime();
+
+        // every file counts its own errors
+        int maxErrors           = configuration.getErrorReport() != null ? configuration.getErrorReport().getMaxErrors() : 0;
+        ErrorReport errorReport = new ErrorReport(maxErrors);
+
+        try (BufferedReader reader = Files.newBufferedReader(inputFile, Charset.defaultCharset());
+             Writer writer = Files.newBufferedWriter(outputFile, Charset.defaultCharset())) {
+
+            BufferedResultSink resultSink   = new BufferedResultSink(writer, configuration.getFlushInterval());
+            StringResultSink lineOutput     = new StringResultSink();
+            String line;
+
+            try {
+                while ((line = reader.readLine()) != null) {
+                    int lineNumber = fileResult.lines + 1;
+
+                    // the output of the line is collected first, so a line with an error has no half output
+                    lineOutput.clear();
+
+                    try {
+                        Packager.packageLine(lineNumber, line, configuration, lineOutput);
+                        resultSink.append(lineOutput.getOutput());
+                    } catch (AppException e) {
+                        if (configuration.getMetrics() != null) {
+                            configuration.getMetrics().recordError();
+                        }
+                        if (!errorReport.add(lineNumber, e)) {
+                            // too many errors, the lines before are written
+                            fileResult.failure = e;
+                            break;
+                        }
+                        resultSink.append(ErrorReport.ERROR_MARKER);
+                    }
+                    resultSink.endLine();
+                    fileResult.lines++;
+                }
+            } finally {
+                resultSink.flush();
+            }
+        } catch (IOException ioException) {
+            fileResult.failure = new AppException(GlobalErrorCodes.ERROR_ON_READING_FILE, ioException.toString());
+        } catch (RuntimeException e) {
+            // this shouldn't happen, but one file must not stop the other files
+            fileResult.failure = new AppException(GlobalErrorCodes.UNDEFINED_EXCEPTION, e.toString());
+        }
+
+        fileResult.errors   = errorReport.getErrors();
+        fileResult.nanos    = System.nanoTime() - startNanos;
+        return fileResult;
+    }
+
+    private static boolean isGlob(String argument) {
+        return argument.indexOf('*') >= 0 || argument.indexOf('?') >= 0 || argument.indexOf('[') >= 0 || argument.indexOf('{') >= 0;
+    }
+
+    /**
+     * the regular files of the directory that match the glob, without output files, sorted by name
+     *
+     * @param directory
+     * @param glob
+     * @return
+     * @throws IOException
+     */
+    private static List<Path> listFiles(Path directory, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : directoryStream) {
+                if (Files.isRegularFile(file) && !file.getFileName().toString().endsWith(OUTPUT_SUFFIX)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+}
@@ -0,0 +1,106 @@
+package de.fritze.marcus.binary;
+
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.parser.LineParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This converts the lines of a text file into binary records and back
+ *
+ * the lines are only parsed, not validated, so a file with invalid packages gives the same errors in both formats.
+ * the values are written back with the decimals of their scale, for example 72.3 in a line with 2 decimals is written as 72.30
+ */
+public class BinaryConverter {
+
+    /**
+     * converts the text file with the default charset into binary records
+     *
+     * @param textFile
+     * @param binaryFile
+     * @throws AppException if a line is not in the correct format or the files can't be read or written
+     */
+    public static void textToBinary(Path textFile, Path binaryFile) throws AppException {
+        LineParser lineParser = new LineParser();
+
+        try (BufferedReader reader = Files.newBufferedReader(textFile, Charset.defaultCharset());
+             OutputStream outputStream = Files.newOutputStream(binaryFile);
+             BinaryRecordWriter writer = new BinaryRecordWriter(outputStream)) {
+
+            int lineNumber = 0;
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.isEmpty()) {
+                    writer.writeEmptyRecord();
+                } else if (lineParser.parse(line)) {
+                    writer.writeRecord(lineParser.getItemBatch());
+                } else {
+                    throw new AppException(GlobalErrorCodes.LINE_NOT_IN_CORRECT_FORMAT, "The line " + lineNumber + " in the file is not in correct format!");
+                }
+            }
+        } catch (IOException ioException) {
+            throw new AppException(GlobalErrorCodes.ERROR_ON_READING_FILE, ioException.getMessage());
+        }
+    }
+
+    /**
+     * converts the binary records into a text file with the default charset
+     *
+     * @param binaryFile
+     * @param textFile
+     * @throws AppException if the records are not valid or the files can't be read or written
+     */
+    public static void binaryToText(Path binaryFile, Path textFile) throws AppException {
+        ItemBatch itemBatch = new ItemBatch();
+
+        try (InputStream inputStream = Files.newInputStream(binaryFile);
+             BinaryRecordReader reader = new BinaryRecordReader(inputStream);
+             BufferedWriter writer = Files.newBufferedWriter(textFile, Charset.defaultCharset())) {
+
+            while (reader.nextRecord(itemBatch)) {
+                if (!reader.isEmptyLine()) {
+                    writer.write(toLine(itemBatch));
+                }
+                writer.newLine();
+            }
+        } catch (IOException ioException) {
+            throw new AppException(GlobalErrorCodes.ERROR_ON_READING_FILE, ioException.getMessage());
+        }
+    }
+
+    /**
+     * writes the batch in the text format, for example 81 : (1,53.38,€45) (2,88.62,€98) or 2 x 81 : (1,53.38,€45) (2,88.62,€98)
+     *
+     * @param itemBatch
+     * @return
+     */
+    public static String toLine(ItemBatch itemBatch) {
+        StringBuilder line = new StringBuilder();
+
+        if (itemBatch.hasAmountOfPackages()) {
+            line.append(itemBatch.getAmountOfPackages()).append(" x ");
+        }
+        line.append(BigDecimal.valueOf(itemBatch.getFixedMaxWeightPackage(), itemBatch.getWeightScale()).toPlainString()).append(" :");
+
+        for (int i = 0; i < itemBatch.size(); i++) {
+            line.append(" (").append(itemBatch.getId(i))
+                    .append(',').append(BigDecimal.valueOf(itemBatch.getFixedWeight(i), itemBatch.getWeightScale()).toPlainString())
+                    .append(",€").append(BigDecimal.valueOf(itemBatch.getFixedPrice(i), itemBatch.getPriceScale()).toPlainString())
+                    .append(')');
+        }
+        return line.toString();
+    }
+}
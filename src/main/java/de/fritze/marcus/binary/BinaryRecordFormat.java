@@ -0,0 +1,29 @@
+package de.fritze.marcus.binary;
+
+/**
+ * The binary format for lines that are already parsed, one record per line
+ *
+ * the file starts with a header: the magic number as int and the version as short (big endian like DataOutput).
+ * every record starts with the amount of items + 1 as unsigned varint, 0 is an empty line and nothing else follows.
+ * after that come the weight scale and the price scale as one byte each, the amount of packages of the line + 1
+ * as unsigned varint (0 if the line has no prefix "N x "), the max weight as unsigned varlong
+ * and for every item the id as unsigned varint and the weight and the price as unsigned varlong.
+ * the max weight and the weights are scaled by 10^weightScale, the prices by 10^priceScale, like in the ItemBatch.
+ *
+ * a varint stores 7 bits per byte, the lowest bits first, the highest bit of a byte is set if another byte follows,
+ * so the small values of a line need one or two bytes instead of the text
+ *
+ * the version 1 has no amount of packages in the records, it is still read and its lines use the amount of the configuration
+ */
+public final class BinaryRecordFormat {
+
+    /* "PKGB" */
+    public static final int MAGIC       = 0x504B4742;
+    public static final short VERSION   = 2;
+
+    /* the records have no amount of packages */
+    public static final short VERSION_1 = 1;
+
+    private BinaryRecordFormat() {
+    }
+}
@@ -0,0 +1,140 @@
+package de.fritze.marcus.binary;
+
+import de.fritze.marcus.model.ItemBatch;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * This reads the binary records of a stream into ItemBatch's, see BinaryRecordFormat
+ *
+ * every record is one line, the records are counted like the lines of a text file
+ */
+public class BinaryRecordReader implements Closeable {
+
+    private final DataInputStream input;
+    private final short version;
+
+    private int lineNumber;
+    private boolean emptyLine;
+
+    /**
+     * reads and checks the header of the format
+     *
+     * @param inputStream
+     * @throws IOException if the stream has no header or the version is not supported
+     */
+    public BinaryRecordReader(InputStream inputStream) throws IOException {
+        this.input = new DataInputStream(new BufferedInputStream(inputStream));
+
+        try {
+            if (input.readInt() != BinaryRecordFormat.MAGIC) {
+                throw new IOException("The input is not in the binary record format!");
+            }
+            this.version = input.readShort();
+
+            if (version != BinaryRecordFormat.VERSION && version != BinaryRecordFormat.VERSION_1) {
+                throw new IOException("The version " + version + " of the binary record format is not supported!");
+            }
+        } catch (EOFException e) {
+            throw new IOException("The input is not in the binary record format!");
+        }
+    }
+
+    /**
+     * reads the next record into the batch, the batch is not changed for an empty line
+     *
+     * @param itemBatch
+     * @return false if there are no more records
+     * @throws IOException if the record is not complete or not valid
+     */
+    public boolean nextRecord(ItemBatch itemBatch) throws IOException {
+        int first = input.read();
+
+        if (first < 0) {
+            return false;
+        }
+        lineNumber++;
+
+        try {
+            long amountOfItems = readVarLong(first) - 1;
+
+            emptyLine = amountOfItems < 0;
+
+            if (emptyLine) {
+                return true;
+            }
+            int weightScale = input.readUnsignedByte();
+            int priceScale  = input.readUnsignedByte();
+
+            // the version 1 has no amount of packages, the line uses the amount of the configuration
+            long amountOfPackages = version == BinaryRecordFormat.VERSION_1 ? ItemBatch.NO_AMOUNT_OF_PACKAGES
+                    : readVarLong(input.readUnsignedByte()) + ItemBatch.NO_AMOUNT_OF_PACKAGES;
+
+            if (weightScale > ItemBatch.MAX_SCALE || priceScale > ItemBatch.MAX_SCALE || amountOfItems > Integer.MAX_VALUE || amountOfPackages > Integer.MAX_VALUE) {
+                throw new IOException("The record " + lineNumber + " is not valid!");
+            }
+            itemBatch.clearFixedPoint(readVarLong(input.readUnsignedByte()), weightScale, priceScale);
+            itemBatch.setAmountOfPackages((int) amountOfPackages);
+
+            for (long i = 0; i < amountOfItems; i++) {
+                long id = readVarLong(input.readUnsignedByte());
+
+                if (id > Integer.MAX_VALUE) {
+                    throw new IOException("The record " + lineNumber + " is not valid!");
+                }
+                itemBatch.addFixedPointItem((int) id, readVarLong(input.readUnsignedByte()), readVarLong(input.readUnsignedByte()));
+            }
+        } catch (EOFException e) {
+            throw new IOException("The record " + lineNumber + " is not complete!");
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the last record is an empty line
+     */
+    public boolean isEmptyLine() {
+        return emptyLine;
+    }
+
+    /**
+     * @return the number of the last record, starting at 1
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    /**
+     * reads the varlong that starts with the byte
+     *
+     * @param first
+     * @return
+     * @throws IOException
+     */
+    private long readVarLong(int first) throws IOException {
+        long value  = first & 0x7F;
+        int current = first;
+
+        for (int shift = 7; (current & 0x80) != 0; shift += 7) {
+            if (shift > 63) {
+                throw new IOException("The record " + lineNumber + " has a value that is too long!");
+            }
+            current = input.readUnsignedByte();
+            value  |= (long) (current & 0x7F) << shift;
+        }
+        if (value < 0) {
+            throw new IOException("The record " + lineNumber + " has a value that is too long!");
+        }
+        return value;
+    }
+}
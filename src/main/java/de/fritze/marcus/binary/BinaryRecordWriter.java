@@ -0,0 +1,82 @@
+package de.fritze.marcus.binary;
+
+import de.fritze.marcus.model.ItemBatch;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * This writes ItemBatch's as binary records, see BinaryRecordFormat
+ */
+public class BinaryRecordWriter implements Closeable, Flushable {
+
+    private final DataOutputStream output;
+
+    /**
+     * writes the header of the format into the stream
+     *
+     * @param outputStream
+     * @throws IOException
+     */
+    public BinaryRecordWriter(OutputStream outputStream) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(outputStream));
+
+        output.writeInt(BinaryRecordFormat.MAGIC);
+        output.writeShort(BinaryRecordFormat.VERSION);
+    }
+
+    /**
+     * writes the items of the batch as one record, the fixed-point values of the batch must be calculated
+     *
+     * @param itemBatch
+     * @throws IOException if a value is negative, the format has no negative values
+     */
+    public void writeRecord(ItemBatch itemBatch) throws IOException {
+        writeVarLong(itemBatch.size() + 1L);
+        output.writeByte(itemBatch.getWeightScale());
+        output.writeByte(itemBatch.getPriceScale());
+        // NO_AMOUNT_OF_PACKAGES is written as 0
+        writeVarLong((long) itemBatch.getAmountOfPackages() - ItemBatch.NO_AMOUNT_OF_PACKAGES);
+        writeVarLong(itemBatch.getFixedMaxWeightPackage());
+
+        for (int i = 0; i < itemBatch.size(); i++) {
+            writeVarLong(itemBatch.getId(i));
+            writeVarLong(itemBatch.getFixedWeight(i));
+            writeVarLong(itemBatch.getFixedPrice(i));
+        }
+    }
+
+    /**
+     * writes the record of an empty line
+     *
+     * @throws IOException
+     */
+    public void writeEmptyRecord() throws IOException {
+        writeVarLong(0);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        if (value < 0) {
+            throw new IOException("The value " + value + " is negative and can't be written as binary record!");
+        }
+        while (value >= 0x80) {
+            output.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+}
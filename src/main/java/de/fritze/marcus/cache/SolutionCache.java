@@ -0,0 +1,233 @@
+package de.fritze.marcus.cache;
+
+import de.fritze.marcus.model.ItemBatch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This remembers the output of lines that were already packaged, so a repeated line doesn't need the solver again
+ *
+ * the key is the canonical content of the line: the fixed-point max weight, weights and prices, their scales and the ids
+ * in the order of the line, so "€045" and "€45" are the same line. "53.38" and "53.380" are not, the scale of the line is part
+ * of the key because a solver may depend on it, like the table of the DynamicProgrammingSolver or the rounding of the FptasSolver.
+ * the order of the items is part of the key, because the subset order decides between packets with the same price, weight and amount of items.
+ * the settings of the solver and the limits of the validator are part of the key too, so a line packaged with other settings
+ * is never taken from the cache, also not from the cache file of a run with other settings.
+ * the cache holds at most maxEntries lines, the least recently used line is removed first.
+ * all functions are synchronized, so one cache can be used by all worker threads
+ */
+public class SolutionCache {
+
+    /* the size of the cache if only the cache file is given */
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+
+    /* the first bytes of a cache file and the version of the format */
+    private static final int FILE_MAGIC     = 0x50434348;
+    private static final int FILE_VERSION   = 2;
+
+    /**
+     * the canonical content of a line, the values are compared and not only the hash, so two lines never share an output
+     */
+    public static final class Key {
+
+        private final long[] values;
+        private final String settings;
+        private final int hash;
+
+        private Key(long[] values, String settings) {
+            this.values     = values;
+            this.settings   = settings;
+            this.hash       = 31 * Arrays.hashCode(values) + settings.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && hash == ((Key) other).hash && Arrays.equals(values, ((Key) other).values) && settings.equals(((Key) other).settings);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final int maxEntries;
+    private final LinkedHashMap<Key, String> solutions;
+
+    private long hits;
+    private long misses;
+
+    public SolutionCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The cache size must be at least 1");
+        }
+        this.maxEntries = maxEntries;
+
+        // the access order makes the LinkedHashMap a LRU list
+        this.solutions  = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > SolutionCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * creates the key of the line in the batch, the amount of alternatives or of packages is part of the key because it changes the output
+     * a key for more than one package starts with the negative amount of packages, so it never equals a key with alternatives
+     *
+     * @param itemBatch
+     * @param alternatives
+     * @param amountOfPackages
+     * @param settings the settings of the solver and the validator, see PackagerConfiguration.getCacheSettings
+     * @return
+     */
+    public static Key keyOf(ItemBatch itemBatch, int alternatives, int amountOfPackages, String settings) {
+        long[] values = new long[4 + itemBatch.size() * 3];
+
+        values[0] = amountOfPackages > 1 ? -amountOfPackages : alternatives;
+        values[1] = itemBatch.getFixedMaxWeightPackage();
+        values[2] = itemBatch.getWeightScale();
+        values[3] = itemBatch.getPriceScale();
+
+        for (int i = 0, position = 4; i < itemBatch.size(); i++) {
+            values[position++] = itemBatch.getId(i);
+            values[position++] = itemBatch.getFixedWeight(i);
+            values[position++] = itemBatch.getFixedPrice(i);
+        }
+        return new Key(values, settings);
+    }
+
+    /**
+     * @param key
+     * @return the output of the line or null if the line is not in the cache
+     */
+    public synchronized String get(Key key) {
+        String solution = solutions.get(key);
+
+        if (solution != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return solution;
+    }
+
+    public synchronized void put(Key key, String solution) {
+        solutions.put(key, solution);
+    }
+
+    public synchronized int size() {
+        return solutions.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * adds the lines of the cache file, a missing file is an empty cache. a file of the version 1 has no settings
+     * in its keys, so its lines are not added
+     *
+     * the file has the settings of its keys once in the header, every key has the index of its settings
+     *
+     * @param file
+     * @throws IOException if the file can't be read or is no cache file
+     */
+    public synchronized void load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != FILE_MAGIC) {
+                throw new IOException("The file " + file + " is not a cache file!");
+            }
+            int version = input.readInt();
+
+            if (version == 1) {
+                // we don't know the settings of these lines
+                return;
+            }
+            if (version != FILE_VERSION) {
+                throw new IOException("The file " + file + " is not a cache file!");
+            }
+            String[] settings = new String[input.readInt()];
+
+            for (int i = 0; i < settings.length; i++) {
+                settings[i] = input.readUTF();
+            }
+            int entries = input.readInt();
+
+            for (int entry = 0; entry < entries; entry++) {
+                int settingsIndex = input.readInt();
+
+                if (settingsIndex < 0 || settingsIndex >= settings.length) {
+                    throw new IOException("The file " + file + " is not a cache file!");
+                }
+                String keySettings  = settings[settingsIndex];
+                long[] values       = new long[input.readInt()];
+
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = input.readLong();
+                }
+                char[] solution = new char[input.readInt()];
+
+                for (int i = 0; i < solution.length; i++) {
+                    solution[i] = input.readChar();
+                }
+                solutions.put(new Key(values, keySettings), new String(solution));
+            }
+        }
+    }
+
+    /**
+     * writes all lines of the cache into the file, the least recently used line first, so loading keeps the order
+     *
+     * @param file
+     * @throws IOException
+     */
+    public synchronized void save(Path file) throws IOException {
+        // the settings of all keys, usually only one
+        Map<String, Integer> settingsIndexes = new LinkedHashMap<>();
+
+        for (Key key : solutions.keySet()) {
+            settingsIndexes.putIfAbsent(key.settings, settingsIndexes.size());
+        }
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(FILE_MAGIC);
+            output.writeInt(FILE_VERSION);
+            output.writeInt(settingsIndexes.size());
+
+            for (String settings : settingsIndexes.keySet()) {
+                output.writeUTF(settings);
+            }
+            output.writeInt(solutions.size());
+
+            for (Map.Entry<Key, String> solution : solutions.entrySet()) {
+                output.writeInt(settingsIndexes.get(solution.getKey().settings));
+                output.writeInt(solution.getKey().values.length);
+
+                for (long value : solution.getKey().values) {
+                    output.writeLong(value);
+                }
+                output.writeInt(solution.getValue().length());
+                output.writeChars(solution.getValue());
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package de.fritze.marcus.exception;
 
+import java.io.Flushable;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -31,17 +33,49 @@ public class AppException extends Exception {
      * @return
      */
     public static <T> Consumer<T> throwingConsumerWrapper(ThrowingConsumer<T, Exception> throwingConsumer) {
+        return throwingConsumerWrapper(throwingConsumer, null);
+    }
+
+    /**
+     * Like throwingConsumerWrapper, but the buffered output is flushed before the error is shown,
+     * so the user sees the output of all lines before the line with the error
+     *
+     * @param throwingConsumer
+     * @param output
+     * @param <T>
+     * @return
+     */
+    public static <T> Consumer<T> throwingConsumerWrapper(ThrowingConsumer<T, Exception> throwingConsumer, Flushable output) {
         return i -> {
             try {
                 throwingConsumer.accept(i);
-            } catch (AppException e) {
-                System.out.println("An error occurred:\ncode: " + e.getCode() + "\n" + "error: " + e.getMessage());
-                System.exit(e.getCode());
             } catch (Exception e) {
-                String stackTraceString = Arrays.stream(e.getStackTrace()).map(StackTraceElement::toString).collect(Collectors.joining("\n"));
-                System.out.println("An error occurred:\ncode: " + GlobalErrorCodes.UNDEFINED_EXCEPTION + "\nerror: " + e.toString() + "\nstack: " + stackTraceString);
-                System.exit(10);
+                flushBeforeExit(output);
+                showAndExit(e);
             }
         };
     }
+
+    private static void flushBeforeExit(Flushable output) {
+        if (output != null) {
+            try {
+                output.flush();
+            } catch (IOException ignored) {
+                // the error of the line is more important
+            }
+        }
+    }
+
+    private static void showAndExit(Exception e) {
+        if (e instanceof AppException) {
+            AppException appException = (AppException) e;
+
+            System.out.println("An error occurred:\ncode: " + appException.getCode() + "\n" + "error: " + appException.getMessage());
+            System.exit(appException.getCode());
+        } else {
+            String stackTraceString = Arrays.stream(e.getStackTrace()).map(StackTraceElement::toString).collect(Collectors.joining("\n"));
+            System.out.println("An error occurred:\ncode: " + GlobalErrorCodes.UNDEFINED_EXCEPTION + "\nerror: " + e.toString() + "\nstack: " + stackTraceString);
+            System.exit(10);
+        }
+    }
 }
@@ -0,0 +1,72 @@
+package de.fritze.marcus.exception;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This collects the errors of the lines in the fail-soft mode
+ *
+ * a line with an error gets the ERROR_MARKER as output and the packager goes on with the next line.
+ * if more than maxErrors lines have an error the packager stops like without the fail-soft mode.
+ * every error is also written at once into the report output (for example System.err), so no error gets lost if the packager stops
+ */
+public class ErrorReport {
+
+    /* the output of a line with an error */
+    public static final String ERROR_MARKER = "!";
+
+    private final int maxErrors;
+    private final Appendable reportOutput;
+    private final List<LineError> errors = new ArrayList<>();
+
+    /**
+     * @param maxErrors the amount of lines with an error before the packager stops
+     * @param reportOutput every error is written as one line into this, null collects the errors only
+     */
+    public ErrorReport(int maxErrors, Appendable reportOutput) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("The max errors must not be negative");
+        }
+        this.maxErrors      = maxErrors;
+        this.reportOutput   = reportOutput;
+    }
+
+    public ErrorReport(int maxErrors) {
+        this(maxErrors, null);
+    }
+
+    /**
+     * adds the error of the line to the report
+     *
+     * @param lineNumber
+     * @param exception
+     * @return false if the line has one error too much, then the error is not added and the packager must stop
+     * @throws IOException if the error can't be written into the report output
+     */
+    public synchronized boolean add(int lineNumber, AppException exception) throws IOException {
+        if (errors.size() >= maxErrors) {
+            return false;
+        }
+        LineError lineError = new LineError(lineNumber, exception.getCode(), exception.getMessage());
+        errors.add(lineError);
+
+        if (reportOutput != null) {
+            reportOutput.append(lineError.toString()).append(System.lineSeparator());
+        }
+        return true;
+    }
+
+    public synchronized List<LineError> getErrors() {
+        return Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+
+    public synchronized int size() {
+        return errors.size();
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+}
@@ -0,0 +1,34 @@
+package de.fritze.marcus.exception;
+
+/**
+ * The error of one line of the file
+ */
+public class LineError {
+
+    private final int lineNumber;
+    private final int code;
+    private final String message;
+
+    public LineError(int lineNumber, int code, String message) {
+        this.lineNumber = lineNumber;
+        this.code       = code;
+        this.message    = message;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "line " + lineNumber + ", code " + code + ": " + message;
+    }
+}
@@ -0,0 +1,140 @@
+package de.fritze.marcus.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram with logarithmic buckets like the HdrHistogram, recording is lock-free and doesn't allocate
+ *
+ * values below 2^SUB_BUCKET_BITS have their own bucket, every higher power of two is split into 2^SUB_BUCKET_BITS buckets,
+ * so a value is counted with a relative error of at most 1 / 2^SUB_BUCKET_BITS (about 3%).
+ * the percentiles are the highest value of their bucket
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS    = 5;
+    private static final int SUB_BUCKETS        = 1 << SUB_BUCKET_BITS;
+
+    /* the exact buckets and the sub buckets of the powers of two from SUB_BUCKET_BITS to 62 */
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts    = new AtomicLongArray(BUCKETS);
+    private final LongAdder count           = new LongAdder();
+    private final LongAdder sum             = new LongAdder();
+    private final AtomicLong min            = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max            = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * counts the value, negative values are counted as 0
+     *
+     * @param value
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+
+        if (value < min.get()) {
+            min.accumulateAndGet(value, Math::min);
+        }
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMin() {
+        return getCount() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return getCount() == 0 ? 0 : max.get();
+    }
+
+    public double getMean() {
+        long values = getCount();
+
+        return values == 0 ? 0 : (double) getSum() / values;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the highest value of the bucket that holds the percentile, never more than the max
+     */
+    public long getPercentile(double percentile) {
+        long values = getCount();
+
+        if (values == 0) {
+            return 0;
+        }
+        long rank       = Math.max(1, (long) Math.ceil(percentile / 100 * values));
+        long counted    = 0;
+
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counted += counts.get(bucket);
+
+            if (counted >= rank) {
+                return Math.min(highestValueOf(bucket), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        count.reset();
+        sum.reset();
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }
+
+    /**
+     * @return count, min, max, mean and the percentiles 50, 90, 99 and 99.9 as JSON object
+     */
+    public String toJson() {
+        return "{\"count\":" + getCount()
+                + ",\"min\":" + getMin()
+                + ",\"max\":" + getMax()
+                + ",\"mean\":" + String.format(Locale.ROOT, "%.1f", getMean())
+                + ",\"p50\":" + getPercentile(50)
+                + ",\"p90\":" + getPercentile(90)
+                + ",\"p99\":" + getPercentile(99)
+                + ",\"p999\":" + getPercentile(99.9)
+                + "}";
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift    = exponent - SUB_BUCKET_BITS;
+
+        // the bits after the highest bit choose the sub bucket
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift       = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket  = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long lowest     = (SUB_BUCKETS + subBucket) << shift;
+
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,187 @@
+package de.fritze.marcus.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This counts the lines and measures the stages of the packager
+ *
+ * the latencies of the stages are in nanoseconds, next to them the histograms show the amount of items per line
+ * and the subsets the solver visited per line (see SolverStatistics). an approximate solver also records the guaranteed
+ * optimality gap of every line in parts per million. the metrics are only recorded
+ * if they are set in the PackagerConfiguration, one instance can be used by all worker threads
+ */
+public class PackagerMetrics implements PackagerMetricsMXBean {
+
+    public static final String OBJECT_NAME = "de.fritze.marcus:type=PackagerMetrics";
+
+    /**
+     * the stages of a line
+     */
+    public enum Stage {
+        PARSE, VALIDATE, SOLVE, OUTPUT
+    }
+
+    private final LongAdder lines       = new LongAdder();
+    private final LongAdder emptyLines  = new LongAdder();
+    private final LongAdder errors      = new LongAdder();
+
+    private final Map<Stage, Histogram> stageLatencies = new EnumMap<>(Stage.class);
+    private final Histogram itemsPerLine    = new Histogram();
+    private final Histogram visitedSubsets  = new Histogram();
+    private final Histogram optimalityGap   = new Histogram();
+
+    public PackagerMetrics() {
+        for (Stage stage : Stage.values()) {
+            stageLatencies.put(stage, new Histogram());
+        }
+    }
+
+    /**
+     * counts a line with content
+     */
+    public void recordLine() {
+        lines.increment();
+    }
+
+    /**
+     * records the amount of items of a line in the correct format
+     *
+     * @param amountOfItems
+     */
+    public void recordItemsPerLine(int amountOfItems) {
+        itemsPerLine.record(amountOfItems);
+    }
+
+    public void recordEmptyLine() {
+        emptyLines.increment();
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * @return the start of a stage for recordStage
+     */
+    public static long startStage(PackagerMetrics metrics) {
+        return metrics != null ? System.nanoTime() : 0;
+    }
+
+    /**
+     * records the latency of the stage if the metrics are turned on
+     *
+     * @param metrics the metrics or null if the metrics are turned off
+     * @param stage
+     * @param startNanos the System.nanoTime() when the stage started
+     */
+    public static void recordStage(PackagerMetrics metrics, Stage stage, long startNanos) {
+        if (metrics != null) {
+            metrics.stageLatencies.get(stage).record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void recordVisitedSubsets(long subsets) {
+        visitedSubsets.record(subsets);
+    }
+
+    /**
+     * records the optimality gap of a line in parts per million, a negative gap is from an exact solver and not recorded
+     *
+     * @param gap between 0 and 1
+     */
+    public void recordOptimalityGap(double gap) {
+        if (gap >= 0) {
+            optimalityGap.record(Math.round(gap * 1_000_000));
+        }
+    }
+
+    @Override
+    public long getLines() {
+        return lines.sum();
+    }
+
+    @Override
+    public long getEmptyLines() {
+        return emptyLines.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public Histogram getStageLatency(Stage stage) {
+        return stageLatencies.get(stage);
+    }
+
+    public Histogram getItemsPerLine() {
+        return itemsPerLine;
+    }
+
+    public Histogram getVisitedSubsets() {
+        return visitedSubsets;
+    }
+
+    public Histogram getOptimalityGap() {
+        return optimalityGap;
+    }
+
+    @Override
+    public String getJson() {
+        StringBuilder json = new StringBuilder();
+
+        json.append("{\"lines\":").append(getLines())
+            .append(",\"emptyLines\":").append(getEmptyLines())
+            .append(",\"errors\":").append(getErrors())
+            .append(",\"stageLatencyNanos\":{");
+
+        for (Stage stage : Stage.values()) {
+            if (stage.ordinal() > 0) {
+                json.append(',');
+            }
+            json.append('"').append(stage.name().toLowerCase(Locale.ROOT)).append("\":").append(stageLatencies.get(stage).toJson());
+        }
+
+        return json.append("},\"itemsPerLine\":").append(itemsPerLine.toJson())
+                   .append(",\"visitedSubsets\":").append(visitedSubsets.toJson())
+                   .append(",\"optimalityGapPpm\":").append(optimalityGap.toJson())
+                   .append('}')
+                   .toString();
+    }
+
+    @Override
+    public void reset() {
+        lines.reset();
+        emptyLines.reset();
+        errors.reset();
+        stageLatencies.values().forEach(Histogram::reset);
+        itemsPerLine.reset();
+        visitedSubsets.reset();
+        optimalityGap.reset();
+    }
+
+    /**
+     * registers the metrics at the platform MBean server, metrics registered before are replaced
+     *
+     * @throws JMException
+     */
+    public void registerMBean() throws JMException {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName   = new ObjectName(OBJECT_NAME);
+
+        try {
+            mBeanServer.registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            mBeanServer.unregisterMBean(objectName);
+            mBeanServer.registerMBean(this, objectName);
+        }
+    }
+}
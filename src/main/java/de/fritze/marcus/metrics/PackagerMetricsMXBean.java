@@ -0,0 +1,20 @@
+package de.fritze.marcus.metrics;
+
+/**
+ * The metrics of the packager over JMX, for example in jconsole while a large file or the server is running
+ */
+public interface PackagerMetricsMXBean {
+
+    long getLines();
+
+    long getEmptyLines();
+
+    long getErrors();
+
+    /**
+     * @return all counters and histograms as JSON
+     */
+    String getJson();
+
+    void reset();
+}
@@ -0,0 +1,188 @@
+package de.fritze.marcus.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * This is a Packet that stores the packed items of an ItemBatch as a bitmask (bit i is the item at index i)
+ * it sums the fixed-point weight and price of the ItemBatch when we add or remove an item, without any allocation
+ */
+public class BitmaskPacket {
+
+    private final ItemBatch itemBatch;
+    private final long[] mask;
+
+    private long totalWeight    = 0;
+    private long totalPrice     = 0;
+    private int amountOfItems   = 0;
+
+    /**
+     * creates an empty packet for the items of the ItemBatch
+     *
+     * @param itemBatch
+     */
+    public BitmaskPacket(ItemBatch itemBatch) {
+        this.itemBatch  = itemBatch;
+        this.mask       = new long[(itemBatch.size() + 63) >>> 6];
+    }
+
+    /**
+     * creates a copy of the packet
+     *
+     * @param packet
+     */
+    public BitmaskPacket(BitmaskPacket packet) {
+        this.itemBatch      = packet.itemBatch;
+        this.mask           = packet.mask.clone();
+        this.totalWeight    = packet.totalWeight;
+        this.totalPrice     = packet.totalPrice;
+        this.amountOfItems  = packet.amountOfItems;
+    }
+
+    public ItemBatch getItemBatch() {
+        return itemBatch;
+    }
+
+    /**
+     * @return the total weight scaled by 10^weightScale of the ItemBatch
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * @return the total price scaled by 10^priceScale of the ItemBatch
+     */
+    public long getTotalPrice() {
+        return totalPrice;
+    }
+
+    public int getAmountOfItems() {
+        return amountOfItems;
+    }
+
+    public boolean containsItem(int index) {
+        return (mask[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * here we can add the item at the index of the ItemBatch, nothing happens if the item is already in the packet
+     *
+     * @param index
+     */
+    public void addItem(int index) {
+        if (!containsItem(index)) {
+            mask[index >>> 6] |= 1L << index;
+            totalWeight += itemBatch.getFixedWeight(index);
+            totalPrice  += itemBatch.getFixedPrice(index);
+            amountOfItems++;
+        }
+    }
+
+    /**
+     * here we can remove the item at the index of the ItemBatch, nothing happens if the item is not in the packet
+     *
+     * @param index
+     */
+    public void removeItem(int index) {
+        if (containsItem(index)) {
+            mask[index >>> 6] &= ~(1L << index);
+            totalWeight -= itemBatch.getFixedWeight(index);
+            totalPrice  -= itemBatch.getFixedPrice(index);
+            amountOfItems--;
+        }
+    }
+
+    /**
+     * removes all items from the packet
+     */
+    public void clear() {
+        Arrays.fill(mask, 0);
+        totalWeight     = 0;
+        totalPrice      = 0;
+        amountOfItems   = 0;
+    }
+
+    /**
+     * creates a Packet with PackageItem's from this packet, the items are in the order of the ItemBatch
+     *
+     * @return
+     */
+    public Packet toPacket() {
+        List<PackageItem> packageItems = new ArrayList<>(amountOfItems);
+
+        for (int i = 0; i < itemBatch.size(); i++) {
+            if (containsItem(i)) {
+                packageItems.add(itemBatch.getPackageItem(i));
+            }
+        }
+        return new Packet(packageItems);
+    }
+
+    /**
+     * this functions returns the ids of the packed items in the order of the ItemBatch separated by commas
+     *
+     * @return
+     */
+    public String getPackageItemIdsOfPackage() {
+        StringBuilder ids = new StringBuilder();
+
+        for (int i = 0; i < itemBatch.size(); i++) {
+            if (containsItem(i)) {
+                if (ids.length() > 0) {
+                    ids.append(',');
+                }
+                ids.append(itemBatch.getId(i));
+            }
+        }
+        return ids.toString();
+    }
+
+    /* Comparator for sorting by price descending, weight ascending, amount of items in packet descending like the Packet comparator */
+    public static Comparator<BitmaskPacket> PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDesc = new Comparator<BitmaskPacket>() {
+
+        public int compare(BitmaskPacket packet1, BitmaskPacket packet2) {
+
+            // sort descending order of total price of the packet
+            int comparisonPrice         = Long.compare(packet2.getTotalPrice(), packet1.getTotalPrice());
+
+            // if price is the same sort ascending order of total weight of the packet
+            int comparisonWeight        = Long.compare(packet1.getTotalWeight(), packet2.getTotalWeight());
+
+            // if price and weight is the same sort descending order of amount of items in packet
+            int comparisonAmountItems   = Integer.compare(packet2.getAmountOfItems(), packet1.getAmountOfItems());
+
+            if (comparisonPrice != 0) {
+                return comparisonPrice;
+            }
+            else if (comparisonWeight != 0){
+                return comparisonWeight;
+            }
+            else {
+                return comparisonAmountItems;
+            }
+        }
+    };
+
+    /**
+     * compares the packets in the subset enumeration order, where the item at index 0 is the lowest bit of a binary counter
+     *
+     * @param packet1
+     * @param packet2
+     * @return
+     */
+    public static int compareSubsetOrder(BitmaskPacket packet1, BitmaskPacket packet2) {
+        for (int word = packet1.mask.length - 1; word >= 0; word--) {
+            if (packet1.mask[word] != packet2.mask[word]) {
+                return Long.compareUnsigned(packet1.mask[word], packet2.mask[word]);
+            }
+        }
+        return 0;
+    }
+
+    /* Comparator like PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDesc, equal packets are sorted in the subset enumeration order */
+    public static Comparator<BitmaskPacket> PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDescAndSubsetOrder =
+            PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDesc.thenComparing(BitmaskPacket::compareSubsetOrder);
+}
@@ -0,0 +1,291 @@
+package de.fritze.marcus.model;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This holds the PackageItem's of one line as parallel primitive arrays (struct of arrays) instead of objects
+ *
+ * next to the values as they were read the weights and prices are stored as fixed-point longs,
+ * the weights are scaled by 10^weightScale and the prices by 10^priceScale, where the scale is the highest amount of
+ * decimals in the line, so the validator and the solvers can sum and compare exact without floating point errors.
+ * the parser passes the digits of every value as unscaled long, so the fixed-point value never goes through a double.
+ * values with more than MAX_SCALE decimals are rounded half up to MAX_SCALE decimals
+ *
+ * a batch is reused for the next line, so it must only be used by one thread at a time
+ */
+public class ItemBatch {
+
+    public static final int MAX_SCALE = 9;
+
+    /* the amount of packages of a line without the prefix "N x ", the line uses the amount of the configuration */
+    public static final int NO_AMOUNT_OF_PACKAGES = -1;
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9};
+    private static final long[] LONG_POWERS_OF_TEN = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    private float maxWeightPackage;
+    private long unscaledMaxWeightPackage;
+    private int maxWeightDecimals;
+
+    /* the amount of packages the line asks for, NO_AMOUNT_OF_PACKAGES if the line doesn't say it */
+    private int amountOfPackages = NO_AMOUNT_OF_PACKAGES;
+
+    private int size;
+    private int[] ids           = new int[16];
+    private double[] weights    = new double[16];
+    private double[] prices     = new double[16];
+    private int[] decimalsOfWeights = new int[16];
+    private int[] decimalsOfPrices  = new int[16];
+
+    private int weightScale;
+    private int priceScale;
+    private long fixedMaxWeightPackage;
+    private long[] fixedWeights = new long[16];
+    private long[] fixedPrices  = new long[16];
+
+    /**
+     * creates a batch from PackageItem's, the amount of decimals is taken from the shortest decimal representation
+     *
+     * @param maxWeightPackage
+     * @param packageItems
+     * @return
+     */
+    public static ItemBatch fromPackageItems(float maxWeightPackage, List<PackageItem> packageItems) {
+        ItemBatch itemBatch = new ItemBatch();
+        double maxWeight    = Double.parseDouble(Float.toString(maxWeightPackage));
+
+        itemBatch.clear(maxWeightPackage, maxWeight, decimalsOf(maxWeight));
+
+        for (PackageItem packageItem : packageItems) {
+            itemBatch.addItem(packageItem.getId(), packageItem.getWeight(), decimalsOf(packageItem.getWeight()), packageItem.getPrice(), decimalsOf(packageItem.getPrice()));
+        }
+        itemBatch.scaleToFixedPoint();
+
+        return itemBatch;
+    }
+
+    /**
+     * removes all items, so the batch can be filled with the next line
+     *
+     * @param maxWeightPackage the max weight like it is validated
+     * @param exactMaxWeightPackage the max weight as double for the fixed-point value
+     * @param maxWeightDecimals the amount of decimals the max weight was written with
+     */
+    public void clear(float maxWeightPackage, double exactMaxWeightPackage, int maxWeightDecimals) {
+        int decimals = Math.min(maxWeightDecimals, MAX_SCALE);
+
+        clear(maxWeightPackage, Math.round(exactMaxWeightPackage * POWERS_OF_TEN[decimals]), decimals);
+    }
+
+    /**
+     * removes all items, so the batch can be filled with the next line
+     *
+     * @param maxWeightPackage the max weight as float for the object based api
+     * @param unscaledMaxWeightPackage the digits of the max weight, the max weight is unscaledMaxWeightPackage / 10^maxWeightDecimals
+     * @param maxWeightDecimals the amount of decimals, at most MAX_SCALE
+     */
+    public void clear(float maxWeightPackage, long unscaledMaxWeightPackage, int maxWeightDecimals) {
+        this.maxWeightPackage           = maxWeightPackage;
+        this.unscaledMaxWeightPackage   = unscaledMaxWeightPackage;
+        this.maxWeightDecimals          = maxWeightDecimals;
+        this.amountOfPackages           = NO_AMOUNT_OF_PACKAGES;
+        this.size               = 0;
+        this.weightScale        = 0;
+        this.priceScale         = 0;
+    }
+
+    /**
+     * adds an item at the end of the batch
+     *
+     * @param id
+     * @param weight
+     * @param weightDecimals the amount of decimals the weight was written with
+     * @param price
+     * @param priceDecimals the amount of decimals the price was written with
+     */
+    public void addItem(int id, double weight, int weightDecimals, double price, int priceDecimals) {
+        int roundedWeightDecimals   = Math.min(weightDecimals, MAX_SCALE);
+        int roundedPriceDecimals    = Math.min(priceDecimals, MAX_SCALE);
+
+        addItem(id, weight, Math.round(weight * POWERS_OF_TEN[roundedWeightDecimals]), roundedWeightDecimals,
+                price, Math.round(price * POWERS_OF_TEN[roundedPriceDecimals]), roundedPriceDecimals);
+    }
+
+    /**
+     * adds an item with the digits of the weight and the price at the end of the batch
+     *
+     * @param id
+     * @param weight the weight for the messages and the object based api
+     * @param unscaledWeight the digits of the weight, the weight is unscaledWeight / 10^weightDecimals
+     * @param weightDecimals the amount of decimals, at most MAX_SCALE
+     * @param price the price for the messages and the object based api
+     * @param unscaledPrice the digits of the price, the price is unscaledPrice / 10^priceDecimals
+     * @param priceDecimals the amount of decimals, at most MAX_SCALE
+     */
+    public void addItem(int id, double weight, long unscaledWeight, int weightDecimals, double price, long unscaledPrice, int priceDecimals) {
+        if (size == ids.length) {
+            ids                 = Arrays.copyOf(ids, size * 2);
+            weights             = Arrays.copyOf(weights, size * 2);
+            prices              = Arrays.copyOf(prices, size * 2);
+            decimalsOfWeights   = Arrays.copyOf(decimalsOfWeights, size * 2);
+            decimalsOfPrices    = Arrays.copyOf(decimalsOfPrices, size * 2);
+            fixedWeights        = Arrays.copyOf(fixedWeights, size * 2);
+            fixedPrices         = Arrays.copyOf(fixedPrices, size * 2);
+        }
+        ids[size]       = id;
+        weights[size]   = weight;
+        prices[size]    = price;
+        weightScale     = Math.max(weightScale, weightDecimals);
+        priceScale      = Math.max(priceScale, priceDecimals);
+
+        // the digits are kept until the scale of the line is known
+        fixedWeights[size]      = unscaledWeight;
+        fixedPrices[size]       = unscaledPrice;
+        decimalsOfWeights[size] = weightDecimals;
+        decimalsOfPrices[size]  = priceDecimals;
+        size++;
+    }
+
+    /**
+     * removes all items and sets the fixed-point values directly, for lines that are already stored as fixed-point values
+     * the items are added with addFixedPointItem, scaleToFixedPoint must not be called for these lines
+     *
+     * @param fixedMaxWeightPackage the max weight scaled by 10^weightScale
+     * @param weightScale
+     * @param priceScale
+     */
+    public void clearFixedPoint(long fixedMaxWeightPackage, int weightScale, int priceScale) {
+        double maxWeightPackage = fixedMaxWeightPackage / POWERS_OF_TEN[weightScale];
+
+        clear((float) maxWeightPackage, fixedMaxWeightPackage, weightScale);
+
+        this.weightScale            = weightScale;
+        this.priceScale             = priceScale;
+        this.fixedMaxWeightPackage  = fixedMaxWeightPackage;
+    }
+
+    /**
+     * adds an item with the fixed-point values in the scales of clearFixedPoint at the end of the batch
+     *
+     * @param id
+     * @param fixedWeight
+     * @param fixedPrice
+     */
+    public void addFixedPointItem(int id, long fixedWeight, long fixedPrice) {
+        addItem(id, fixedWeight / POWERS_OF_TEN[weightScale], fixedWeight, weightScale, fixedPrice / POWERS_OF_TEN[priceScale], fixedPrice, priceScale);
+    }
+
+    /**
+     * calculates the fixed-point values, this must be called after the last item was added
+     * the digits of every value are multiplied by the power of ten up to the scale of the line, so no rounding happens
+     */
+    public void scaleToFixedPoint() {
+        weightScale = Math.max(weightScale, maxWeightDecimals);
+
+        fixedMaxWeightPackage   = rescale(unscaledMaxWeightPackage, maxWeightDecimals, weightScale);
+        maxWeightDecimals       = weightScale;
+
+        for (int i = 0; i < size; i++) {
+            fixedWeights[i]         = rescale(fixedWeights[i], decimalsOfWeights[i], weightScale);
+            fixedPrices[i]          = rescale(fixedPrices[i], decimalsOfPrices[i], priceScale);
+            decimalsOfWeights[i]    = weightScale;
+            decimalsOfPrices[i]     = priceScale;
+        }
+    }
+
+    public float getMaxWeightPackage() {
+        return maxWeightPackage;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getAmountOfPackages() {
+        return amountOfPackages;
+    }
+
+    public boolean hasAmountOfPackages() {
+        return amountOfPackages != NO_AMOUNT_OF_PACKAGES;
+    }
+
+    /**
+     * the amount of packages that are filled from the items of this line, NO_AMOUNT_OF_PACKAGES uses the amount of the configuration
+     * the amount is checked by the Validator, so a line can ask for 0 packages
+     *
+     * @param amountOfPackages
+     */
+    public void setAmountOfPackages(int amountOfPackages) {
+        this.amountOfPackages = amountOfPackages;
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public double getWeight(int index) {
+        return weights[index];
+    }
+
+    public double getPrice(int index) {
+        return prices[index];
+    }
+
+    public int getWeightScale() {
+        return weightScale;
+    }
+
+    public int getPriceScale() {
+        return priceScale;
+    }
+
+    public long getFixedMaxWeightPackage() {
+        return fixedMaxWeightPackage;
+    }
+
+    public long getFixedWeight(int index) {
+        return fixedWeights[index];
+    }
+
+    public long getFixedPrice(int index) {
+        return fixedPrices[index];
+    }
+
+    /**
+     * creates a PackageItem of the item at the index, for messages and the object based api
+     *
+     * @param index
+     * @return
+     */
+    public PackageItem getPackageItem(int index) {
+        return new PackageItem(ids[index], weights[index], prices[index]);
+    }
+
+    /**
+     * multiplies the digits with 10^(scale - decimals), a value that doesn't fit into a long is the biggest long
+     *
+     * @param unscaled
+     * @param decimals
+     * @param scale at least decimals
+     * @return
+     */
+    private static long rescale(long unscaled, int decimals, int scale) {
+        try {
+            return Math.multiplyExact(unscaled, LONG_POWERS_OF_TEN[scale - decimals]);
+        } catch (ArithmeticException e) {
+            return unscaled < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * the amount of decimals of the shortest representation of the value, for example 53.38 has 2 decimals
+     *
+     * @param value
+     * @return
+     */
+    private static int decimalsOf(double value) {
+        return Math.max(BigDecimal.valueOf(value).stripTrailingZeros().scale(), 0);
+    }
+}
@@ -1,10 +1,12 @@
 package de.fritze.marcus.model;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import de.fritze.marcus.parser.LineParser;
 
 public class PackageItem {
 
+    /* the parser keeps its arrays between the calls, so every thread needs its own */
+    private static final ThreadLocal<LineParser> LINE_PARSER = ThreadLocal.withInitial(LineParser::new);
+
     private int id          = 0;
     private double weight   = 0;
     private double price    = 0;
@@ -35,23 +37,18 @@ public class PackageItem {
     }
 
     /**
-     * here we create a PackageItem from a string by the defined pattern
+     * here we create a PackageItem from a string in the format (1,53.38,€45)
+     * the parser of the thread is reused, the PackageItem is a copy of the parsed item
      *
      * @param string
      * @return
      */
     public static PackageItem createFromString(String string) {
 
-        String itemPattern = "\\((\\d+),([0-9]+([\\.][0-9]+)?),€([0-9]+([\\.][0-9]+)?)\\)";
-
-        Matcher matcher = Pattern.compile(itemPattern).matcher(string);
+        LineParser lineParser = LINE_PARSER.get();
 
-        if (matcher.find()) {
-            return new PackageItem(
-                    Integer.parseInt(matcher.group(1)),
-                    Double.parseDouble(matcher.group(2)),
-                    Double.parseDouble(matcher.group(4))
-            );
+        if (lineParser.parseItem(string)) {
+            return lineParser.getItemBatch().getPackageItem(0);
         }
         else {
             return null;
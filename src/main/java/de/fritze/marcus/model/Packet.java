@@ -1,16 +1,23 @@
 package de.fritze.marcus.model;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
 
+/**
+ * This is a Packet of PackageItem's for the object based api
+ *
+ * the totals are summed as decimals with the shortest representation of every weight and price,
+ * so 0.1 + 0.2 is exactly 0.3 like the fixed-point sums of the BitmaskPacket
+ */
 public class Packet {
 
     private List<PackageItem> packageItems = new ArrayList<>();
 
-    private double totalWeight = 0;
-    private double totalPrice = 0;
+    private BigDecimal totalWeight  = BigDecimal.ZERO;
+    private BigDecimal totalPrice   = BigDecimal.ZERO;
 
     public Packet() {
 
@@ -24,8 +31,8 @@ public class Packet {
      */
     public Packet(List<PackageItem> packageItems) {
         this.packageItems   = packageItems;
-        this.totalWeight    = packageItems.stream().map(PackageItem::getWeight).mapToDouble(Double::doubleValue).sum();
-        this.totalPrice     = packageItems.stream().map(PackageItem::getPrice).mapToDouble(Double::doubleValue).sum();
+        this.totalWeight    = packageItems.stream().map(packageItem -> BigDecimal.valueOf(packageItem.getWeight())).reduce(BigDecimal.ZERO, BigDecimal::add);
+        this.totalPrice     = packageItems.stream().map(packageItem -> BigDecimal.valueOf(packageItem.getPrice())).reduce(BigDecimal.ZERO, BigDecimal::add);
     }
 
     public List<PackageItem> getPackageItems() {
@@ -33,10 +40,24 @@ public class Packet {
     }
 
     public double getTotalWeight() {
-        return totalWeight;
+        return totalWeight.doubleValue();
     }
 
     public double getTotalPrice() {
+        return totalPrice.doubleValue();
+    }
+
+    /**
+     * @return the exact sum of the weights
+     */
+    public BigDecimal getExactTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * @return the exact sum of the prices
+     */
+    public BigDecimal getExactTotalPrice() {
         return totalPrice;
     }
 
@@ -48,8 +69,8 @@ public class Packet {
      */
     public void addPackageItem(PackageItem packageItem) {
         packageItems.add(packageItem);
-        totalWeight += packageItem.getWeight();
-        totalPrice  += packageItem.getPrice();
+        totalWeight = totalWeight.add(BigDecimal.valueOf(packageItem.getWeight()));
+        totalPrice  = totalPrice.add(BigDecimal.valueOf(packageItem.getPrice()));
     }
 
     /**
@@ -59,9 +80,10 @@ public class Packet {
      * @param packageItem
      */
     public void removePackage(PackageItem packageItem) {
-        packageItems.remove(packageItem);
-        totalWeight += packageItem.getWeight();
-        totalPrice  += packageItem.getPrice();
+        if (packageItems.remove(packageItem)) {
+            totalWeight = totalWeight.subtract(BigDecimal.valueOf(packageItem.getWeight()));
+            totalPrice  = totalPrice.subtract(BigDecimal.valueOf(packageItem.getPrice()));
+        }
     }
 
     /* Comparator for sorting the list by price descending, weight ascending, amount of items in packet descending */
@@ -70,10 +92,10 @@ public class Packet {
         public int compare(Packet packet1, Packet packet2) {
 
             // sort descending order of total price of the packet
-            int comparisonPrice         = Double.compare(packet2.getTotalPrice(),packet1.getTotalPrice());
+            int comparisonPrice         = packet2.totalPrice.compareTo(packet1.totalPrice);
 
             // if price is the same sort ascending order of total weight of the packet
-            int comparisonWeight        = Double.compare(packet1.getTotalWeight(),packet2.getTotalWeight());
+            int comparisonWeight        = packet1.totalWeight.compareTo(packet2.totalWeight);
 
             // if price and weight is the same sort descending order of amount of items in packet
             int comparisonAmountItems   = Integer.compare(packet2.packageItems.size(), packet1.packageItems.size());
@@ -90,10 +112,19 @@ public class Packet {
         }
     };
 
+    /**
+     * this functions returns the ids of used PackageItem's in a Packet separated by commas
+     *
+     * @return
+     */
+    public String getPackageItemIdsOfPackage() {
+        return this.getPackageItems().stream().map(packageItem -> String.valueOf(packageItem.getId())).collect(Collectors.joining(","));
+    }
+
     /**
      * this functions prints the output of used PackageItem's in a Packet
      */
     public void printPackageItemIdsOfPackage() {
-        System.out.println(this.getPackageItems().stream().map(packageItem -> String.valueOf(packageItem.getId())).collect(Collectors.joining(",")));
+        System.out.println(getPackageItemIdsOfPackage());
     }
 }
@@ -0,0 +1,177 @@
+package de.fritze.marcus.output;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * This collects the output in a large char buffer and writes it in big chunks
+ *
+ * System.out.println locks and flushes the stream for every line, this sink writes the buffer only if it is full
+ * and flushes the target at the end or after every flushInterval lines (0 flushes only at the end)
+ * the target is not closed, so System.out can be used as target
+ */
+public class BufferedResultSink implements ResultSink, Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /* the digits of the smallest int */
+    private static final int MAX_INT_LENGTH = 11;
+
+    private final Appendable target;
+    private final char[] buffer;
+    private final int flushInterval;
+
+    private int position;
+    private int linesSinceFlush;
+
+    /**
+     * @param target a Writer, a PrintStream or any other Appendable
+     * @param bufferSize the size of the buffer in chars
+     * @param flushInterval the amount of lines after that the target is flushed, 0 flushes only at the end
+     */
+    public BufferedResultSink(Appendable target, int bufferSize, int flushInterval) {
+        if (bufferSize < MAX_INT_LENGTH) {
+            throw new IllegalArgumentException("The buffer size must be at least " + MAX_INT_LENGTH);
+        }
+        if (flushInterval < 0) {
+            throw new IllegalArgumentException("The flush interval must not be negative");
+        }
+        this.target         = target;
+        this.buffer         = new char[bufferSize];
+        this.flushInterval  = flushInterval;
+    }
+
+    public BufferedResultSink(Appendable target, int flushInterval) {
+        this(target, DEFAULT_BUFFER_SIZE, flushInterval);
+    }
+
+    @Override
+    public void append(char character) throws IOException {
+        if (position == buffer.length) {
+            writeBuffer();
+        }
+        buffer[position++] = character;
+    }
+
+    @Override
+    public void append(CharSequence text) throws IOException {
+        int length = text.length();
+
+        for (int start = 0; start < length; ) {
+            if (position == buffer.length) {
+                writeBuffer();
+            }
+            int end = Math.min(length, start + buffer.length - position);
+
+            if (text instanceof String) {
+                ((String) text).getChars(start, end, buffer, position);
+            } else if (text instanceof StringBuilder) {
+                ((StringBuilder) text).getChars(start, end, buffer, position);
+            } else {
+                for (int i = start; i < end; i++) {
+                    buffer[position + i - start] = text.charAt(i);
+                }
+            }
+            position    += end - start;
+            start       = end;
+        }
+    }
+
+    @Override
+    public void appendInt(int value) throws IOException {
+        if (value == Integer.MIN_VALUE) {
+            append(Integer.toString(value));
+            return;
+        }
+        if (buffer.length - position < MAX_INT_LENGTH) {
+            writeBuffer();
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+
+        // the digits are written from the back
+        int end = position + digits(value);
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    @Override
+    public void endLine() throws IOException {
+        append(LINE_SEPARATOR);
+        linesWritten(1);
+    }
+
+    @Override
+    public void appendLines(CharSequence lines, int amountOfLines) throws IOException {
+        append(lines);
+        linesWritten(amountOfLines);
+    }
+
+    /**
+     * writes the buffer into the target and flushes the target
+     *
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        writeBuffer();
+        linesSinceFlush = 0;
+
+        if (target instanceof Flushable) {
+            ((Flushable) target).flush();
+        }
+        if (target instanceof PrintStream && ((PrintStream) target).checkError()) {
+            // a PrintStream doesn't throw exceptions
+            throw new IOException("Unable to write the output!");
+        }
+    }
+
+    /**
+     * flushes the output, the target is not closed
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    private void linesWritten(int amountOfLines) throws IOException {
+        linesSinceFlush += amountOfLines;
+
+        if (flushInterval > 0 && linesSinceFlush >= flushInterval) {
+            flush();
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        if (target instanceof Writer) {
+            ((Writer) target).write(buffer, 0, position);
+        } else {
+            target.append(CharBuffer.wrap(buffer, 0, position));
+        }
+        position = 0;
+    }
+
+    private static int digits(int value) {
+        int digits = 1;
+
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+}
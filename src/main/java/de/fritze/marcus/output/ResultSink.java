@@ -0,0 +1,70 @@
+package de.fritze.marcus.output;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * A ResultSink takes the output lines of the packager
+ *
+ * the output of a line is appended piece by piece and finished with endLine, so the ids of a packet
+ * can be written without building a String for every line
+ */
+public interface ResultSink extends Flushable {
+
+    /* the same line separator like System.out.println */
+    String LINE_SEPARATOR = System.lineSeparator();
+
+    void append(char character) throws IOException;
+
+    void append(CharSequence text) throws IOException;
+
+    /**
+     * appends the decimal digits of the value
+     *
+     * @param value
+     * @throws IOException
+     */
+    void appendInt(int value) throws IOException;
+
+    /**
+     * finishes the current line
+     *
+     * @throws IOException
+     */
+    void endLine() throws IOException;
+
+    /**
+     * appends text that already holds amountOfLines finished lines, for example the output of a block of lines
+     *
+     * @param lines
+     * @param amountOfLines
+     * @throws IOException
+     */
+    default void appendLines(CharSequence lines, int amountOfLines) throws IOException {
+        append(lines);
+    }
+
+    /**
+     * appends the ids of the items in the packet separated by commas
+     *
+     * @param packet
+     * @throws IOException
+     */
+    default void appendIds(BitmaskPacket packet) throws IOException {
+        ItemBatch itemBatch = packet.getItemBatch();
+        boolean first       = true;
+
+        for (int i = 0; i < itemBatch.size(); i++) {
+            if (packet.containsItem(i)) {
+                if (!first) {
+                    append(',');
+                }
+                appendInt(itemBatch.getId(i));
+                first = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package de.fritze.marcus.output;
+
+/**
+ * This collects the output in memory, for example the output of one line or of a block of lines of a worker
+ */
+public class StringResultSink implements ResultSink {
+
+    private final StringBuilder output = new StringBuilder();
+    private int amountOfLines;
+
+    @Override
+    public void append(char character) {
+        output.append(character);
+    }
+
+    @Override
+    public void append(CharSequence text) {
+        output.append(text);
+    }
+
+    @Override
+    public void appendInt(int value) {
+        output.append(value);
+    }
+
+    @Override
+    public void endLine() {
+        output.append(LINE_SEPARATOR);
+        amountOfLines++;
+    }
+
+    @Override
+    public void appendLines(CharSequence lines, int amountOfLines) {
+        output.append(lines);
+        this.amountOfLines += amountOfLines;
+    }
+
+    @Override
+    public void flush() {
+        // everything is already in memory
+    }
+
+    /**
+     * @return the output, the characters are not copied
+     */
+    public CharSequence getOutput() {
+        return output;
+    }
+
+    /**
+     * @return the amount of finished lines
+     */
+    public int getAmountOfLines() {
+        return amountOfLines;
+    }
+
+    public void clear() {
+        output.setLength(0);
+        amountOfLines = 0;
+    }
+
+    @Override
+    public String toString() {
+        return output.toString();
+    }
+}
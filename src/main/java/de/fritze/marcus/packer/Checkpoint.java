@@ -0,0 +1,95 @@
+package de.fritze.marcus.packer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * The state of a run with an output file: the last line that is completely in the output file,
+ * the offset of the next line in the input file and the size of the output file with this line
+ *
+ * the checkpoint is stored next to the output file, a run with resume truncates the output file to the size
+ * of the checkpoint and goes on at the offset in the input file
+ */
+public class Checkpoint {
+
+    private static final String FILE_SUFFIX = ".checkpoint";
+
+    private final int lineNumber;
+    private final long inputOffset;
+    private final long outputOffset;
+
+    public Checkpoint(int lineNumber, long inputOffset, long outputOffset) {
+        this.lineNumber     = lineNumber;
+        this.inputOffset    = inputOffset;
+        this.outputOffset   = outputOffset;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    public long getInputOffset() {
+        return inputOffset;
+    }
+
+    public long getOutputOffset() {
+        return outputOffset;
+    }
+
+    /**
+     * @param outputFile
+     * @return the checkpoint file next to the output file
+     */
+    public static Path fileOf(Path outputFile) {
+        return outputFile.resolveSibling(outputFile.getFileName() + FILE_SUFFIX);
+    }
+
+    /**
+     * @param checkpointFile
+     * @return the checkpoint or null if the file doesn't exist
+     * @throws IOException if the file is no valid checkpoint
+     */
+    public static Checkpoint read(Path checkpointFile) throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return null;
+        }
+        Properties properties = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+
+        try {
+            return new Checkpoint(
+                    Integer.parseInt(properties.getProperty("lineNumber")),
+                    Long.parseLong(properties.getProperty("inputOffset")),
+                    Long.parseLong(properties.getProperty("outputOffset"))
+            );
+        } catch (NumberFormatException e) {
+            throw new IOException("The file " + checkpointFile + " is not a valid checkpoint!");
+        }
+    }
+
+    /**
+     * writes the checkpoint into a temporary file and moves it over the old checkpoint, so a crash never leaves half a checkpoint
+     *
+     * @param checkpointFile
+     * @throws IOException
+     */
+    public void write(Path checkpointFile) throws IOException {
+        Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+
+        try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            writer.write("lineNumber=" + lineNumber + "\n");
+            writer.write("inputOffset=" + inputOffset + "\n");
+            writer.write("outputOffset=" + outputOffset + "\n");
+        }
+        Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
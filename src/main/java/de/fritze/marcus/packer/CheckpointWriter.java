@@ -0,0 +1,72 @@
+package de.fritze.marcus.packer;
+
+import de.fritze.marcus.output.ResultSink;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * This writes a checkpoint after every checkpointInterval lines that are written into the output file
+ *
+ * before the checkpoint is written the output is flushed into the file, so the output file is never behind its checkpoint
+ */
+class CheckpointWriter {
+
+    private final Path checkpointFile;
+    private final OutputFile outputFile;
+    private final ResultSink resultSink;
+    private final int checkpointInterval;
+
+    private int lastLineNumber;
+    private long nextLineOffset;
+    private int checkpointLineNumber;
+
+    /**
+     * @param checkpointFile
+     * @param outputFile
+     * @param resultSink the sink that writes into the output file
+     * @param checkpointInterval
+     * @param checkpoint the checkpoint the run goes on from or null
+     */
+    CheckpointWriter(Path checkpointFile, OutputFile outputFile, ResultSink resultSink, int checkpointInterval, Checkpoint checkpoint) {
+        this.checkpointFile         = checkpointFile;
+        this.outputFile             = outputFile;
+        this.resultSink             = resultSink;
+        this.checkpointInterval     = checkpointInterval;
+        this.lastLineNumber         = checkpoint != null ? checkpoint.getLineNumber() : 0;
+        this.nextLineOffset         = checkpoint != null ? checkpoint.getInputOffset() : 0;
+        this.checkpointLineNumber   = lastLineNumber;
+    }
+
+    /**
+     * is called after lines are written into the sink
+     *
+     * @param lastLineNumber the number of the last line that is written
+     * @param nextLineOffset the offset of the line after it in the input file
+     * @throws IOException
+     */
+    void linesWritten(int lastLineNumber, long nextLineOffset) throws IOException {
+        this.lastLineNumber = lastLineNumber;
+        this.nextLineOffset = nextLineOffset;
+
+        if (lastLineNumber - checkpointLineNumber >= checkpointInterval) {
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * writes the checkpoint of the last line after all lines are written
+     *
+     * @throws IOException
+     */
+    void finish() throws IOException {
+        writeCheckpoint();
+    }
+
+    private void writeCheckpoint() throws IOException {
+        resultSink.flush();
+
+        new Checkpoint(lastLineNumber, nextLineOffset, outputFile.getSize()).write(checkpointFile);
+        checkpointLineNumber = lastLineNumber;
+    }
+}
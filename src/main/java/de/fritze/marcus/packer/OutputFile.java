@@ -0,0 +1,58 @@
+package de.fritze.marcus.packer;
+
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The file the output lines are written into instead of System.out, with the same charset as System.out
+ */
+class OutputFile implements Closeable {
+
+    private final FileOutputStream outputStream;
+    private final Writer writer;
+
+    /**
+     * opens the output file, without a checkpoint the file is overwritten, with a checkpoint the output after it is cut off
+     * and the new lines are appended
+     *
+     * @param path
+     * @param checkpoint
+     * @throws IOException
+     */
+    OutputFile(Path path, Checkpoint checkpoint) throws IOException {
+        if (checkpoint != null) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                if (channel.size() < checkpoint.getOutputOffset()) {
+                    throw new IOException("The output file " + path + " is shorter than its checkpoint!");
+                }
+                channel.truncate(checkpoint.getOutputOffset());
+            }
+        }
+        this.outputStream   = new FileOutputStream(path.toFile(), checkpoint != null);
+        this.writer         = new OutputStreamWriter(outputStream, Charset.defaultCharset());
+    }
+
+    Writer getWriter() {
+        return writer;
+    }
+
+    /**
+     * @return the size of the output file with everything flushed from the writer
+     * @throws IOException
+     */
+    long getSize() throws IOException {
+        return outputStream.getChannel().position();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -1,29 +1,59 @@
 package de.fritze.marcus.packer;
 
+import de.fritze.marcus.binary.BinaryRecordReader;
+import de.fritze.marcus.cache.SolutionCache;
 import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
 import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.metrics.PackagerMetrics;
 import de.fritze.marcus.model.PackageItem;
-import de.fritze.marcus.model.Packet;
+import de.fritze.marcus.output.BufferedResultSink;
+import de.fritze.marcus.output.ResultSink;
+import de.fritze.marcus.output.StringResultSink;
+import de.fritze.marcus.parser.LineParser;
+import de.fritze.marcus.parser.MappedLineReader;
+import de.fritze.marcus.solver.KnapsackSolver;
+import de.fritze.marcus.solver.MultipleKnapsackSolver;
+import de.fritze.marcus.solver.SolverStatistics;
 import de.fritze.marcus.validation.Validator;
-import org.paukov.combinatorics3.Generator;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 public class Packager {
 
+    /* the parser keeps its arrays between the lines, so every thread needs its own */
+    private static final ThreadLocal<LineParser> LINE_PARSER = ThreadLocal.withInitial(LineParser::new);
+
+    /* separates the packages of a line if alternatives are requested */
+    private static final String ALTERNATIVES_SEPARATOR = " | ";
+
+    /* separates the packages of a line that are filled together */
+    private static final String PACKAGES_SEPARATOR = " ; ";
+
+    /**
+     * writes the output of a line into a sink
+     */
+    @FunctionalInterface
+    private interface OutputWriter {
+
+        void writeTo(ResultSink resultSink) throws AppException, IOException;
+    }
+
     /**
      * Entry-point from the packager with the passed filename
      *
@@ -31,6 +61,17 @@ public class Packager {
      * @throws AppException
      */
     public static void startPackaging(String filePath) throws AppException {
+        startPackaging(filePath, new PackagerConfiguration());
+    }
+
+    /**
+     * Entry-point from the packager with the passed filename and the configuration for this run
+     *
+     * @param filePath
+     * @param configuration
+     * @throws AppException
+     */
+    public static void startPackaging(String filePath, PackagerConfiguration configuration) throws AppException {
 
         // check if the passed argument is a valid file
         File inputFile = new File(filePath);
@@ -48,9 +89,112 @@ public class Packager {
             throw new AppException(GlobalErrorCodes.UNABLE_TO_READ_FILE, "Unable to read file, please check permissions!");
         }
 
+        if ((configuration.isCheckpointing() || configuration.isResume()) && (configuration.getOutputFile() == null || configuration.getResultSink() != null)) {
+            // the checkpoint belongs to the output file
+            throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The checkpoints need an output file!");
+        }
+        if ((configuration.isCheckpointing() || configuration.isResume()) && configuration.isBinaryInput()) {
+            // the checkpoint has the offset of a text line
+            throw new AppException(GlobalErrorCodes.INVALID_ARGUMENT, "The checkpoints need a text file!");
+        }
+
+        Checkpoint checkpoint               = null;
+        OutputFile outputFile               = null;
+        CheckpointWriter checkpointWriter   = null;
+
+        if (configuration.getResultSink() == null && configuration.getOutputFile() != null) {
+            Path checkpointFile = Checkpoint.fileOf(configuration.getOutputFile());
+
+            try {
+                if (configuration.isResume()) {
+                    checkpoint = Checkpoint.read(checkpointFile);
+                }
+                outputFile = new OutputFile(configuration.getOutputFile(), checkpoint);
+            } catch (IOException ioException) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage());
+            }
+        }
+
+        // the output lines are collected in a large buffer instead of printing every line on its own
+        ResultSink resultSink = configuration.getResultSink() != null
+                ? configuration.getResultSink()
+                : new BufferedResultSink(outputFile != null ? outputFile.getWriter() : System.out, configuration.getFlushInterval());
+
+        if (configuration.isCheckpointing()) {
+            checkpointWriter = new CheckpointWriter(Checkpoint.fileOf(configuration.getOutputFile()), outputFile, resultSink, configuration.getCheckpointInterval(), checkpoint);
+        }
+
+        SolutionCache solutionCache = configuration.getSolutionCache();
+        Path solutionCacheFile      = configuration.getSolutionCacheFile();
+
+        if (solutionCache != null && solutionCacheFile != null) {
+            try {
+                // the lines of the last runs
+                solutionCache.load(solutionCacheFile);
+            } catch (IOException ioException) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_READING_FILE, ioException.getMessage());
+            }
+        }
+
+        try {
+            if (configuration.isBinaryInput()) {
+                // the lines are already parsed
+                startPackagingBinary(filePath, configuration, resultSink);
+            } else if (configuration.isMemoryMappedInput() || configuration.isSplitInput() || checkpointWriter != null || checkpoint != null) {
+                // we read the raw bytes of the file without decoding them into Strings, so we know the offset of every line
+                startPackagingMapped(filePath, configuration, resultSink, checkpoint, checkpointWriter);
+            } else {
+                startPackagingLines(filePath, configuration, resultSink);
+            }
+        } finally {
+            // the output is written at the end, also if an error occurs, so the user sees the lines before the error
+            try {
+                resultSink.flush();
+
+                if (outputFile != null) {
+                    outputFile.close();
+                }
+            } catch (IOException ioException) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage());
+            }
+        }
+
+        if (solutionCache != null && solutionCacheFile != null) {
+            try {
+                solutionCache.save(solutionCacheFile);
+            } catch (IOException ioException) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage());
+            }
+        }
+
+        if (configuration.getMetrics() != null && configuration.getMetricsFile() != null) {
+            try {
+                Files.write(configuration.getMetricsFile(), configuration.getMetrics().getJson().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException ioException) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage());
+            }
+        }
+    }
+
+    /**
+     * packages the file line by line, the lines are decoded with the default charset
+     *
+     * @param filePath
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     */
+    private static void startPackagingLines(String filePath, PackagerConfiguration configuration, ResultSink resultSink) throws AppException {
+
         // we read the file
         try (Stream<String> lines = Files.lines(Paths.get(filePath), Charset.defaultCharset())) {
 
+            if (configuration.isParallel()) {
+                // the lines are packaged by the worker pool, the results are written in the order of the lines
+                ParallelPackager.startPackaging(lines, configuration, resultSink);
+                return;
+            }
+
             // we use this integer for counting the lines, for better output to the user if an exception occurs
             AtomicInteger lineCounter = new AtomicInteger();
 
@@ -59,8 +203,8 @@ public class Packager {
                     // ... we start packaging the line
                     // and we use the throwingConsumerWrapper around for throwing exceptions from this lambda if an exception occurs
                     AppException.throwingConsumerWrapper(item -> {
-                        startPackagingLines(lineCounter.incrementAndGet(), item);
-                    })
+                        startPackagingLines(lineCounter.incrementAndGet(), item, configuration, resultSink);
+                    }, resultSink)
             );
         } catch (IOException ioException) {
             // something strange happens when we try to read the file
@@ -68,6 +212,103 @@ public class Packager {
         }
     }
 
+    /**
+     * packages the UTF-8 encoded file from a memory-mapped buffer, the lines are passed as byte slices to the parser
+     * with a checkpoint the file is read from the offset of the checkpoint, with a checkpoint writer the progress is written after the lines
+     *
+     * @param filePath
+     * @param configuration
+     * @param resultSink
+     * @param checkpoint the checkpoint to go on from or null
+     * @param checkpointWriter the writer of the checkpoints or null
+     * @throws AppException
+     */
+    private static void startPackagingMapped(String filePath, PackagerConfiguration configuration, ResultSink resultSink,
+                                             Checkpoint checkpoint, CheckpointWriter checkpointWriter) throws AppException {
+
+        long offset         = checkpoint != null ? checkpoint.getInputOffset() : 0;
+        int firstLineNumber = checkpoint != null ? checkpoint.getLineNumber() + 1 : 1;
+
+        if (configuration.isSplitInput() && configuration.isParallel()) {
+            try {
+                // every worker reads its own byte ranges of the file
+                ParallelPackager.startPackagingRanges(Paths.get(filePath), offset, firstLineNumber, configuration, resultSink, checkpointWriter);
+
+                if (checkpointWriter != null) {
+                    checkpointWriter.finish();
+                }
+            } catch (IOException ioException) {
+                throw new AppException(GlobalErrorCodes.ERROR_ON_READING_FILE, ioException.getMessage());
+            }
+            return;
+        }
+
+        try (MappedLineReader reader = new MappedLineReader(Paths.get(filePath), MappedLineReader.DEFAULT_WINDOW_SIZE, offset, firstLineNumber)) {
+
+            if (configuration.isParallel()) {
+                // the lines are packaged by the worker pool, the results are written in the order of the lines
+                ParallelPackager.startPackaging(reader, configuration, resultSink, checkpointWriter);
+            } else {
+                // we use the throwingConsumerWrapper around for exiting like in the other modes if an exception occurs
+                Consumer<MappedLineReader> linePackager = AppException.throwingConsumerWrapper(line -> {
+                    startPackagingLines(line.getLineNumber(), line.getBuffer(), line.getLineStart(), line.getLineEnd(), configuration, resultSink);
+
+                    if (checkpointWriter != null) {
+                        checkpointWriter.linesWritten(line.getLineNumber(), line.getNextLineOffset());
+                    }
+                }, resultSink);
+
+                while (reader.nextLine()) {
+                    linePackager.accept(reader);
+                }
+            }
+
+            if (checkpointWriter != null) {
+                // the last checkpoint is at the end of the file, so a resume of a finished run adds nothing
+                checkpointWriter.finish();
+            }
+        } catch (IOException ioException) {
+            // something strange happens when we try to read the file
+            throw new AppException(GlobalErrorCodes.ERROR_ON_READING_FILE, ioException.getMessage());
+        }
+    }
+
+    /**
+     * packages the binary records of the file, every record is one line, see BinaryRecordFormat
+     *
+     * @param filePath
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     */
+    private static void startPackagingBinary(String filePath, PackagerConfiguration configuration, ResultSink resultSink) throws AppException {
+
+        try (InputStream inputStream = Files.newInputStream(Paths.get(filePath));
+             BinaryRecordReader reader = new BinaryRecordReader(inputStream)) {
+
+            if (configuration.isParallel()) {
+                // the lines are packaged by the worker pool, the results are written in the order of the lines
+                ParallelPackager.startPackaging(reader, configuration, resultSink);
+                return;
+            }
+
+            // the batch is reused for every record like the batch of the parser
+            ItemBatch itemBatch = new ItemBatch();
+
+            // we use the throwingConsumerWrapper around for exiting like in the other modes if an exception occurs
+            Consumer<BinaryRecordReader> linePackager = AppException.throwingConsumerWrapper(record -> {
+                startPackagingLines(record.getLineNumber(), record.isEmptyLine() ? null : itemBatch, configuration, resultSink);
+            }, resultSink);
+
+            while (reader.nextRecord(itemBatch)) {
+                linePackager.accept(reader);
+            }
+        } catch (IOException ioException) {
+            // something strange happens when we try to read the file
+            throw new AppException(GlobalErrorCodes.ERROR_ON_READING_FILE, ioException.getMessage());
+        }
+    }
+
     /**
      * this function handles the line we read from the file and parses the string of the line - if it's valid - into PackageItem's
      *
@@ -76,44 +317,328 @@ public class Packager {
      * @throws AppException
      */
     public static void startPackagingLines(int lineNumber, String line) throws AppException {
+        startPackagingLines(lineNumber, line, new PackagerConfiguration());
+    }
 
-        if (line.isEmpty()) {
+    /**
+     * this function handles the line we read from the file with the given configuration
+     *
+     * @param lineNumber
+     * @param line
+     * @param configuration
+     * @throws AppException
+     */
+    public static void startPackagingLines(int lineNumber, String line, PackagerConfiguration configuration) throws AppException {
+        System.out.println(packageLine(lineNumber, line, configuration));
+    }
+
+    /**
+     * this function handles the UTF-8 encoded line between start and end of the buffer with the given configuration
+     *
+     * @param lineNumber
+     * @param buffer
+     * @param start
+     * @param end
+     * @param configuration
+     * @throws AppException
+     */
+    public static void startPackagingLines(int lineNumber, ByteBuffer buffer, int start, int end, PackagerConfiguration configuration) throws AppException {
+        System.out.println(packageLine(lineNumber, buffer, start, end, configuration));
+    }
+
+    /**
+     * this function handles the line we read from the file and writes the output for that line into the sink
+     *
+     * @param lineNumber
+     * @param line
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     */
+    public static void startPackagingLines(int lineNumber, CharSequence line, PackagerConfiguration configuration, ResultSink resultSink) throws AppException {
+        writeLine(lineNumber, configuration, resultSink, output -> packageLine(lineNumber, line, configuration, output));
+    }
+
+    /**
+     * this function handles the UTF-8 encoded line between start and end of the buffer and writes the output for that line into the sink
+     *
+     * @param lineNumber
+     * @param buffer
+     * @param start
+     * @param end
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     */
+    public static void startPackagingLines(int lineNumber, ByteBuffer buffer, int start, int end, PackagerConfiguration configuration, ResultSink resultSink) throws AppException {
+        writeLine(lineNumber, configuration, resultSink, output -> packageLine(lineNumber, buffer, start, end, configuration, output));
+    }
+
+    /**
+     * this function handles the already parsed line and writes the output for that line into the sink
+     *
+     * @param lineNumber
+     * @param itemBatch the items of the line or null for an empty line
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     */
+    public static void startPackagingLines(int lineNumber, ItemBatch itemBatch, PackagerConfiguration configuration, ResultSink resultSink) throws AppException {
+        writeLine(lineNumber, configuration, resultSink, output -> packageLine(lineNumber, itemBatch, configuration, output));
+    }
+
+    /**
+     * writes the output of one line and finishes the line, in the fail-soft mode the error of the line is reported
+     *
+     * @param lineNumber
+     * @param configuration
+     * @param resultSink
+     * @param outputWriter
+     * @throws AppException
+     */
+    private static void writeLine(int lineNumber, PackagerConfiguration configuration, ResultSink resultSink, OutputWriter outputWriter) throws AppException {
+        try {
+            try {
+                outputWriter.writeTo(resultSink);
+            } catch (AppException e) {
+                if (configuration.getMetrics() != null) {
+                    configuration.getMetrics().recordError();
+                }
+                if (!reportLineError(lineNumber, e, configuration)) {
+                    throw e;
+                }
+                resultSink.append(ErrorReport.ERROR_MARKER);
+            }
+            resultSink.endLine();
+        } catch (IOException ioException) {
+            throw new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage());
+        }
+    }
+
+    /**
+     * adds the error of the line to the error report of the configuration
+     *
+     * @param lineNumber
+     * @param exception
+     * @param configuration
+     * @return true if the packager goes on with the next line, false if the error must stop the packager
+     * @throws IOException
+     */
+    static boolean reportLineError(int lineNumber, AppException exception, PackagerConfiguration configuration) throws IOException {
+        return configuration.getErrorReport() != null && configuration.getErrorReport().add(lineNumber, exception);
+    }
+
+    /**
+     * collects the output of one line in a String, for the functions that return the output
+     *
+     * @param outputWriter
+     * @return
+     * @throws AppException
+     */
+    private static String writeToString(OutputWriter outputWriter) throws AppException {
+        StringResultSink output = new StringResultSink();
+
+        try {
+            outputWriter.writeTo(output);
+        } catch (IOException ioException) {
+            // the output is only written into memory
+            throw new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage());
+        }
+        return output.toString();
+    }
+
+    /**
+     * this function parses the string of the line - if it's valid - into PackageItem's and returns the output for that line
+     *
+     * @param lineNumber
+     * @param line
+     * @param configuration
+     * @return
+     * @throws AppException
+     */
+    public static String packageLine(int lineNumber, CharSequence line, PackagerConfiguration configuration) throws AppException {
+        return writeToString(output -> packageLine(lineNumber, line, configuration, output));
+    }
+
+    /**
+     * this function parses the string of the line - if it's valid - into PackageItem's and writes the output for that line into the sink
+     *
+     * @param lineNumber
+     * @param line
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     * @throws IOException
+     */
+    public static void packageLine(int lineNumber, CharSequence line, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
+
+        PackagerMetrics metrics = configuration.getMetrics();
+
+        if (line.length() == 0) {
             // the line is empty, the output will be also empty
-            System.out.println("");
+            recordEmptyLine(metrics);
+            return;
+        }
+
+        // every thread has its own parser, so the arrays of the parser are reused for every line
+        LineParser lineParser   = LINE_PARSER.get();
+        long parseStart         = PackagerMetrics.startStage(metrics);
+        boolean parsed          = lineParser.parse(line);
+
+        PackagerMetrics.recordStage(metrics, PackagerMetrics.Stage.PARSE, parseStart);
+
+        packageParsedLine(lineNumber, parsed, lineParser, configuration, resultSink);
+    }
+
+    /**
+     * this function parses the UTF-8 encoded line between start and end of the buffer and returns the output for that line
+     *
+     * @param lineNumber
+     * @param buffer
+     * @param start
+     * @param end
+     * @param configuration
+     * @return
+     * @throws AppException
+     */
+    public static String packageLine(int lineNumber, ByteBuffer buffer, int start, int end, PackagerConfiguration configuration) throws AppException {
+        return writeToString(output -> packageLine(lineNumber, buffer, start, end, configuration, output));
+    }
+
+    /**
+     * this function parses the UTF-8 encoded line between start and end of the buffer and writes the output for that line into the sink
+     *
+     * @param lineNumber
+     * @param buffer
+     * @param start
+     * @param end
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     * @throws IOException
+     */
+    public static void packageLine(int lineNumber, ByteBuffer buffer, int start, int end, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
+
+        PackagerMetrics metrics = configuration.getMetrics();
+
+        if (start == end) {
+            // the line is empty, the output will be also empty
+            recordEmptyLine(metrics);
+            return;
+        }
+
+        // every thread has its own parser, so the arrays of the parser are reused for every line
+        LineParser lineParser   = LINE_PARSER.get();
+        long parseStart         = PackagerMetrics.startStage(metrics);
+        boolean parsed          = lineParser.parse(buffer, start, end);
+
+        PackagerMetrics.recordStage(metrics, PackagerMetrics.Stage.PARSE, parseStart);
+
+        packageParsedLine(lineNumber, parsed, lineParser, configuration, resultSink);
+    }
+
+    /**
+     * this function builds the package of the already parsed line and writes the output for that line into the sink
+     *
+     * @param lineNumber
+     * @param itemBatch the items of the line or null for an empty line
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     * @throws IOException
+     */
+    public static void packageLine(int lineNumber, ItemBatch itemBatch, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
+
+        if (itemBatch == null) {
+            // the line is empty, the output will be also empty
+            recordEmptyLine(configuration.getMetrics());
+            return;
+        }
+
+        if (configuration.getMetrics() != null) {
+            configuration.getMetrics().recordLine();
+        }
+        packageItemBatch(lineNumber, itemBatch, configuration, resultSink);
+    }
+
+    /**
+     * this function builds the package of the line the parser has parsed
+     *
+     * @param lineNumber
+     * @param parsed
+     * @param lineParser
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     * @throws IOException
+     */
+    private static void packageParsedLine(int lineNumber, boolean parsed, LineParser lineParser, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
+
+        /*
+            the parser checks if the line is in the defined format for example:
+            81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)
+         */
+
+        PackagerMetrics metrics = configuration.getMetrics();
+
+        if (metrics != null) {
+            metrics.recordLine();
+        }
+
+        if (parsed) {
+            // the line is in the defined format - build the package for that line from the parsed items
+            packageItemBatch(lineNumber, lineParser.getItemBatch(), configuration, resultSink);
         }
         else {
-            // the line is not empty
+            // the line doesn't match the defines pattern for a line
+
+            // we could analyze the error-position in that line...
+            throw new AppException(GlobalErrorCodes.LINE_NOT_IN_CORRECT_FORMAT, "The line " + lineNumber + " in the file is not in correct format!");
+        }
+    }
 
-            /*
-                we check if the line matches the defined pattern for example:
-                81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)
-             */
+    /**
+     * this function checks the items of the line and builds the package for that line
+     *
+     * @param lineNumber
+     * @param itemBatch
+     * @param configuration
+     * @param resultSink
+     * @throws AppException
+     * @throws IOException
+     */
+    private static void packageItemBatch(int lineNumber, ItemBatch itemBatch, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
 
-            String linePattern = "([0-9]+([\\.][0-9]+)?)\\s:((\\s\\(\\d+,[0-9]+([\\.][0-9]+)?,€[0-9]+([\\.][0-9]+)?\\))+)";
+        PackagerMetrics metrics = configuration.getMetrics();
 
-            Matcher matcher = Pattern.compile(linePattern).matcher(line);
+        if (metrics != null) {
+            metrics.recordItemsPerLine(itemBatch.size());
+        }
 
-            if (matcher.find()) {
-                // the line matches the defined pattern - work that line
+        // check constraints, also for the lines in the cache, so a line with errors is never taken from the cache
+        long validateStart = PackagerMetrics.startStage(metrics);
+        configuration.getValidator().validate(lineNumber, itemBatch);
+        PackagerMetrics.recordStage(metrics, PackagerMetrics.Stage.VALIDATE, validateStart);
 
-                // save first group into maxweightPackage
-                float maxWeightPackage = Float.parseFloat(matcher.group(1));
+        // the amount of packages of the line or of the configuration
+        int amountOfPackages = itemBatch.hasAmountOfPackages() ? itemBatch.getAmountOfPackages() : configuration.getAmountOfPackages();
 
-                // save items into String array
-                String[] packagesString = matcher.group(3).trim().split("\\s+");
+        configuration.getValidator().validateAmountOfPackages(lineNumber, amountOfPackages);
 
-                // create PackageItem's from this String array
-                List<PackageItem> packageItems = Arrays.stream(packagesString).map(PackageItem::createFromString).collect(Collectors.toList());
+        if (amountOfPackages == 1) {
+            // the validator may allow more items than the solver can solve
+            Validator.validateAmountOfItemsForSolver(lineNumber, itemBatch.size(), configuration.getKnapsackSolver().getMaxItems());
+        }
 
-                // build the package for that line
-                buildPackage(lineNumber, maxWeightPackage, packageItems);
-            }
-            else {
-                // the line doesn't match the defines pattern for a line
+        OutputWriter packageWriter = amountOfPackages > 1
+                ? output -> solvePackages(itemBatch, configuration.getMultipleKnapsackSolver(), amountOfPackages, output, metrics)
+                : output -> solvePackage(itemBatch, configuration.getKnapsackSolver(), configuration.getAlternatives(), output, metrics);
 
-                // we could analyze the error-position in that line...
-                throw new AppException(GlobalErrorCodes.LINE_NOT_IN_CORRECT_FORMAT, "The line " + lineNumber + " in the file is not in correct format!");
-            }
+        if (configuration.getSolutionCache() != null) {
+            // repeated lines are taken from the cache
+            packCachedPackage(SolutionCache.keyOf(itemBatch, configuration.getAlternatives(), amountOfPackages, configuration.getCacheSettings(amountOfPackages)), configuration, resultSink, packageWriter);
+        } else {
+            packageWriter.writeTo(resultSink);
         }
     }
 
@@ -126,40 +651,215 @@ public class Packager {
      * @throws AppException
      */
     public static void buildPackage(int lineNumber, float maxWeightPackage, List<PackageItem> packageItems) throws AppException {
+        buildPackage(lineNumber, maxWeightPackage, packageItems, new PackagerConfiguration().getKnapsackSolver());
+    }
+
+    /**
+     * Builds the package from the given PackageItem's and the valid max weight for a package with the given solver
+     *
+     * @param lineNumber
+     * @param maxWeightPackage
+     * @param packageItems
+     * @param knapsackSolver
+     * @throws AppException
+     */
+    public static void buildPackage(int lineNumber, float maxWeightPackage, List<PackageItem> packageItems, KnapsackSolver knapsackSolver) throws AppException {
+        System.out.println(packPackage(lineNumber, maxWeightPackage, packageItems, knapsackSolver));
+    }
 
-        // remove null objects if one exists in packages list, this shouldn't happen because of the regex test
+    /**
+     * Builds the package like buildPackage and returns the output for that line instead of printing it
+     *
+     * @param lineNumber
+     * @param maxWeightPackage
+     * @param packageItems
+     * @param knapsackSolver
+     * @return the item ids of the best package separated by commas or "-" if no package is valid
+     * @throws AppException
+     */
+    public static String packPackage(int lineNumber, float maxWeightPackage, List<PackageItem> packageItems, KnapsackSolver knapsackSolver) throws AppException {
+
+        // remove null objects if one exists in packages list, this shouldn't happen because of the parser
         packageItems.removeIf(Objects::isNull);
 
+        return packPackage(lineNumber, ItemBatch.fromPackageItems(maxWeightPackage, packageItems), knapsackSolver);
+    }
+
+    /**
+     * Builds the package from the items of the ItemBatch and returns the output for that line
+     *
+     * @param lineNumber
+     * @param itemBatch
+     * @param knapsackSolver
+     * @return the item ids of the best package separated by commas or "-" if no package is valid
+     * @throws AppException
+     */
+    public static String packPackage(int lineNumber, ItemBatch itemBatch, KnapsackSolver knapsackSolver) throws AppException {
+
+        return packPackage(lineNumber, itemBatch, knapsackSolver, 1);
+    }
+
+    /**
+     * Builds the package from the items of the ItemBatch and returns the output for that line with up to alternatives packages
+     *
+     * @param lineNumber
+     * @param itemBatch
+     * @param knapsackSolver
+     * @param alternatives
+     * @return the item ids of the best packages separated by commas, the packages separated by " | ", or "-" if no package is valid
+     * @throws AppException
+     */
+    public static String packPackage(int lineNumber, ItemBatch itemBatch, KnapsackSolver knapsackSolver, int alternatives) throws AppException {
+        return writeToString(output -> packPackage(lineNumber, itemBatch, knapsackSolver, alternatives, output));
+    }
+
+    /**
+     * Builds the package from the items of the ItemBatch and writes the ids of up to alternatives packages into the sink
+     *
+     * @param lineNumber
+     * @param itemBatch
+     * @param knapsackSolver
+     * @param alternatives
+     * @param resultSink
+     * @throws AppException
+     * @throws IOException
+     */
+    public static void packPackage(int lineNumber, ItemBatch itemBatch, KnapsackSolver knapsackSolver, int alternatives, ResultSink resultSink) throws AppException, IOException {
+
         // check constraints
-        Validator.checkConstraints(lineNumber, maxWeightPackage, packageItems);
-
-        // here are all possible packages stored for one line
-        List<Packet> allPackedPacketsOfLine = new ArrayList<>();
-
-        // we are getting all possible combinations (subset) from the PackageItems's ...
-        // https://github.com/dpaukov/combinatoricslib3#6-subsets
-        Generator.subset(packageItems).simple().stream().forEach(
-                // ... and we loop through this subset ...
-                packageItemSubSet -> {
-                    // ... and we check if the sum of this particular subset is less or equal than the max weight of the package for that line
-                    if (packageItemSubSet.size() > 0 && packageItemSubSet.stream().map(PackageItem::getWeight).mapToDouble(Double::doubleValue).sum() <= maxWeightPackage) {
-                        // if it's valid we add this to our possible packages for that line
-                        allPackedPacketsOfLine.add(new Packet(packageItemSubSet));
-                    }
-                }
-        );
+        Validator.checkConstraints(lineNumber, itemBatch);
+        Validator.validateAmountOfItemsForSolver(lineNumber, itemBatch.size(), knapsackSolver.getMaxItems());
 
-        // sort the valid packages of that line by price desc, weight asc, amount of items in package desc
-        // we use amount of items in package desc if the price and weight is the same so we have the package with the most items if price and weight is equal
-        allPackedPacketsOfLine.sort(Packet.PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDesc);
+        solvePackage(itemBatch, knapsackSolver, alternatives, resultSink, null);
+    }
 
-        if (allPackedPacketsOfLine.size() > 0) {
-            // the line has a valid package, print the first package
-            allPackedPacketsOfLine.get(0).printPackageItemIdsOfPackage();
+    /**
+     * Builds the package of the valid line, the output of a line that was already packaged is taken from the cache of the configuration
+     *
+     * @param key the key of the line
+     * @param configuration
+     * @param resultSink
+     * @param packageWriter solves the line if it's not in the cache
+     * @throws AppException
+     * @throws IOException
+     */
+    private static void packCachedPackage(SolutionCache.Key key, PackagerConfiguration configuration, ResultSink resultSink, OutputWriter packageWriter) throws AppException, IOException {
+
+        SolutionCache solutionCache = configuration.getSolutionCache();
+        String solution             = solutionCache.get(key);
+
+        if (solution == null) {
+            StringResultSink output = new StringResultSink();
+            packageWriter.writeTo(output);
+
+            solution = output.toString();
+            solutionCache.put(key, solution);
+        }
+        resultSink.append(solution);
+    }
+
+    /**
+     * solves the valid line and writes the ids of up to alternatives packages into the sink
+     *
+     * @param itemBatch
+     * @param knapsackSolver
+     * @param alternatives
+     * @param resultSink
+     * @param metrics the metrics or null if the metrics are turned off
+     * @throws IOException
+     */
+    private static void solvePackage(ItemBatch itemBatch, KnapsackSolver knapsackSolver, int alternatives, ResultSink resultSink, PackagerMetrics metrics) throws IOException {
+
+        if (metrics != null) {
+            // the counter and the gap of this thread start again for this line
+            SolverStatistics.takeVisitedSubsets();
+            SolverStatistics.takeOptimalityGap();
+        }
+        long solveStart = PackagerMetrics.startStage(metrics);
+
+        List<BitmaskPacket> bestPackets = null;
+        BitmaskPacket bestPacket        = null;
+
+        if (alternatives > 1) {
+            // the solver gives the best packages by price desc, weight asc, amount of items in package desc
+            bestPackets = knapsackSolver.solveAlternatives(itemBatch, alternatives);
+        } else {
+            // the solver chooses the best package by price desc, weight asc, amount of items in package desc
+            bestPacket = knapsackSolver.solve(itemBatch);
+        }
+
+        if (metrics != null) {
+            PackagerMetrics.recordStage(metrics, PackagerMetrics.Stage.SOLVE, solveStart);
+            metrics.recordVisitedSubsets(SolverStatistics.takeVisitedSubsets());
+            metrics.recordOptimalityGap(SolverStatistics.takeOptimalityGap());
+        }
+        long outputStart = PackagerMetrics.startStage(metrics);
+
+        if (bestPackets != null) {
+            if (bestPackets.isEmpty()) {
+                resultSink.append('-');
+            }
+            for (int i = 0; i < bestPackets.size(); i++) {
+                if (i > 0) {
+                    resultSink.append(ALTERNATIVES_SEPARATOR);
+                }
+                resultSink.appendIds(bestPackets.get(i));
+            }
+        } else if (bestPacket != null) {
+            // the line has a valid package
+            resultSink.appendIds(bestPacket);
         }
         else {
             // the line doesn't have a valid package
-            System.out.println("-");
+            resultSink.append('-');
+        }
+
+        PackagerMetrics.recordStage(metrics, PackagerMetrics.Stage.OUTPUT, outputStart);
+    }
+
+    /**
+     * fills the packages from the items of the valid line and writes the ids of every package into the sink, "-" for an empty package
+     *
+     * @param itemBatch
+     * @param multipleKnapsackSolver
+     * @param amountOfPackages
+     * @param resultSink
+     * @param metrics the metrics or null if the metrics are turned off
+     * @throws IOException
+     */
+    private static void solvePackages(ItemBatch itemBatch, MultipleKnapsackSolver multipleKnapsackSolver, int amountOfPackages, ResultSink resultSink, PackagerMetrics metrics) throws IOException {
+
+        if (metrics != null) {
+            // the counter of this thread starts at 0 for this line
+            SolverStatistics.takeVisitedSubsets();
+        }
+        long solveStart = PackagerMetrics.startStage(metrics);
+
+        List<BitmaskPacket> packets = multipleKnapsackSolver.solve(itemBatch, amountOfPackages);
+
+        if (metrics != null) {
+            PackagerMetrics.recordStage(metrics, PackagerMetrics.Stage.SOLVE, solveStart);
+            metrics.recordVisitedSubsets(SolverStatistics.takeVisitedSubsets());
+        }
+        long outputStart = PackagerMetrics.startStage(metrics);
+
+        for (int i = 0; i < packets.size(); i++) {
+            if (i > 0) {
+                resultSink.append(PACKAGES_SEPARATOR);
+            }
+            if (packets.get(i).getAmountOfItems() > 0) {
+                resultSink.appendIds(packets.get(i));
+            } else {
+                resultSink.append('-');
+            }
+        }
+
+        PackagerMetrics.recordStage(metrics, PackagerMetrics.Stage.OUTPUT, outputStart);
+    }
+
+    private static void recordEmptyLine(PackagerMetrics metrics) {
+        if (metrics != null) {
+            metrics.recordEmptyLine();
         }
     }
 }
@@ -0,0 +1,442 @@
+package de.fritze.marcus.packer;
+
+import de.fritze.marcus.cache.SolutionCache;
+import de.fritze.marcus.exception.ErrorReport;
+import de.fritze.marcus.metrics.PackagerMetrics;
+import de.fritze.marcus.output.ResultSink;
+import de.fritze.marcus.solver.DynamicProgrammingSolver;
+import de.fritze.marcus.solver.ExactMultipleKnapsackSolver;
+import de.fritze.marcus.solver.KnapsackSolver;
+import de.fritze.marcus.solver.MultipleKnapsackSolver;
+import de.fritze.marcus.validation.Validator;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * This holds the settings for one packaging run, the default configuration gives the output of the specification
+ */
+public class PackagerConfiguration {
+
+    private KnapsackSolver knapsackSolver = new DynamicProgrammingSolver();
+    private int alternatives = 1;
+
+    private MultipleKnapsackSolver multipleKnapsackSolver = new ExactMultipleKnapsackSolver();
+    private int amountOfPackages = 1;
+
+    private Validator validator = new Validator();
+
+    private int parallelism         = 1;
+    private int linesPerTask        = 256;
+    private ExecutorService workerPool;
+
+    private boolean memoryMappedInput = false;
+    private boolean binaryInput       = false;
+    private boolean splitInput        = false;
+    private long splitRangeSize       = 0;
+
+    private SolutionCache solutionCache;
+    private Path solutionCacheFile;
+
+    private ErrorReport errorReport;
+
+    private PackagerMetrics metrics;
+    private Path metricsFile;
+
+    private ResultSink resultSink;
+    private int flushInterval       = 0;
+
+    private Path outputFile;
+    private int checkpointInterval  = 0;
+    private boolean resume          = false;
+
+    public KnapsackSolver getKnapsackSolver() {
+        return knapsackSolver;
+    }
+
+    /**
+     * here we can plug in the solver that chooses the best Packet of a line
+     *
+     * @param knapsackSolver
+     * @return
+     */
+    public PackagerConfiguration setKnapsackSolver(KnapsackSolver knapsackSolver) {
+        this.knapsackSolver = knapsackSolver;
+        return this;
+    }
+
+    public int getAlternatives() {
+        return alternatives;
+    }
+
+    /**
+     * the amount of best packages that are written per line, the best first
+     * only solvers that enumerate the subsets (subset-enumeration) can give more than the best package
+     *
+     * @param alternatives
+     * @return
+     */
+    public PackagerConfiguration setAlternatives(int alternatives) {
+        if (alternatives < 1) {
+            throw new IllegalArgumentException("The alternatives must be at least 1");
+        }
+        this.alternatives = alternatives;
+        return this;
+    }
+
+    public MultipleKnapsackSolver getMultipleKnapsackSolver() {
+        return multipleKnapsackSolver;
+    }
+
+    /**
+     * here we can plug in the solver that fills the packages of a line with more than one package
+     *
+     * @param multipleKnapsackSolver
+     * @return
+     */
+    public PackagerConfiguration setMultipleKnapsackSolver(MultipleKnapsackSolver multipleKnapsackSolver) {
+        this.multipleKnapsackSolver = multipleKnapsackSolver;
+        return this;
+    }
+
+    public int getAmountOfPackages() {
+        return amountOfPackages;
+    }
+
+    /**
+     * the amount of packages with the same max weight that are filled from the items of every line,
+     * a line with the prefix "N x " asks for its own amount. with more than one package the alternatives are not used
+     *
+     * @param amountOfPackages
+     * @return
+     */
+    public PackagerConfiguration setAmountOfPackages(int amountOfPackages) {
+        if (amountOfPackages < 1) {
+            throw new IllegalArgumentException("The amount of packages must be at least 1");
+        }
+        this.amountOfPackages = amountOfPackages;
+        return this;
+    }
+
+    public Validator getValidator() {
+        return validator;
+    }
+
+    /**
+     * the validator with the limits of the lines, the default validator has the limits of the specification
+     *
+     * @param validator
+     * @return
+     */
+    public PackagerConfiguration setValidator(Validator validator) {
+        this.validator = validator;
+        return this;
+    }
+
+    /**
+     * the settings that decide the output of a valid line besides the line itself: the solver for the amount of packages
+     * and the limits of the validator, the SolutionCache only gives the output of a line that was packaged with the same settings
+     *
+     * @param amountOfPackages
+     * @return
+     */
+    public String getCacheSettings(int amountOfPackages) {
+        String solverSettings = amountOfPackages > 1 ? multipleKnapsackSolver.getSettings() : knapsackSolver.getSettings();
+
+        return solverSettings + ";" + validator.getSettings();
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * the amount of worker threads that package the lines, 1 packages the lines one after another in the reading thread
+     *
+     * @param parallelism
+     * @return
+     */
+    public PackagerConfiguration setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("The parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int getLinesPerTask() {
+        return linesPerTask;
+    }
+
+    /**
+     * the amount of lines a worker packages in one task, bigger tasks have less overhead for the pool
+     *
+     * @param linesPerTask
+     * @return
+     */
+    public PackagerConfiguration setLinesPerTask(int linesPerTask) {
+        if (linesPerTask < 1) {
+            throw new IllegalArgumentException("The lines per task must be at least 1");
+        }
+        this.linesPerTask = linesPerTask;
+        return this;
+    }
+
+    public ExecutorService getWorkerPool() {
+        return workerPool;
+    }
+
+    /**
+     * here we can pass an own worker pool (for example an executor with virtual threads), the pool is not shut down by the packager
+     * without an own worker pool a ForkJoinPool with the configured parallelism is used
+     *
+     * @param workerPool
+     * @return
+     */
+    public PackagerConfiguration setWorkerPool(ExecutorService workerPool) {
+        this.workerPool = workerPool;
+        return this;
+    }
+
+    /**
+     * @return true if the lines are packaged by a worker pool
+     */
+    public boolean isParallel() {
+        return parallelism > 1 || workerPool != null;
+    }
+
+    public boolean isMemoryMappedInput() {
+        return memoryMappedInput;
+    }
+
+    /**
+     * reads the file as UTF-8 bytes from a memory-mapped buffer instead of decoding every line into a String
+     *
+     * @param memoryMappedInput
+     * @return
+     */
+    public PackagerConfiguration setMemoryMappedInput(boolean memoryMappedInput) {
+        this.memoryMappedInput = memoryMappedInput;
+        return this;
+    }
+
+    public boolean isSplitInput() {
+        return splitInput;
+    }
+
+    /**
+     * splits the file into newline-aligned byte ranges that are read and packaged by the workers, so the reading runs in parallel too
+     * the file is read memory-mapped, without a worker pool (parallelism 1) the file is not split
+     *
+     * @param splitInput
+     * @return
+     */
+    public PackagerConfiguration setSplitInput(boolean splitInput) {
+        this.splitInput = splitInput;
+        return this;
+    }
+
+    public long getSplitRangeSize() {
+        return splitRangeSize;
+    }
+
+    /**
+     * the size of the byte ranges of a split file, a range ends at the first line after this size
+     * 0 (the default) chooses the size from the size of the file and the amount of workers
+     *
+     * @param splitRangeSize
+     * @return
+     */
+    public PackagerConfiguration setSplitRangeSize(long splitRangeSize) {
+        if (splitRangeSize < 0) {
+            throw new IllegalArgumentException("The split range size must not be negative");
+        }
+        this.splitRangeSize = splitRangeSize;
+        return this;
+    }
+
+    public boolean isBinaryInput() {
+        return binaryInput;
+    }
+
+    /**
+     * reads the file as binary records (see BinaryRecordFormat) instead of text lines, so the lines don't have to be parsed
+     *
+     * @param binaryInput
+     * @return
+     */
+    public PackagerConfiguration setBinaryInput(boolean binaryInput) {
+        this.binaryInput = binaryInput;
+        return this;
+    }
+
+    public ResultSink getResultSink() {
+        return resultSink;
+    }
+
+    /**
+     * here we can pass an own sink for the output lines, the sink is flushed at the end but not closed by the packager
+     * without an own sink the output is written to System.out through a BufferedResultSink
+     *
+     * @param resultSink
+     * @return
+     */
+    public PackagerConfiguration setResultSink(ResultSink resultSink) {
+        this.resultSink = resultSink;
+        return this;
+    }
+
+    public int getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * the amount of lines after that the output is flushed to System.out, 0 flushes only at the end of the file
+     *
+     * @param flushInterval
+     * @return
+     */
+    public PackagerConfiguration setFlushInterval(int flushInterval) {
+        if (flushInterval < 0) {
+            throw new IllegalArgumentException("The flush interval must not be negative");
+        }
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    public SolutionCache getSolutionCache() {
+        return solutionCache;
+    }
+
+    /**
+     * with a cache the output of repeated lines is taken from the cache instead of solving the line again
+     * without a cache (the default) every line is solved
+     *
+     * @param solutionCache
+     * @return
+     */
+    public PackagerConfiguration setSolutionCache(SolutionCache solutionCache) {
+        this.solutionCache = solutionCache;
+        return this;
+    }
+
+    public Path getSolutionCacheFile() {
+        return solutionCacheFile;
+    }
+
+    /**
+     * the cache is loaded from this file before the first line and saved into it after the last line,
+     * so the cache is kept between the runs. without a solution cache the file is not used
+     *
+     * @param solutionCacheFile
+     * @return
+     */
+    public PackagerConfiguration setSolutionCacheFile(Path solutionCacheFile) {
+        this.solutionCacheFile = solutionCacheFile;
+        return this;
+    }
+
+    public ErrorReport getErrorReport() {
+        return errorReport;
+    }
+
+    /**
+     * with an error report the packager runs in the fail-soft mode: the errors of the lines are collected in the report,
+     * the lines get a marker as output and the packager goes on until the report has too many errors.
+     * without an error report (the default) the first error stops the packager
+     *
+     * @param errorReport
+     * @return
+     */
+    public PackagerConfiguration setErrorReport(ErrorReport errorReport) {
+        this.errorReport = errorReport;
+        return this;
+    }
+
+    public PackagerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * with metrics the lines are counted and the stages of every line are measured, without metrics (the default) nothing is measured
+     *
+     * @param metrics
+     * @return
+     */
+    public PackagerConfiguration setMetrics(PackagerMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    public Path getMetricsFile() {
+        return metricsFile;
+    }
+
+    /**
+     * the metrics are written as JSON into this file at the end of the run
+     *
+     * @param metricsFile
+     * @return
+     */
+    public PackagerConfiguration setMetricsFile(Path metricsFile) {
+        this.metricsFile = metricsFile;
+        return this;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    /**
+     * the output lines are written into this file instead of System.out, the file is not used if there is an own result sink
+     *
+     * @param outputFile
+     * @return
+     */
+    public PackagerConfiguration setOutputFile(Path outputFile) {
+        this.outputFile = outputFile;
+        return this;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * the amount of lines after that a checkpoint is written next to the output file, 0 (the default) writes no checkpoints
+     * with checkpoints the file is read memory-mapped, so the offset of every line is known
+     *
+     * @param checkpointInterval
+     * @return
+     */
+    public PackagerConfiguration setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 0) {
+            throw new IllegalArgumentException("The checkpoint interval must not be negative");
+        }
+        this.checkpointInterval = checkpointInterval;
+        return this;
+    }
+
+    /**
+     * @return true if checkpoints are written
+     */
+    public boolean isCheckpointing() {
+        return checkpointInterval > 0;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /**
+     * goes on at the checkpoint of the output file, the output after the checkpoint is cut off and the following lines are appended
+     * without a checkpoint the run starts at the first line
+     *
+     * @param resume
+     * @return
+     */
+    public PackagerConfiguration setResume(boolean resume) {
+        this.resume = resume;
+        return this;
+    }
+}
@@ -0,0 +1,569 @@
+package de.fritze.marcus.packer;
+
+import de.fritze.marcus.binary.BinaryRecordReader;
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.output.ResultSink;
+import de.fritze.marcus.output.StringResultSink;
+import de.fritze.marcus.parser.MappedLineReader;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * This packages the lines of a file on a worker pool
+ *
+ * the lines are read in blocks of linesPerTask lines, every block is one task for the pool.
+ * the results are written in the order of the lines, so the output is the same as in the sequential run.
+ * only a limited amount of tasks are pending at the same time, so we never hold the whole file in memory.
+ * a split file is not read by one thread, every task reads its own byte range of the file
+ */
+class ParallelPackager {
+
+    /* how many tasks per worker may wait for being written */
+    private static final int PENDING_TASKS_PER_WORKER = 4;
+
+    /* a split file has about this amount of ranges per worker, so a slow range doesn't keep the other workers waiting */
+    private static final int RANGES_PER_WORKER  = 4;
+    /* the smallest and the biggest automatic range of a split file, the output of a range is held in memory until it is written */
+    private static final long MIN_RANGE_SIZE    = 1024 * 1024;
+    private static final long MAX_RANGE_SIZE    = 64 * 1024 * 1024;
+
+    /**
+     * a block of lines that is packaged by one task
+     */
+    private abstract static class LineBlock {
+
+        protected final int firstLineNumber;
+
+        LineBlock(int firstLineNumber) {
+            this.firstLineNumber = firstLineNumber;
+        }
+
+        abstract int size();
+
+        /**
+         * @return the offset of the line after the block in the file, -1 if the offset is not known
+         */
+        long nextLineOffset() {
+            return -1;
+        }
+
+        /**
+         * is called by the worker after the last line of the block, also if a line failed
+         *
+         * @throws IOException
+         */
+        void finish() throws IOException {
+        }
+
+        abstract void packageLine(int index, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException;
+    }
+
+    /**
+     * a block of lines read as Strings
+     */
+    private static class StringLineBlock extends LineBlock {
+
+        private final List<String> lines = new ArrayList<>();
+
+        StringLineBlock(int firstLineNumber) {
+            super(firstLineNumber);
+        }
+
+        @Override
+        int size() {
+            return lines.size();
+        }
+
+        @Override
+        void packageLine(int index, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
+            Packager.packageLine(firstLineNumber + index, lines.get(index), configuration, resultSink);
+        }
+    }
+
+    /**
+     * a block of lines as slices of the mapped buffers, the bytes are not copied
+     */
+    private static class ByteLineBlock extends LineBlock {
+
+        private final ByteBuffer[] buffers;
+        private final int[] starts;
+        private final int[] ends;
+        private int size;
+        private long nextLineOffset;
+
+        ByteLineBlock(int firstLineNumber, int capacity) {
+            super(firstLineNumber);
+            this.buffers    = new ByteBuffer[capacity];
+            this.starts     = new int[capacity];
+            this.ends       = new int[capacity];
+        }
+
+        void add(ByteBuffer buffer, int start, int end) {
+            buffers[size]   = buffer;
+            starts[size]    = start;
+            ends[size]      = end;
+            size++;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long nextLineOffset() {
+            return nextLineOffset;
+        }
+
+        @Override
+        void packageLine(int index, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
+            Packager.packageLine(firstLineNumber + index, buffers[index], starts[index], ends[index], configuration, resultSink);
+        }
+    }
+
+    /**
+     * a block of lines that are already parsed, every line has its own batch, an empty line has no batch
+     */
+    private static class BatchLineBlock extends LineBlock {
+
+        private final List<ItemBatch> itemBatches = new ArrayList<>();
+
+        BatchLineBlock(int firstLineNumber) {
+            super(firstLineNumber);
+        }
+
+        @Override
+        int size() {
+            return itemBatches.size();
+        }
+
+        @Override
+        void packageLine(int index, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
+            Packager.packageLine(firstLineNumber + index, itemBatches.get(index), configuration, resultSink);
+        }
+    }
+
+    /**
+     * a newline-aligned byte range of a split file, the lines are read by the worker from its own reader
+     * the amount of lines is counted before, so the range knows the global number of its first line
+     */
+    private static class RangeLineBlock extends LineBlock {
+
+        private final Path path;
+        private final long startOffset;
+        private final long endOffset;
+        private final int size;
+        private MappedLineReader reader;
+
+        RangeLineBlock(int firstLineNumber, Path path, long startOffset, long endOffset, int size) {
+            super(firstLineNumber);
+            this.path           = path;
+            this.startOffset    = startOffset;
+            this.endOffset      = endOffset;
+            this.size           = size;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long nextLineOffset() {
+            return endOffset;
+        }
+
+        @Override
+        void packageLine(int index, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException {
+            // the lines are packaged one after another, so the reader is always at the line of the index
+            if (reader == null) {
+                reader = new MappedLineReader(path, MappedLineReader.DEFAULT_WINDOW_SIZE, startOffset, endOffset, firstLineNumber);
+            }
+            reader.nextLine();
+
+            Packager.packageLine(reader.getLineNumber(), reader.getBuffer(), reader.getLineStart(), reader.getLineEnd(), configuration, resultSink);
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * reads the next block of lines
+     */
+    @FunctionalInterface
+    private interface LineBlockReader {
+
+        /**
+         * @return the next block or null if there are no more lines
+         * @throws IOException
+         */
+        LineBlock nextBlock() throws IOException;
+    }
+
+    /**
+     * packages all lines of the stream on the worker pool and writes the results in the order of the lines
+     *
+     * @param lines
+     * @param configuration
+     * @param resultSink
+     * @throws IOException
+     */
+    static void startPackaging(Stream<String> lines, PackagerConfiguration configuration, ResultSink resultSink) throws IOException {
+        Iterator<String> lineIterator   = lines.iterator();
+        int[] lineNumber                = {0};
+
+        startPackaging(() -> {
+            if (!lineIterator.hasNext()) {
+                return null;
+            }
+            StringLineBlock block = new StringLineBlock(lineNumber[0] + 1);
+
+            while (lineIterator.hasNext() && block.size() < configuration.getLinesPerTask()) {
+                block.lines.add(lineIterator.next());
+                lineNumber[0]++;
+            }
+            return block;
+        }, configuration, resultSink, null);
+    }
+
+    /**
+     * packages all lines of the memory-mapped file on the worker pool and writes the results in the order of the lines
+     *
+     * @param reader
+     * @param configuration
+     * @param resultSink
+     * @param checkpointWriter gets the progress after every written block or null
+     * @throws IOException
+     */
+    static void startPackaging(MappedLineReader reader, PackagerConfiguration configuration, ResultSink resultSink, CheckpointWriter checkpointWriter) throws IOException {
+        startPackaging(() -> {
+            if (!reader.nextLine()) {
+                return null;
+            }
+            ByteLineBlock block = new ByteLineBlock(reader.getLineNumber(), configuration.getLinesPerTask());
+
+            do {
+                block.add(reader.getBuffer(), reader.getLineStart(), reader.getLineEnd());
+            } while (block.size() < configuration.getLinesPerTask() && reader.nextLine());
+
+            block.nextLineOffset = reader.getNextLineOffset();
+            return block;
+        }, configuration, resultSink, checkpointWriter);
+    }
+
+    /**
+     * packages all binary records on the worker pool and writes the results in the order of the lines
+     *
+     * @param reader
+     * @param configuration
+     * @param resultSink
+     * @throws IOException
+     */
+    static void startPackaging(BinaryRecordReader reader, PackagerConfiguration configuration, ResultSink resultSink) throws IOException {
+        startPackaging(() -> {
+            BatchLineBlock block = new BatchLineBlock(reader.getLineNumber() + 1);
+            ItemBatch itemBatch;
+
+            // the batches are packaged by another thread, so every record gets a new batch
+            while (block.size() < configuration.getLinesPerTask() && reader.nextRecord(itemBatch = new ItemBatch())) {
+                block.itemBatches.add(reader.isEmptyLine() ? null : itemBatch);
+            }
+            return block.size() > 0 ? block : null;
+        }, configuration, resultSink, null);
+    }
+
+    /**
+     * splits the file from the offset into newline-aligned byte ranges that are read and packaged by the workers,
+     * so also the reading of the lines runs on all workers. the outputs of the ranges are written in the order of the ranges
+     *
+     * the lines of the ranges are counted on the workers first, so every error has the global number of its line
+     *
+     * @param path
+     * @param offset the offset of the first line, this must be the start of a line
+     * @param firstLineNumber the number of the line at the offset
+     * @param configuration
+     * @param resultSink
+     * @param checkpointWriter gets the progress after every written range or null
+     * @throws IOException
+     */
+    static void startPackagingRanges(Path path, long offset, int firstLineNumber, PackagerConfiguration configuration, ResultSink resultSink,
+                                     CheckpointWriter checkpointWriter) throws IOException {
+
+        ExecutorService workerPool  = createWorkerPool(configuration);
+        int workers                 = amountOfWorkers(configuration);
+
+        try {
+            // the ranges have about the same size and start at the first line after the split offset
+            long size       = Files.size(path) - offset;
+            long rangeSize  = configuration.getSplitRangeSize() > 0
+                    ? configuration.getSplitRangeSize()
+                    : Math.min(Math.max(size / (workers * RANGES_PER_WORKER), MIN_RANGE_SIZE), MAX_RANGE_SIZE);
+            List<Long> rangeStarts = new ArrayList<>();
+
+            for (long start = offset; start < offset + size; start = MappedLineReader.findLineStart(path, start + rangeSize)) {
+                rangeStarts.add(start);
+            }
+            rangeStarts.add(offset + size);
+
+            List<Future<Integer>> lineCounts = new ArrayList<>();
+
+            for (int i = 0; i + 1 < rangeStarts.size(); i++) {
+                long start  = rangeStarts.get(i);
+                long end    = rangeStarts.get(i + 1);
+
+                lineCounts.add(workerPool.submit(() -> countLines(path, start, end)));
+            }
+
+            int[] range         = {0};
+            int[] lineNumber    = {firstLineNumber};
+
+            startPackaging(() -> {
+                if (range[0] == lineCounts.size()) {
+                    return null;
+                }
+                int amountOfLines = getResult(lineCounts.get(range[0]));
+                RangeLineBlock block = new RangeLineBlock(lineNumber[0], path, rangeStarts.get(range[0]), rangeStarts.get(range[0] + 1), amountOfLines);
+
+                range[0]++;
+                lineNumber[0] += amountOfLines;
+
+                return block;
+            }, workerPool, workers, configuration, resultSink, checkpointWriter);
+        } finally {
+            if (workerPool != configuration.getWorkerPool()) {
+                workerPool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * @param path
+     * @param start
+     * @param end
+     * @return the amount of lines between the offsets
+     * @throws IOException
+     */
+    private static int countLines(Path path, long start, long end) throws IOException {
+        int amountOfLines = 0;
+
+        try (MappedLineReader reader = new MappedLineReader(path, MappedLineReader.DEFAULT_WINDOW_SIZE, start, end, 1)) {
+            while (reader.nextLine()) {
+                amountOfLines++;
+            }
+        }
+        return amountOfLines;
+    }
+
+    /**
+     * waits for the result of a task that only throws an IOException
+     *
+     * @param future
+     * @return
+     * @throws IOException
+     */
+    private static <T> T getResult(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static ExecutorService createWorkerPool(PackagerConfiguration configuration) {
+        return configuration.getWorkerPool() != null ? configuration.getWorkerPool() : new ForkJoinPool(configuration.getParallelism());
+    }
+
+    private static int amountOfWorkers(PackagerConfiguration configuration) {
+        return configuration.getWorkerPool() != null ? Runtime.getRuntime().availableProcessors() : configuration.getParallelism();
+    }
+
+    private static void startPackaging(LineBlockReader blockReader, PackagerConfiguration configuration, ResultSink resultSink,
+                                       CheckpointWriter checkpointWriter) throws IOException {
+
+        ExecutorService workerPool = createWorkerPool(configuration);
+
+        try {
+            startPackaging(blockReader, workerPool, amountOfWorkers(configuration), configuration, resultSink, checkpointWriter);
+        } finally {
+            if (workerPool != configuration.getWorkerPool()) {
+                workerPool.shutdownNow();
+            }
+        }
+    }
+
+    private static void startPackaging(LineBlockReader blockReader, ExecutorService workerPool, int workers, PackagerConfiguration configuration,
+                                       ResultSink resultSink, CheckpointWriter checkpointWriter) throws IOException {
+
+        int maxPendingTasks = workers * PENDING_TASKS_PER_WORKER;
+
+        // if a block has an exception we handle it like in the sequential run
+        Consumer<PendingBlock> blockWriter = AppException.throwingConsumerWrapper(pendingBlock -> {
+            writeBlock(pendingBlock.packagedBlock, configuration, resultSink);
+
+            if (checkpointWriter != null) {
+                checkpointWriter.linesWritten(pendingBlock.block.firstLineNumber + pendingBlock.block.size() - 1, pendingBlock.block.nextLineOffset());
+            }
+        }, resultSink);
+
+        ArrayDeque<PendingBlock> pendingBlocks = new ArrayDeque<>();
+        LineBlock block;
+
+        while ((block = blockReader.nextBlock()) != null) {
+            LineBlock nextBlock = block;
+
+            pendingBlocks.add(new PendingBlock(nextBlock, workerPool.submit(() -> packageBlock(nextBlock, configuration))));
+
+            // we wait for the oldest block before we read more lines
+            if (pendingBlocks.size() >= maxPendingTasks) {
+                blockWriter.accept(pendingBlocks.poll());
+            }
+        }
+
+        while (!pendingBlocks.isEmpty()) {
+            blockWriter.accept(pendingBlocks.poll());
+        }
+    }
+
+    /**
+     * a block that is packaged by the pool and waits for being written
+     */
+    private static class PendingBlock {
+
+        private final LineBlock block;
+        private final Future<PackagedBlock> packagedBlock;
+
+        PendingBlock(LineBlock block, Future<PackagedBlock> packagedBlock) {
+            this.block          = block;
+            this.packagedBlock  = packagedBlock;
+        }
+    }
+
+    /**
+     * the output of a block of lines, if a line of the block fails the block stops there and has the exception
+     * in the fail-soft mode the errors of the lines are kept and reported when the block is written, so the report is in the order of the lines
+     */
+    private static class PackagedBlock {
+
+        private final StringResultSink output = new StringResultSink();
+        private final List<BlockError> errors = new ArrayList<>();
+        private Exception exception;
+    }
+
+    /**
+     * the error of a line in the fail-soft mode and where the marker of the line starts in the output of the block
+     */
+    private static class BlockError {
+
+        private final int lineNumber;
+        private final AppException exception;
+        private final int outputStart;
+        private final int linesBefore;
+
+        BlockError(int lineNumber, AppException exception, int outputStart, int linesBefore) {
+            this.lineNumber     = lineNumber;
+            this.exception      = exception;
+            this.outputStart    = outputStart;
+            this.linesBefore    = linesBefore;
+        }
+    }
+
+    /**
+     * packages the lines of a block, this runs in a worker thread
+     *
+     * @param block
+     * @param configuration
+     * @return
+     */
+    private static PackagedBlock packageBlock(LineBlock block, PackagerConfiguration configuration) {
+        PackagedBlock packagedBlock = new PackagedBlock();
+
+        try {
+            for (int i = 0; i < block.size(); i++) {
+                try {
+                    block.packageLine(i, configuration, packagedBlock.output);
+                } catch (AppException e) {
+                    if (configuration.getMetrics() != null) {
+                        configuration.getMetrics().recordError();
+                    }
+                    if (configuration.getErrorReport() == null) {
+                        throw e;
+                    }
+                    // the error is reported when the block is written
+                    packagedBlock.errors.add(new BlockError(block.firstLineNumber + i, e, packagedBlock.output.getOutput().length(), i));
+                    packagedBlock.output.append(ErrorReport.ERROR_MARKER);
+                }
+                packagedBlock.output.endLine();
+            }
+        } catch (Exception e) {
+            packagedBlock.exception = e;
+        } finally {
+            try {
+                block.finish();
+            } catch (IOException e) {
+                if (packagedBlock.exception == null) {
+                    packagedBlock.exception = e;
+                }
+            }
+        }
+        return packagedBlock;
+    }
+
+    /**
+     * waits for the block and writes the output, the exception of the block is thrown after the lines before it are written
+     *
+     * @param pendingBlock
+     * @param configuration
+     * @param resultSink
+     * @throws Exception
+     */
+    private static void writeBlock(Future<PackagedBlock> pendingBlock, PackagerConfiguration configuration, ResultSink resultSink) throws Exception {
+        PackagedBlock packagedBlock;
+
+        try {
+            packagedBlock = pendingBlock.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+
+        for (BlockError error : packagedBlock.errors) {
+            if (!Packager.reportLineError(error.lineNumber, error.exception, configuration)) {
+                // too many errors, only the lines before this line are written
+                resultSink.appendLines(packagedBlock.output.getOutput().subSequence(0, error.outputStart), error.linesBefore);
+                throw error.exception;
+            }
+        }
+
+        resultSink.appendLines(packagedBlock.output.getOutput(), packagedBlock.output.getAmountOfLines());
+
+        if (packagedBlock.exception != null) {
+            throw packagedBlock.exception;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package de.fritze.marcus.parser;
+
+import de.fritze.marcus.model.ItemBatch;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This parser reads a line in a single pass without regular expressions, for example:
+ * 81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)
+ *
+ * it accepts exactly the lines the former pattern accepted with Matcher.find():
+ * ([0-9]+([\.][0-9]+)?)\s:((\s\(\d+,[0-9]+([\.][0-9]+)?,€[0-9]+([\.][0-9]+)?\))+)
+ * that means the first position where the pattern matches is used and everything after the last valid item is ignored.
+ * if only a prefix like "3 x " is in front of the match, the line asks for 3 packages, for example 3 x 81 : (1,53.38,€45)
+ *
+ * a line can be a CharSequence or a slice of UTF-8 bytes in a ByteBuffer, so lines of a file don't have to be decoded into Strings.
+ * the € sign is one char in a CharSequence and the three bytes E2 82 AC in UTF-8, all other characters of the format are ASCII.
+ *
+ * the ids, weights and prices are written into the primitive arrays of an ItemBatch that is reused for the next line,
+ * so one parser must only be used by one thread at a time
+ */
+public class LineParser {
+
+    private static final char EURO_SIGN = '€';
+    private static final byte[] EURO_SIGN_UTF_8 = "€".getBytes(StandardCharsets.UTF_8);
+
+    /* powers of ten that are exact in double and float, for the fast decimal conversion */
+    private static final double[] DOUBLE_POWERS_OF_TEN  = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+    private static final float[] FLOAT_POWERS_OF_TEN    = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    private static final long[] LONG_POWERS_OF_TEN      = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L};
+
+    /* a long with this amount of decimal digits never overflows */
+    private static final int MAX_EXACT_LONG_DIGITS      = 18;
+    /* a long with this amount of decimal digits is always exact in a double */
+    private static final int MAX_EXACT_DOUBLE_DIGITS    = 15;
+    /* 2^24, every integer up to this value is exact in a float */
+    private static final int MAX_EXACT_FLOAT_MANTISSA   = 1 << 24;
+
+    /* the line is either a CharSequence or the bytes from lineStart (inclusive) to lineEnd (exclusive) of a ByteBuffer */
+    private CharSequence chars;
+    private ByteBuffer bytes;
+    private int lineStart;
+    private int lineEnd;
+
+    private final ItemBatch itemBatch = new ItemBatch();
+
+    /* the amount of decimals of the last parsed decimal, at most ItemBatch.MAX_SCALE */
+    private int decimals;
+    /* the digits of the last parsed decimal, the decimal is unscaled / 10^decimals */
+    private long unscaled;
+
+    /**
+     * parses the line, the items are in the ItemBatch until the next line is parsed
+     *
+     * @param line
+     * @return false if the line is not in the correct format
+     */
+    public boolean parse(CharSequence line) {
+        this.chars      = line;
+        this.bytes      = null;
+        this.lineStart  = 0;
+        this.lineEnd    = line.length();
+
+        return parseLine();
+    }
+
+    /**
+     * parses the UTF-8 encoded line between the absolute positions start (inclusive) and end (exclusive) of the buffer
+     * the position and limit of the buffer are not changed
+     *
+     * @param buffer
+     * @param start
+     * @param end
+     * @return false if the line is not in the correct format
+     */
+    public boolean parse(ByteBuffer buffer, int start, int end) {
+        this.chars      = null;
+        this.bytes      = buffer;
+        this.lineStart  = start;
+        this.lineEnd    = end;
+
+        return parseLine();
+    }
+
+    private boolean parseLine() {
+        for (int start = lineStart; start < lineEnd; start++) {
+            // a match that starts in the middle of a number is never possible if the match at the start of that number failed
+            if (isDigit(start) && (start == lineStart || !isDigit(start - 1)) && matchLineAt(start)) {
+                itemBatch.setAmountOfPackages(parsePackagesPrefix(start));
+                return true;
+            }
+        }
+        itemBatch.clear(0, 0, 0);
+        return false;
+    }
+
+    /**
+     * parses the prefix "N x " in front of the max weight, the whitespaces around the x are optional
+     *
+     * @param start the position of the max weight
+     * @return N, Integer.MAX_VALUE for an N with more than 9 digits or ItemBatch.NO_AMOUNT_OF_PACKAGES if the text in front of the max weight is not this prefix
+     */
+    private int parsePackagesPrefix(int start) {
+        int digitsEnd = skipDigits(lineStart);
+
+        if (digitsEnd == lineStart) {
+            return ItemBatch.NO_AMOUNT_OF_PACKAGES;
+        }
+        int position = digitsEnd;
+
+        while (position < start && isWhitespace(position)) {
+            position++;
+        }
+        if (position >= start || at(position) != 'x') {
+            return ItemBatch.NO_AMOUNT_OF_PACKAGES;
+        }
+        position++;
+
+        while (position < start && isWhitespace(position)) {
+            position++;
+        }
+        if (position != start) {
+            return ItemBatch.NO_AMOUNT_OF_PACKAGES;
+        }
+        // a number with more than 9 digits is above every limit of the Validator
+        return digitsEnd - lineStart > 9 ? Integer.MAX_VALUE : parseInt(lineStart, digitsEnd);
+    }
+
+    /**
+     * parses the first item in the format (1,53.38,€45) of the string
+     *
+     * @param string
+     * @return false if the string doesn't contain an item
+     */
+    public boolean parseItem(CharSequence string) {
+        this.chars      = string;
+        this.bytes      = null;
+        this.lineStart  = 0;
+        this.lineEnd    = string.length();
+        itemBatch.clear(0, 0, 0);
+
+        for (int start = 0; start < lineEnd; start++) {
+            if (at(start) == '(' && matchItemAt(start, false) >= 0) {
+                itemBatch.scaleToFixedPoint();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the items of the last parsed line
+     */
+    public ItemBatch getItemBatch() {
+        return itemBatch;
+    }
+
+    /**
+     * tries to match the whole line pattern at the position start, which is the first digit of the max weight
+     *
+     * @param start
+     * @return
+     */
+    private boolean matchLineAt(int start) {
+        int end = skipDecimal(start);
+
+        // the max weight is followed by a whitespace and a colon
+        if (end + 1 >= lineEnd || !isWhitespace(end) || at(end + 1) != ':') {
+            return false;
+        }
+
+        float maxWeightPackage = parseFloat(start, end);
+        parseDouble(start, end);
+
+        itemBatch.clear(maxWeightPackage, unscaled, decimals);
+
+        // at least one item must follow, all following valid items are read
+        int position = matchItemAt(end + 2, true);
+
+        if (position < 0) {
+            return false;
+        }
+        while (position >= 0) {
+            position = matchItemAt(position, true);
+        }
+
+        itemBatch.scaleToFixedPoint();
+        return true;
+    }
+
+    /**
+     * tries to match an item in the format " (1,53.38,€45)" at the position
+     *
+     * @param position
+     * @param leadingWhitespace inside a line every item starts with a whitespace
+     * @return the position after the item or -1 if there is no item
+     */
+    private int matchItemAt(int position, boolean leadingWhitespace) {
+        if (leadingWhitespace) {
+            if (position >= lineEnd || !isWhitespace(position)) {
+                return -1;
+            }
+            position++;
+        }
+        if (position >= lineEnd || at(position) != '(') {
+            return -1;
+        }
+
+        int idStart = position + 1;
+        int idEnd   = skipDigits(idStart);
+
+        if (idEnd == idStart || idEnd >= lineEnd || at(idEnd) != ',') {
+            return -1;
+        }
+
+        int weightStart = idEnd + 1;
+        int weightEnd   = skipDecimal(weightStart);
+
+        if (weightEnd < 0 || weightEnd >= lineEnd || at(weightEnd) != ',') {
+            return -1;
+        }
+
+        int priceStart  = skipEuroSign(weightEnd + 1);
+        int priceEnd    = priceStart < 0 ? -1 : skipDecimal(priceStart);
+
+        if (priceEnd < 0 || priceEnd >= lineEnd || at(priceEnd) != ')') {
+            return -1;
+        }
+
+        int id              = parseInt(idStart, idEnd);
+        double weight       = parseDouble(weightStart, weightEnd);
+        long unscaledWeight = unscaled;
+        int weightDecimals  = decimals;
+        double price        = parseDouble(priceStart, priceEnd);
+
+        itemBatch.addItem(id, weight, unscaledWeight, weightDecimals, price, unscaled, decimals);
+
+        return priceEnd + 1;
+    }
+
+    /**
+     * @param position
+     * @return the position after the digits
+     */
+    private int skipDigits(int position) {
+        while (position < lineEnd && isDigit(position)) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * skips a decimal in the format [0-9]+([\.][0-9]+)?
+     *
+     * @param position
+     * @return the position after the decimal or -1 if there is no decimal
+     */
+    private int skipDecimal(int position) {
+        int end = skipDigits(position);
+
+        if (end == position) {
+            return -1;
+        }
+        if (end + 1 < lineEnd && at(end) == '.' && isDigit(end + 1)) {
+            end = skipDigits(end + 1);
+        }
+        return end;
+    }
+
+    private int parseInt(int start, int end) {
+        if (end - start > 9) {
+            // this may overflow, Integer.parseInt throws the same exception like before
+            return Integer.parseInt(text(start, end));
+        }
+        int value = 0;
+
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (at(i) - '0');
+        }
+        return value;
+    }
+
+    /**
+     * converts the decimal into a double, if the digits fit into a long that is exact in a double
+     * the division by the exact power of ten gives the same correctly rounded result like Double.parseDouble
+     * the digits and the amount of decimals are stored in the fields unscaled and decimals for the fixed-point value,
+     * more than ItemBatch.MAX_SCALE decimals are rounded half up
+     *
+     * @param start
+     * @param end
+     * @return
+     */
+    private double parseDouble(int start, int end) {
+        long mantissa       = 0;
+        int digits          = 0;
+        int fractionDigits  = 0;
+        boolean fraction    = false;
+
+        for (int i = start; i < end; i++) {
+            int character = at(i);
+
+            if (character == '.') {
+                fraction = true;
+                continue;
+            }
+            if (digits < MAX_EXACT_LONG_DIGITS) {
+                mantissa = mantissa * 10 + (character - '0');
+            }
+            digits++;
+
+            if (fraction) {
+                fractionDigits++;
+            }
+        }
+        decimals = Math.min(fractionDigits, ItemBatch.MAX_SCALE);
+
+        if (digits > MAX_EXACT_LONG_DIGITS) {
+            // this doesn't happen with real weights and prices, so BigDecimal is fine
+            BigInteger digitsOfValue = new BigDecimal(text(start, end)).setScale(decimals, RoundingMode.HALF_UP).unscaledValue();
+
+            unscaled = digitsOfValue.bitLength() < Long.SIZE ? digitsOfValue.longValue() : Long.MAX_VALUE;
+        } else if (fractionDigits > decimals) {
+            long divisor = LONG_POWERS_OF_TEN[fractionDigits - decimals];
+
+            unscaled = mantissa / divisor + (mantissa % divisor >= divisor / 2 ? 1 : 0);
+        } else {
+            unscaled = mantissa;
+        }
+
+        if (digits > MAX_EXACT_DOUBLE_DIGITS) {
+            return Double.parseDouble(text(start, end));
+        }
+        return mantissa / DOUBLE_POWERS_OF_TEN[fractionDigits];
+    }
+
+    /**
+     * converts the decimal into a float like Float.parseFloat, see parseDouble
+     *
+     * @param start
+     * @param end
+     * @return
+     */
+    private float parseFloat(int start, int end) {
+        long mantissa       = 0;
+        int fractionDigits  = 0;
+        boolean fraction    = false;
+
+        for (int i = start; i < end; i++) {
+            int character = at(i);
+
+            if (character == '.') {
+                fraction = true;
+                continue;
+            }
+            mantissa = mantissa * 10 + (character - '0');
+
+            if (fraction) {
+                fractionDigits++;
+            }
+            if (mantissa > MAX_EXACT_FLOAT_MANTISSA || fractionDigits >= FLOAT_POWERS_OF_TEN.length) {
+                return Float.parseFloat(text(start, end));
+            }
+        }
+        return mantissa / FLOAT_POWERS_OF_TEN[fractionDigits];
+    }
+
+    private boolean isDigit(int position) {
+        int character = at(position);
+
+        return character >= '0' && character <= '9';
+    }
+
+    /**
+     * the same whitespaces like \s in a regular expression
+     *
+     * @param position
+     * @return
+     */
+    private boolean isWhitespace(int position) {
+        int character = at(position);
+
+        return character == ' ' || character == '\t' || character == '\n' || character == '\u000B' || character == '\f' || character == '\r';
+    }
+
+    /**
+     * @param position
+     * @return the position after the € sign or -1 if there is no € sign at the position
+     */
+    private int skipEuroSign(int position) {
+        if (bytes == null) {
+            return position < lineEnd && chars.charAt(position) == EURO_SIGN ? position + 1 : -1;
+        }
+        if (position + EURO_SIGN_UTF_8.length > lineEnd) {
+            return -1;
+        }
+        for (int i = 0; i < EURO_SIGN_UTF_8.length; i++) {
+            if (bytes.get(position + i) != EURO_SIGN_UTF_8[i]) {
+                return -1;
+            }
+        }
+        return position + EURO_SIGN_UTF_8.length;
+    }
+
+    /**
+     * the character at the position, for bytes the unsigned byte, so all ASCII characters have the same value
+     *
+     * @param position
+     * @return
+     */
+    private int at(int position) {
+        return bytes == null ? chars.charAt(position) : bytes.get(position) & 0xFF;
+    }
+
+    /**
+     * the text between start and end, this is only used for numbers, which are ASCII
+     *
+     * @param start
+     * @param end
+     * @return
+     */
+    private String text(int start, int end) {
+        if (bytes == null) {
+            return chars.subSequence(start, end).toString();
+        }
+        StringBuilder text = new StringBuilder(end - start);
+
+        for (int i = start; i < end; i++) {
+            text.append((char) at(i));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,224 @@
+package de.fritze.marcus.parser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This reads the lines of a file from a memory-mapped window of the file, without decoding the bytes into Strings
+ *
+ * the lines are split on the raw bytes like BufferedReader.readLine does it: a line ends with \n, \r or \r\n.
+ * the file is mapped in windows, if a line doesn't end inside the window the next window starts at this line,
+ * so files bigger than 2 GB can be read and a line is always inside one buffer.
+ *
+ * after nextLine returned true the line is between getLineStart (inclusive) and getLineEnd (exclusive) of getBuffer,
+ * a buffer stays valid after the reader moved on, so the line can be parsed by another thread
+ */
+public class MappedLineReader implements Closeable {
+
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /* the biggest window that can be mapped into one buffer */
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+
+    /* the size of a buffer for searching the start of a line */
+    private static final int SEARCH_BUFFER_SIZE = 8 * 1024;
+
+    private final FileChannel channel;
+    private final long endOffset;
+    private int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowOffset;
+    private int position;
+
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+
+    public MappedLineReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * opens the file and maps the first window
+     *
+     * @param path
+     * @param windowSize the size of the mapped window in bytes, it grows if one line is longer
+     * @throws IOException
+     */
+    public MappedLineReader(Path path, int windowSize) throws IOException {
+        this(path, windowSize, 0, 1);
+    }
+
+    /**
+     * opens the file and maps the first window at the offset, for example to go on after a checkpoint
+     *
+     * @param path
+     * @param windowSize the size of the mapped window in bytes, it grows if one line is longer
+     * @param offset the offset of the first line in bytes, this must be the start of a line
+     * @param firstLineNumber the number of the line at the offset
+     * @throws IOException
+     */
+    public MappedLineReader(Path path, int windowSize, long offset, int firstLineNumber) throws IOException {
+        this(path, windowSize, offset, Long.MAX_VALUE, firstLineNumber);
+    }
+
+    /**
+     * opens the file and reads only the lines from the offset to the end offset, for example to read one range of a split file
+     * the reader handles the end offset like the end of the file
+     *
+     * @param path
+     * @param windowSize the size of the mapped window in bytes, it grows if one line is longer
+     * @param offset the offset of the first line in bytes, this must be the start of a line
+     * @param endOffset the offset behind the last line in bytes, this must be the start of a line or behind the end of the file
+     * @param firstLineNumber the number of the line at the offset
+     * @throws IOException
+     */
+    public MappedLineReader(Path path, int windowSize, long offset, long endOffset, int firstLineNumber) throws IOException {
+        this.channel    = FileChannel.open(path, StandardOpenOption.READ);
+        this.endOffset  = Math.min(channel.size(), endOffset);
+        this.windowSize = Math.max(windowSize, 2);
+        this.lineNumber = firstLineNumber - 1;
+
+        if (offset < 0 || offset > this.endOffset) {
+            channel.close();
+            throw new IOException("The offset " + offset + " is not inside the file!");
+        }
+        mapWindow(offset);
+    }
+
+    /**
+     * moves to the next line
+     *
+     * @return false if there are no more lines
+     * @throws IOException
+     */
+    public boolean nextLine() throws IOException {
+        while (windowOffset + position < endOffset) {
+            int limit               = window.limit();
+            boolean lastWindow      = windowOffset + limit >= endOffset;
+            int end                 = position;
+
+            while (end < limit && window.get(end) != '\n' && window.get(end) != '\r') {
+                end++;
+            }
+
+            // the line goes on in the next window or we can't see if a \n follows the \r, so we map the next window at this line
+            if (!lastWindow && (end == limit || (end + 1 == limit && window.get(end) == '\r'))) {
+                remapAtLine();
+                continue;
+            }
+
+            lineStart   = position;
+            lineEnd     = end;
+            lineNumber++;
+
+            if (end < limit) {
+                // skip the line terminator, \r\n is one terminator
+                position = end + (window.get(end) == '\r' && end + 1 < limit && window.get(end + 1) == '\n' ? 2 : 1);
+            } else {
+                position = end;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public MappedByteBuffer getBuffer() {
+        return window;
+    }
+
+    public int getLineStart() {
+        return lineStart;
+    }
+
+    public int getLineEnd() {
+        return lineEnd;
+    }
+
+    /**
+     * @return the offset in bytes of the line after the current line, behind the line terminator
+     */
+    public long getNextLineOffset() {
+        return windowOffset + position;
+    }
+
+    /**
+     * @return the number of the current line, starting at 1
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * finds the first start of a line at or after the offset, the line terminators are the same as in nextLine
+     * so a file split at these offsets gives the same lines as the whole file
+     *
+     * @param path
+     * @param offset
+     * @return the offset of the line start or the size of the file if no line starts after the offset
+     * @throws IOException
+     */
+    public static long findLineStart(Path path, long offset) throws IOException {
+        if (offset <= 0) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size           = channel.size();
+            ByteBuffer buffer   = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+
+            // a line starts behind \n or behind a \r that has no \n after it, so we look at the byte before every candidate
+            long bufferOffset   = offset - 1;
+            int previous        = -1;
+
+            while (bufferOffset < size) {
+                buffer.clear();
+                channel.read(buffer, bufferOffset);
+                buffer.flip();
+
+                for (int i = 0; i < buffer.limit(); i++) {
+                    byte current = buffer.get(i);
+
+                    if (previous == '\n' || (previous == '\r' && current != '\n')) {
+                        return bufferOffset + i;
+                    }
+                    previous = current;
+                }
+                bufferOffset += buffer.limit();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * maps the next window at the start of the current line, if the line already starts at the window the window must grow
+     *
+     * @throws IOException
+     */
+    private void remapAtLine() throws IOException {
+        if (position == 0) {
+            if (windowSize == MAX_WINDOW_SIZE) {
+                throw new IOException("The line " + (lineNumber + 1) + " is longer than " + MAX_WINDOW_SIZE + " bytes!");
+            }
+            windowSize = (int) Math.min((long) windowSize * 2, MAX_WINDOW_SIZE);
+        }
+        mapWindow(windowOffset + position);
+    }
+
+    private void mapWindow(long offset) throws IOException {
+        windowOffset    = offset;
+        window          = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, endOffset - offset));
+        position        = 0;
+    }
+}
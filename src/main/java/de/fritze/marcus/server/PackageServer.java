@@ -0,0 +1,150 @@
+package de.fritze.marcus.server;
+
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.output.BufferedResultSink;
+import de.fritze.marcus.output.ResultSink;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This packages lines that are sent one after another, so the JVM and the solvers stay warm between the batches
+ *
+ * every request is one line in the format of the input file, the answer is one line in the format of the output file.
+ * if a line has an error the answer is "error CODE: MESSAGE" with the code from GlobalErrorCodes and the server
+ * goes on with the next line, the process is never stopped by a line.
+ * the requests come from a stream (for example stdin) or from connections to a local TCP port
+ */
+public class PackageServer implements Closeable {
+
+    /* the answer for a line with an error starts with this */
+    public static final String ERROR_PREFIX = "error ";
+
+    private final PackagerConfiguration configuration;
+    private final ExecutorService connectionPool = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "package-server-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private ServerSocket serverSocket;
+
+    public PackageServer(PackagerConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * answers every line of the input until the input ends, every answer is flushed at once
+     *
+     * @param input
+     * @param output
+     * @throws IOException if the input can't be read or the output can't be written
+     */
+    public void serve(Reader input, Appendable output) throws IOException {
+        BufferedReader reader   = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        ResultSink resultSink   = new BufferedResultSink(output, 1);
+        int lineNumber          = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            answer(++lineNumber, line, resultSink);
+        }
+        resultSink.flush();
+    }
+
+    /**
+     * opens the local TCP port, the port 0 takes a free port
+     *
+     * @param port
+     * @return the port of the server
+     * @throws IOException
+     */
+    public int bind(int port) throws IOException {
+        // only local clients can connect
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * accepts the connections to the port until the server is closed, every connection is served in its own thread
+     * the lines of a connection are UTF-8 encoded and numbered from 1
+     *
+     * @throws IOException
+     */
+    public void acceptConnections() throws IOException {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+
+                connectionPool.execute(() -> serveConnection(socket));
+            }
+        } catch (SocketException socketException) {
+            // the server was closed while waiting for a connection
+            if (!serverSocket.isClosed()) {
+                throw socketException;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        connectionPool.shutdownNow();
+
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+    }
+
+    private void serveConnection(Socket socket) {
+        try (Socket connection = socket;
+             Reader input = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8);
+             Writer output = new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8)) {
+
+            serve(input, output);
+        } catch (IOException ignored) {
+            // the client has closed the connection, the other connections go on
+        }
+    }
+
+    /**
+     * writes the answer for one line, an error is written as answer instead of stopping the server
+     *
+     * @param lineNumber
+     * @param line
+     * @param resultSink
+     * @throws IOException
+     */
+    private void answer(int lineNumber, String line, ResultSink resultSink) throws IOException {
+        String error;
+
+        try {
+            // the output of the line is collected first, so a line with an error has no half answer
+            resultSink.append(Packager.packageLine(lineNumber, line, configuration));
+            resultSink.endLine();
+            return;
+        } catch (AppException e) {
+            error = ERROR_PREFIX + e.getCode() + ": " + e.getMessage();
+        } catch (RuntimeException e) {
+            // this shouldn't happen, but one line must not stop the server
+            error = ERROR_PREFIX + GlobalErrorCodes.UNDEFINED_EXCEPTION + ": " + e;
+        }
+        resultSink.append(error);
+        resultSink.endLine();
+    }
+}
@@ -0,0 +1,209 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This solver searches the subsets depth-first and prunes the branches that can't beat the best packet found so far
+ *
+ * 1. items heavier than the max weight of the package are dropped up front
+ * 2. the items are ordered by price/weight ratio descending, so the greedy packet is found first
+ * 3. the upper bound of a branch is the LP relaxation (fractional knapsack): we fill the rest of the package greedy
+ *    and take a fraction of the first item that doesn't fit. only branches with a bound lower than the best price are pruned,
+ *    branches with an equal price can still have a lower weight or come first in the subset order, so the result is exact
+ * 4. an item dominates another item if it's not heavier and not cheaper, a packet with the dominated item but without
+ *    the dominating item is never the best one, so these branches are pruned too
+ */
+public class BranchAndBoundSolver implements KnapsackSolver {
+
+    /**
+     * the state of one search, the arrays are in the order of the price/weight ratio
+     */
+    private static class Search {
+
+        ItemBatch itemBatch;
+        int amountOfItems;
+        int[] indexes;
+        long[] weights;
+        long[] prices;
+        int[][] dominators;
+        int[][] dominated;
+
+        /* 1 the item is in the packet, -1 the item is not in the packet, 0 not decided */
+        int[] decisions;
+
+        BitmaskPacket currentPacket;
+        BitmaskPacket bestPacket;
+        long visitedSubsets;
+    }
+
+    @Override
+    public BitmaskPacket solve(ItemBatch itemBatch) {
+
+        long capacity           = itemBatch.getFixedMaxWeightPackage();
+        List<Integer> fitting   = new ArrayList<>();
+
+        // 1. items that are heavier than the package never fit
+        for (int i = 0; i < itemBatch.size(); i++) {
+            if (itemBatch.getFixedWeight(i) <= capacity) {
+                fitting.add(i);
+            }
+        }
+
+        // 2. order by price/weight ratio descending, compared as price1 * weight2 > price2 * weight1 without division
+        fitting.sort((index1, index2) -> compareRatioDesc(itemBatch, index1, index2));
+
+        Search search           = new Search();
+        search.itemBatch        = itemBatch;
+        search.amountOfItems    = fitting.size();
+        search.indexes          = fitting.stream().mapToInt(Integer::intValue).toArray();
+        search.weights          = Arrays.stream(search.indexes).mapToLong(itemBatch::getFixedWeight).toArray();
+        search.prices           = Arrays.stream(search.indexes).mapToLong(itemBatch::getFixedPrice).toArray();
+        search.decisions        = new int[search.amountOfItems];
+        search.currentPacket    = new BitmaskPacket(itemBatch);
+
+        findDominance(search);
+        branch(search, 0, capacity);
+        SolverStatistics.addVisitedSubsets(search.visitedSubsets);
+
+        return search.bestPacket;
+    }
+
+    /**
+     * decides the item at the position and all following items
+     *
+     * @param search
+     * @param position
+     * @param remainingCapacity
+     */
+    private static void branch(Search search, int position, long remainingCapacity) {
+        if (position == search.amountOfItems) {
+            return;
+        }
+
+        // 3. prune if even the fractional knapsack of the remaining items can't reach the best price
+        if (search.bestPacket != null && search.currentPacket.getTotalPrice() + upperBound(search, position, remainingCapacity) < search.bestPacket.getTotalPrice()) {
+            return;
+        }
+
+        // first we try with the item
+        if (search.weights[position] <= remainingCapacity && !isDominatorExcluded(search, position)) {
+            search.decisions[position] = 1;
+            search.currentPacket.addItem(search.indexes[position]);
+            search.visitedSubsets++;
+
+            // every packet we reach by adding an item is a valid packet
+            if (search.bestPacket == null || BitmaskPacket.PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDescAndSubsetOrder.compare(search.currentPacket, search.bestPacket) < 0) {
+                search.bestPacket = new BitmaskPacket(search.currentPacket);
+            }
+            branch(search, position + 1, remainingCapacity - search.weights[position]);
+
+            search.currentPacket.removeItem(search.indexes[position]);
+        }
+
+        // then without the item
+        if (!isDominatedIncluded(search, position)) {
+            search.decisions[position] = -1;
+            branch(search, position + 1, remainingCapacity);
+        }
+        search.decisions[position] = 0;
+    }
+
+    /**
+     * the fractional knapsack of the items from the position, rounded up, so it is never lower than the best integer packet
+     *
+     * @param search
+     * @param position
+     * @param remainingCapacity
+     * @return
+     */
+    private static long upperBound(Search search, int position, long remainingCapacity) {
+        long bound = 0;
+
+        for (int i = position; i < search.amountOfItems; i++) {
+            if (search.weights[i] <= remainingCapacity) {
+                remainingCapacity   -= search.weights[i];
+                bound               += search.prices[i];
+            } else {
+                // the product may not fit into a long, the double is only used for the bound and rounded up generously
+                bound += (long) Math.ceil((double) remainingCapacity * search.prices[i] / search.weights[i]) + 1;
+                break;
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * 4. an item must not be added if an item that dominates it is already excluded
+     */
+    private static boolean isDominatorExcluded(Search search, int position) {
+        for (int dominator : search.dominators[position]) {
+            if (search.decisions[dominator] == -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 4. an item must not be excluded if an item that it dominates is already included
+     */
+    private static boolean isDominatedIncluded(Search search, int position) {
+        for (int dominated : search.dominated[position]) {
+            if (search.decisions[dominated] == 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * item a dominates item b if a is not heavier and not cheaper and a is strictly better or a comes first in the line,
+     * every packet with b but without a gets strictly better (or earlier in the subset order) if we swap b with a
+     *
+     * @param search
+     */
+    private static void findDominance(Search search) {
+        List<List<Integer>> dominators  = new ArrayList<>();
+        List<List<Integer>> dominated   = new ArrayList<>();
+
+        for (int i = 0; i < search.amountOfItems; i++) {
+            dominators.add(new ArrayList<>());
+            dominated.add(new ArrayList<>());
+        }
+
+        for (int a = 0; a < search.amountOfItems; a++) {
+            for (int b = 0; b < search.amountOfItems; b++) {
+                if (a == b || search.weights[a] > search.weights[b] || search.prices[a] < search.prices[b]) {
+                    continue;
+                }
+                boolean strictlyBetter = search.weights[a] < search.weights[b] || search.prices[a] > search.prices[b];
+
+                if (strictlyBetter || search.indexes[a] < search.indexes[b]) {
+                    dominators.get(b).add(a);
+                    dominated.get(a).add(b);
+                }
+            }
+        }
+
+        search.dominators   = dominators.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+        search.dominated    = dominated.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+    }
+
+    static int compareRatioDesc(ItemBatch itemBatch, int index1, int index2) {
+        // price1 / weight1 > price2 / weight2 <=> price1 * weight2 > price2 * weight1, items without weight come first
+        double ratio1 = (double) itemBatch.getFixedPrice(index1) * itemBatch.getFixedWeight(index2);
+        double ratio2 = (double) itemBatch.getFixedPrice(index2) * itemBatch.getFixedWeight(index1);
+
+        int comparison = Double.compare(ratio2, ratio1);
+
+        if (comparison == 0) {
+            comparison = Long.compare(itemBatch.getFixedWeight(index1) == 0 ? 0 : 1, itemBatch.getFixedWeight(index2) == 0 ? 0 : 1);
+        }
+        return comparison != 0 ? comparison : Integer.compare(index1, index2);
+    }
+}
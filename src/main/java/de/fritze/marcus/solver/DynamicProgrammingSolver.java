@@ -0,0 +1,135 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+import java.util.Arrays;
+
+/**
+ * This solver solves the 0/1 knapsack problem of a line with dynamic programming over the fixed-point weights
+ *
+ * weights are usually given with two decimals, so the ItemBatch scales them by 100 and we work with hundredths.
+ * for every reachable total weight w we keep the best total price and the highest amount of items,
+ * that's why the tie-break price desc, weight asc, amount of items desc is exact: the weight is the index of the table.
+ * the runtime is O(n * W) where W is the scaled max weight of the package (max 100 * 100 for two decimals)
+ *
+ * if the weights have so many decimals that the table gets too big we use the fallback solver, the table is too big if it has
+ * too many cells or if the arrays per weight (12 bytes for every weight up to the capacity) get too big, also for a line with few items.
+ * by default the MeetInTheMiddleSolver which doesn't depend on the amount of decimals
+ */
+public class DynamicProgrammingSolver implements KnapsackSolver {
+
+    /* the maximum amount of cells (items * weights) of the table, one bit per cell */
+    private static final long MAX_TABLE_CELLS = 1L << 29;
+
+    /* the maximum capacity + 1 of the table, the price and the amount of items per weight take 48 MB */
+    public static final long MAX_TABLE_WEIGHTS = 1L << 22;
+
+    private final KnapsackSolver fallbackSolver;
+
+    public DynamicProgrammingSolver() {
+        this(new MeetInTheMiddleSolver());
+    }
+
+    /**
+     * @param fallbackSolver is used for lines where the table would get too big
+     */
+    public DynamicProgrammingSolver(KnapsackSolver fallbackSolver) {
+        this.fallbackSolver = fallbackSolver;
+    }
+
+    @Override
+    public String getSettings() {
+        return getClass().getName() + "(" + fallbackSolver.getSettings() + ")";
+    }
+
+    @Override
+    public BitmaskPacket solve(ItemBatch itemBatch) {
+
+        int amountOfItems   = itemBatch.size();
+        long totalWeight    = 0;
+
+        for (int i = 0; i < amountOfItems; i++) {
+            totalWeight += itemBatch.getFixedWeight(i);
+        }
+
+        // we never need a bigger table than the weight of all items together
+        long capacity = Math.min(itemBatch.getFixedMaxWeightPackage(), totalWeight);
+
+        if (capacity < 0) {
+            return null;
+        }
+        if (capacity + 1 > MAX_TABLE_WEIGHTS || (capacity + 1) * amountOfItems > MAX_TABLE_CELLS) {
+            // the weights have too many decimals for a table
+            return fallbackSolver.solve(itemBatch);
+        }
+
+        int tableSize = (int) capacity + 1;
+
+        // bestPrice[w] is the best price of a subset with the total weight w, -1 if no subset has this weight
+        long[] bestPrice    = new long[tableSize];
+        int[] bestAmount    = new int[tableSize];
+        long[][] taken      = new long[amountOfItems][];
+
+        Arrays.fill(bestPrice, -1);
+        bestPrice[0] = 0;
+
+        long visitedCells = 0;
+
+        for (int i = 0; i < amountOfItems; i++) {
+            if (itemBatch.getFixedWeight(i) > capacity) {
+                // this item never fits into the package
+                continue;
+            }
+            int itemWeight  = (int) itemBatch.getFixedWeight(i);
+            long itemPrice  = itemBatch.getFixedPrice(i);
+            taken[i]        = new long[(tableSize + 63) >>> 6];
+            visitedCells    += tableSize - itemWeight;
+
+            // we loop downwards so every item is used at most once
+            for (int w = tableSize - 1; w >= itemWeight; w--) {
+                if (bestPrice[w - itemWeight] < 0) {
+                    continue;
+                }
+                long price  = bestPrice[w - itemWeight] + itemPrice;
+                int amount  = bestAmount[w - itemWeight] + 1;
+
+                // only a strictly better subset replaces the old one, so on a tie the subset without the later item wins
+                // like in the subset enumeration order
+                if (price > bestPrice[w] || (price == bestPrice[w] && amount > bestAmount[w])) {
+                    bestPrice[w]        = price;
+                    bestAmount[w]       = amount;
+                    taken[i][w >>> 6]   |= 1L << w;
+                }
+            }
+        }
+
+        SolverStatistics.addVisitedSubsets(visitedCells);
+
+        // the best packet has the highest price and on the same price the lowest weight, the empty packet is not valid
+        int bestWeight = -1;
+
+        for (int w = 0; w < tableSize; w++) {
+            if (bestAmount[w] > 0 && (bestWeight < 0 || bestPrice[w] > bestPrice[bestWeight])) {
+                bestWeight = w;
+            }
+        }
+
+        if (bestWeight < 0) {
+            return null;
+        }
+
+        // walk back through the table to get the items of the best packet
+        BitmaskPacket bestPacket    = new BitmaskPacket(itemBatch);
+        int w                       = bestWeight;
+
+        for (int i = amountOfItems - 1; i >= 0; i--) {
+            if (taken[i] != null && (taken[i][w >>> 6] & (1L << w)) != 0) {
+                bestPacket.addItem(i);
+                w -= (int) itemBatch.getFixedWeight(i);
+            }
+        }
+
+        return bestPacket;
+    }
+}
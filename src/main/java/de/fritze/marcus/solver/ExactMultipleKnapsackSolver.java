@@ -0,0 +1,243 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This solver tries the assignments of the items to the packages depth-first and prunes the branches that can't beat the best solution
+ *
+ * 1. the items are ordered by price/weight ratio descending and every item goes into one of the packages or into no package
+ * 2. packages with the same free space are the same for the following items, so an item only tries the first of them
+ * 3. the upper bound of a branch is the LP relaxation over the free space of all packages together,
+ *    only branches with a bound lower than the best price are pruned, so a solution with the same price and a lower weight is found too
+ *
+ * the search is exponential in the amount of items and grows with the amount of packages, lines with more than maxItems items
+ * are solved by the fallback solver. the search stops after maxVisitedAssignments branches, then the better one of
+ * the best solution found so far and the solution of the fallback solver is taken, so a line never takes much longer than this budget
+ */
+public class ExactMultipleKnapsackSolver implements MultipleKnapsackSolver {
+
+    /* with more items the exact search takes too long for one line */
+    public static final int MAX_ITEMS = 20;
+
+    /* the branches of one line, a few tens of milliseconds */
+    public static final long MAX_VISITED_ASSIGNMENTS = 2_000_000;
+
+    private final int maxItems;
+    private final long maxVisitedAssignments;
+    private final MultipleKnapsackSolver fallbackSolver;
+
+    public ExactMultipleKnapsackSolver() {
+        this(MAX_ITEMS, MAX_VISITED_ASSIGNMENTS, new GreedyLocalSearchSolver());
+    }
+
+    /**
+     * @param maxItems the most items a line can have for the exact search
+     * @param maxVisitedAssignments the branches of the search for one line before the fallback solver is asked
+     * @param fallbackSolver is used for lines with more than maxItems items or if the search is stopped
+     */
+    public ExactMultipleKnapsackSolver(int maxItems, long maxVisitedAssignments, MultipleKnapsackSolver fallbackSolver) {
+        if (maxVisitedAssignments < 1) {
+            throw new IllegalArgumentException("The max visited assignments must be at least 1");
+        }
+        this.maxItems               = maxItems;
+        this.maxVisitedAssignments  = maxVisitedAssignments;
+        this.fallbackSolver         = fallbackSolver;
+    }
+
+    /**
+     * the state of one search, the arrays are in the order of the price/weight ratio
+     */
+    private static class Search {
+
+        int amountOfItems;
+        int[] indexes;
+        long[] weights;
+        long[] prices;
+        long[] residuals;
+
+        int[] currentAssignment;
+        long currentPrice;
+        long currentWeight;
+        int currentAmount;
+
+        int[] bestAssignment;
+        long bestPrice;
+        long bestWeight;
+        int bestAmount;
+
+        long visitedAssignments;
+        long maxVisitedAssignments;
+        boolean stopped;
+    }
+
+    @Override
+    public String getSettings() {
+        return getClass().getName() + "(" + maxItems + "," + maxVisitedAssignments + "," + fallbackSolver.getSettings() + ")";
+    }
+
+    @Override
+    public List<BitmaskPacket> solve(ItemBatch itemBatch, int amountOfPackages) {
+
+        if (itemBatch.size() > maxItems) {
+            return fallbackSolver.solve(itemBatch, amountOfPackages);
+        }
+
+        Search search               = new Search();
+        search.indexes              = GreedyLocalSearchSolver.orderByRatio(itemBatch);
+        search.amountOfItems        = search.indexes.length;
+        search.weights              = Arrays.stream(search.indexes).mapToLong(itemBatch::getFixedWeight).toArray();
+        search.prices               = Arrays.stream(search.indexes).mapToLong(itemBatch::getFixedPrice).toArray();
+        // more packages than items stay empty, so they are left out of the search
+        search.residuals            = new long[Math.min(amountOfPackages, Math.max(1, search.amountOfItems))];
+        search.currentAssignment    = new int[search.amountOfItems];
+        search.bestAssignment       = new int[search.amountOfItems];
+        search.maxVisitedAssignments = maxVisitedAssignments;
+
+        Arrays.fill(search.residuals, itemBatch.getFixedMaxWeightPackage());
+        Arrays.fill(search.bestAssignment, -1);
+
+        branch(search, 0);
+        SolverStatistics.addVisitedSubsets(search.visitedAssignments);
+
+        // the assignment in the order of the ItemBatch
+        int[] assignment = new int[itemBatch.size()];
+
+        for (int position = 0; position < search.amountOfItems; position++) {
+            assignment[search.indexes[position]] = search.bestAssignment[position];
+        }
+        List<BitmaskPacket> packets = MultipleKnapsackSolver.toPackets(itemBatch, assignment, amountOfPackages);
+
+        if (search.stopped) {
+            // the budget is over, the best solution so far may be worse than the fallback
+            List<BitmaskPacket> fallbackPackets = fallbackSolver.solve(itemBatch, amountOfPackages);
+
+            if (compare(fallbackPackets, packets) < 0) {
+                return fallbackPackets;
+            }
+        }
+        return packets;
+    }
+
+    /**
+     * compares the solutions by the total price, the total weight and the amount of items like compareSolutions
+     *
+     * @param packets1
+     * @param packets2
+     * @return
+     */
+    private static int compare(List<BitmaskPacket> packets1, List<BitmaskPacket> packets2) {
+        long[] totals1 = totals(packets1);
+        long[] totals2 = totals(packets2);
+
+        return MultipleKnapsackSolver.compareSolutions(totals1[0], totals1[1], (int) totals1[2], totals2[0], totals2[1], (int) totals2[2]);
+    }
+
+    private static long[] totals(List<BitmaskPacket> packets) {
+        long[] totals = new long[3];
+
+        for (BitmaskPacket packet : packets) {
+            totals[0] += packet.getTotalPrice();
+            totals[1] += packet.getTotalWeight();
+            totals[2] += packet.getAmountOfItems();
+        }
+        return totals;
+    }
+
+    /**
+     * decides the package of the item at the position and of all following items
+     *
+     * @param search
+     * @param position
+     */
+    private static void branch(Search search, int position) {
+        if (search.stopped || ++search.visitedAssignments > search.maxVisitedAssignments) {
+            search.stopped = true;
+            return;
+        }
+
+        if (position == search.amountOfItems) {
+            if (MultipleKnapsackSolver.compareSolutions(search.currentPrice, search.currentWeight, search.currentAmount,
+                    search.bestPrice, search.bestWeight, search.bestAmount) < 0) {
+                search.bestPrice    = search.currentPrice;
+                search.bestWeight   = search.currentWeight;
+                search.bestAmount   = search.currentAmount;
+                System.arraycopy(search.currentAssignment, 0, search.bestAssignment, 0, search.amountOfItems);
+            }
+            return;
+        }
+
+        // 3. the rest can't reach the best price
+        if (search.currentPrice + upperBound(search, position) < search.bestPrice) {
+            return;
+        }
+
+        long weight = search.weights[position];
+
+        for (int packageIndex = 0; packageIndex < search.residuals.length; packageIndex++) {
+            if (search.residuals[packageIndex] < weight || hasSameResidualBefore(search, packageIndex)) {
+                continue;
+            }
+            search.residuals[packageIndex]      -= weight;
+            search.currentAssignment[position]  = packageIndex;
+            search.currentPrice                 += search.prices[position];
+            search.currentWeight                += weight;
+            search.currentAmount++;
+
+            branch(search, position + 1);
+
+            search.residuals[packageIndex]      += weight;
+            search.currentPrice                 -= search.prices[position];
+            search.currentWeight                -= weight;
+            search.currentAmount--;
+        }
+
+        search.currentAssignment[position] = -1;
+        branch(search, position + 1);
+    }
+
+    /**
+     * 2. a package with the same free space like a package before gives the same solutions
+     *
+     * @param search
+     * @param packageIndex
+     * @return
+     */
+    private static boolean hasSameResidualBefore(Search search, int packageIndex) {
+        for (int before = 0; before < packageIndex; before++) {
+            if (search.residuals[before] == search.residuals[packageIndex]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * the fractional knapsack over the items from the position with the free space of all packages,
+     * rounded up, so the bound is never lower than the best price of the branch
+     *
+     * @param search
+     * @param position
+     * @return
+     */
+    private static long upperBound(Search search, int position) {
+        long space  = 0;
+        long bound  = 0;
+
+        for (long residual : search.residuals) {
+            space += residual;
+        }
+        for (int i = position; i < search.amountOfItems; i++) {
+            if (search.weights[i] <= space) {
+                space -= search.weights[i];
+                bound += search.prices[i];
+            } else {
+                return bound + (long) Math.ceil((double) search.prices[i] * space / search.weights[i]) + 1;
+            }
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,281 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+import java.util.Arrays;
+
+/**
+ * This solver approximates the 0/1 knapsack problem of a line with the FPTAS (fully polynomial-time approximation scheme) over the prices
+ *
+ * the prices are divided by K = epsilon * maxPrice / n and rounded down, then a dynamic programming finds the lightest subset
+ * for every rounded total price. the packet with the highest rounded price that fits has at least (1 - epsilon) of the best price,
+ * the runtime is O(n^3 / epsilon) and doesn't depend on the max weight or the decimals. if K would be below 1 the prices are not rounded,
+ * so short lines with few decimals are solved exactly
+ *
+ * the table has at most maxTableCells cells and at most MAX_TABLE_PRICES rounded prices (8 bytes each, also for a line with one item),
+ * for a long line or large prices K is raised to totalPrice * n / maxTableCells or totalPrice / MAX_TABLE_PRICES.
+ * then the (1 - epsilon) doesn't hold anymore, the found price is only at least the best price - n * K
+ *
+ * with a time budget the items that are not in the table when the budget runs out are left out of the table,
+ * the items are added in the order of the ratio so the table already has the valuable items. the result is the better one
+ * of the table and the greedy packet, so there is always a packet. the guaranteed optimality gap of the line is given
+ * to the SolverStatistics, the best price is at most the LP bound and with a complete table also at most the found price + n * K.
+ * this gap is calculated with the K that was used, so it is also the real guarantee of a line with a raised K or an exhausted budget
+ *
+ * the result is an approximation, so on equal prices it doesn't follow the tie-break of the exact solvers
+ */
+public class FptasSolver implements KnapsackSolver {
+
+    public static final double DEFAULT_EPSILON = 0.1;
+
+    /* the maximum amount of cells (items * rounded prices) of the table, one bit per cell */
+    public static final long MAX_TABLE_CELLS = 1L << 29;
+
+    /* the maximum sum of the rounded prices, the lightest weight per rounded price takes 32 MB */
+    public static final long MAX_TABLE_PRICES = 1L << 22;
+
+    private final double epsilon;
+    private final long timeBudgetNanos;
+    private final long maxTableCells;
+
+    public FptasSolver() {
+        this(DEFAULT_EPSILON, 0);
+    }
+
+    /**
+     * @param epsilon the found price is at least (1 - epsilon) of the best price, between 0 and 1
+     * @param timeBudgetNanos the time for the table of one line in nanoseconds, 0 for no limit
+     */
+    public FptasSolver(double epsilon, long timeBudgetNanos) {
+        this(epsilon, timeBudgetNanos, MAX_TABLE_CELLS);
+    }
+
+    /**
+     * @param epsilon the found price is at least (1 - epsilon) of the best price as long as the table has at most maxTableCells cells, between 0 and 1
+     * @param timeBudgetNanos the time for the table of one line in nanoseconds, 0 for no limit
+     * @param maxTableCells the cells of the table of one line, a line that needs more cells is rounded coarser than epsilon
+     */
+    public FptasSolver(double epsilon, long timeBudgetNanos, long maxTableCells) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("The epsilon must be between 0 and 1");
+        }
+        if (timeBudgetNanos < 0) {
+            throw new IllegalArgumentException("The time budget must not be negative");
+        }
+        if (maxTableCells < 1) {
+            throw new IllegalArgumentException("The max table cells must be at least 1");
+        }
+        this.epsilon            = epsilon;
+        this.timeBudgetNanos    = timeBudgetNanos;
+        this.maxTableCells      = maxTableCells;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    public long getTimeBudgetNanos() {
+        return timeBudgetNanos;
+    }
+
+    public long getMaxTableCells() {
+        return maxTableCells;
+    }
+
+    @Override
+    public String getSettings() {
+        return getClass().getName() + "(" + epsilon + "," + timeBudgetNanos + "," + maxTableCells + ")";
+    }
+
+    @Override
+    public BitmaskPacket solve(ItemBatch itemBatch) {
+
+        long startNanos = System.nanoTime();
+        long capacity   = itemBatch.getFixedMaxWeightPackage();
+
+        // items that are heavier than the package never fit, the others are sorted by the ratio
+        int[] order = Arrays.stream(GreedyLocalSearchSolver.orderByRatio(itemBatch))
+                .filter(index -> itemBatch.getFixedWeight(index) <= capacity)
+                .toArray();
+
+        int amountOfItems = order.length;
+
+        if (amountOfItems == 0) {
+            SolverStatistics.setOptimalityGap(0);
+            return null;
+        }
+
+        long maxPrice   = 0;
+        long totalPrice = 0;
+
+        for (int index : order) {
+            maxPrice    = Math.max(maxPrice, itemBatch.getFixedPrice(index));
+            totalPrice  += itemBatch.getFixedPrice(index);
+        }
+
+        // K is at least 1 and big enough that the table stays small. if the size of the table raises K above epsilon * maxPrice / n
+        // the found price may be below (1 - epsilon) of the best price, the gap of the line is calculated with this K below
+        double scale = Math.max(1, Math.max(epsilon * maxPrice / amountOfItems,
+                Math.max((double) totalPrice * amountOfItems / maxTableCells, (double) totalPrice / MAX_TABLE_PRICES)));
+
+        int[] roundedPrices = new int[amountOfItems];
+        int totalRounded    = 0;
+
+        for (int i = 0; i < amountOfItems; i++) {
+            roundedPrices[i]    = (int) (itemBatch.getFixedPrice(order[i]) / scale);
+            totalRounded        += roundedPrices[i];
+        }
+
+        // lightest[q] is the lowest weight of a subset with the rounded price q, Long.MAX_VALUE if no subset has this price
+        long[] lightest     = new long[totalRounded + 1];
+        long[][] taken      = new long[amountOfItems][];
+        int reachable       = 0;
+        int decidedItems    = 0;
+        long visitedCells   = 0;
+
+        Arrays.fill(lightest, Long.MAX_VALUE);
+        lightest[0] = 0;
+
+        for (int i = 0; i < amountOfItems; i++) {
+            if (timeBudgetNanos > 0 && System.nanoTime() - startNanos > timeBudgetNanos) {
+                // the budget is over, the rest of the items are left out of the table
+                break;
+            }
+            long itemWeight = itemBatch.getFixedWeight(order[i]);
+            int itemPrice   = roundedPrices[i];
+            taken[i]        = new long[(totalRounded + 64) >>> 6];
+
+            // we loop downwards so every item is used at most once
+            for (int q = reachable; q >= 0; q--) {
+                if (lightest[q] != Long.MAX_VALUE && lightest[q] + itemWeight <= capacity && lightest[q] + itemWeight < lightest[q + itemPrice]) {
+                    lightest[q + itemPrice]                 = lightest[q] + itemWeight;
+                    taken[i][(q + itemPrice) >>> 6]         |= 1L << (q + itemPrice);
+                }
+            }
+            visitedCells    += reachable + 1;
+            reachable       += itemPrice;
+            decidedItems++;
+        }
+
+        SolverStatistics.addVisitedSubsets(visitedCells);
+
+        BitmaskPacket bestPacket    = greedyPacket(itemBatch, order, capacity);
+        BitmaskPacket tablePacket   = tablePacket(itemBatch, order, roundedPrices, lightest, taken, reachable, capacity);
+
+        if (BitmaskPacket.PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDesc.compare(tablePacket, bestPacket) < 0) {
+            bestPacket = tablePacket;
+        }
+
+        // every item of the best subset loses less than K by the rounding, so with all items in the table the best price is below found + n * K,
+        // this is the real guarantee of the line also if K was raised for the size of the table
+        double upperBound = lpBound(itemBatch, order, capacity);
+
+        if (decidedItems == amountOfItems) {
+            upperBound = Math.min(upperBound, bestPacket.getTotalPrice() + (scale > 1 ? amountOfItems * scale : 0));
+        }
+        SolverStatistics.setOptimalityGap(upperBound > 0 ? Math.max(0, 1 - bestPacket.getTotalPrice() / upperBound) : 0);
+
+        return bestPacket.getAmountOfItems() > 0 ? bestPacket : null;
+    }
+
+    /**
+     * the items in the order of the ratio as long as they fit, or only the most expensive item if it is better,
+     * this packet has at least half of the best price
+     *
+     * @param itemBatch
+     * @param order the items that fit, sorted by the ratio
+     * @param capacity
+     * @return
+     */
+    private static BitmaskPacket greedyPacket(ItemBatch itemBatch, int[] order, long capacity) {
+        BitmaskPacket greedyPacket  = new BitmaskPacket(itemBatch);
+        int mostExpensive           = order[0];
+
+        fill(greedyPacket, order, capacity);
+
+        for (int index : order) {
+            if (itemBatch.getFixedPrice(index) > itemBatch.getFixedPrice(mostExpensive)) {
+                mostExpensive = index;
+            }
+        }
+
+        BitmaskPacket expensivePacket = new BitmaskPacket(itemBatch);
+        expensivePacket.addItem(mostExpensive);
+
+        return BitmaskPacket.PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDesc.compare(expensivePacket, greedyPacket) < 0
+                ? expensivePacket
+                : greedyPacket;
+    }
+
+    /**
+     * walks back through the table from the highest rounded price that was reached, the free weight is filled
+     * with the items in the order of the ratio, for example with the items that were rounded to 0
+     *
+     * @return
+     */
+    private static BitmaskPacket tablePacket(ItemBatch itemBatch, int[] order, int[] roundedPrices, long[] lightest, long[][] taken, int reachable, long capacity) {
+        BitmaskPacket packet    = new BitmaskPacket(itemBatch);
+        int q                   = reachable;
+
+        while (lightest[q] == Long.MAX_VALUE) {
+            q--;
+        }
+
+        for (int i = order.length - 1; i >= 0 && q > 0; i--) {
+            if (taken[i] != null && (taken[i][q >>> 6] & (1L << q)) != 0) {
+                packet.addItem(order[i]);
+                q -= roundedPrices[i];
+            }
+        }
+
+        fill(packet, order, capacity);
+        return packet;
+    }
+
+    /**
+     * adds the items in the order as long as they fit and make the packet better
+     *
+     * @param packet
+     * @param order
+     * @param capacity
+     */
+    private static void fill(BitmaskPacket packet, int[] order, long capacity) {
+        ItemBatch itemBatch = packet.getItemBatch();
+
+        for (int index : order) {
+            // an item without price only makes the packet better if it has no weight
+            boolean improves = itemBatch.getFixedPrice(index) > 0 || itemBatch.getFixedWeight(index) == 0;
+
+            if (improves && packet.getTotalWeight() + itemBatch.getFixedWeight(index) <= capacity) {
+                packet.addItem(index);
+            }
+        }
+    }
+
+    /**
+     * the LP relaxation: the items in the order of the ratio and a part of the first item that doesn't fit
+     *
+     * @param itemBatch
+     * @param order the items that fit, sorted by the ratio
+     * @param capacity
+     * @return an upper bound of the best price
+     */
+    private static double lpBound(ItemBatch itemBatch, int[] order, long capacity) {
+        long freeWeight = capacity;
+        double bound    = 0;
+
+        for (int index : order) {
+            long weight = itemBatch.getFixedWeight(index);
+            long price  = itemBatch.getFixedPrice(index);
+
+            if (weight <= freeWeight) {
+                freeWeight  -= weight;
+                bound       += price;
+            } else {
+                return bound + (double) price * freeWeight / weight;
+            }
+        }
+        return bound;
+    }
+}
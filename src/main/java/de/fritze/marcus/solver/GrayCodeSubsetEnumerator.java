@@ -0,0 +1,115 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+/**
+ * This enumerates all 2^n subsets of the items of an ItemBatch in the Gray code order over a long mask
+ *
+ * two following subsets differ in exactly one item, so every step adds or removes one item from the running sums
+ * of the fixed-point weight and price, without any allocation per subset. it starts with the empty subset,
+ * after next returned true the current subset is getMask (bit i is the item at index i)
+ *
+ * the Gray code order is not the subset order of a binary counter, a solver that breaks ties by the subset order
+ * has to compare the masks with compareSubsetOrder
+ */
+public final class GrayCodeSubsetEnumerator {
+
+    /* the mask is a long and the counter must not overflow */
+    public static final int MAX_ITEMS = Long.SIZE - 1;
+
+    private final ItemBatch itemBatch;
+    private final long amountOfSubsets;
+
+    private long counter        = 0;
+    private long mask           = 0;
+    private long totalWeight    = 0;
+    private long totalPrice     = 0;
+    private int amountOfItems   = 0;
+
+    /**
+     * @param itemBatch with up to MAX_ITEMS items
+     */
+    public GrayCodeSubsetEnumerator(ItemBatch itemBatch) {
+        if (itemBatch.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("The subsets of " + itemBatch.size() + " items can't be enumerated, the maximum is " + MAX_ITEMS);
+        }
+        this.itemBatch          = itemBatch;
+        this.amountOfSubsets    = 1L << itemBatch.size();
+    }
+
+    /**
+     * moves to the next subset by adding or removing the item of the lowest set bit of the counter
+     *
+     * @return false if all subsets were visited
+     */
+    public boolean next() {
+        if (++counter >= amountOfSubsets) {
+            return false;
+        }
+        int index   = Long.numberOfTrailingZeros(counter);
+        long bit    = 1L << index;
+
+        mask ^= bit;
+
+        if ((mask & bit) != 0) {
+            totalWeight += itemBatch.getFixedWeight(index);
+            totalPrice  += itemBatch.getFixedPrice(index);
+            amountOfItems++;
+        } else {
+            totalWeight -= itemBatch.getFixedWeight(index);
+            totalPrice  -= itemBatch.getFixedPrice(index);
+            amountOfItems--;
+        }
+        return true;
+    }
+
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * @return the total weight of the current subset scaled by 10^weightScale of the ItemBatch
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * @return the total price of the current subset scaled by 10^priceScale of the ItemBatch
+     */
+    public long getTotalPrice() {
+        return totalPrice;
+    }
+
+    public int getAmountOfItems() {
+        return amountOfItems;
+    }
+
+    /**
+     * creates a packet with the items of the mask
+     *
+     * @param itemBatch
+     * @param mask
+     * @return
+     */
+    public static BitmaskPacket createPacket(ItemBatch itemBatch, long mask) {
+        BitmaskPacket packet = new BitmaskPacket(itemBatch);
+
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            packet.addItem(Long.numberOfTrailingZeros(rest));
+        }
+        return packet;
+    }
+
+    /**
+     * compares the masks in the subset order of a binary counter like BitmaskPacket.compareSubsetOrder
+     *
+     * @param mask1
+     * @param mask2
+     * @return
+     */
+    public static int compareSubsetOrder(long mask1, long mask2) {
+        return Long.compareUnsigned(mask1, mask2);
+    }
+}
@@ -0,0 +1,211 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This heuristic fills the packages greedy and improves the solution with a local search
+ *
+ * 1. the items are ordered by price/weight ratio descending and every item goes into the fullest package it fits into (best fit)
+ * 2. the local search repeats these moves until no move improves the solution:
+ *    - an item that is in no package goes into a package with enough space
+ *    - an item that is in no package replaces a cheaper item (or an equal priced heavier item) of a package
+ *    - an item of a package moves into another package, so an item that is in no package fits into the free space
+ *
+ * every move makes the solution better, so the search ends. the result is not always the best solution,
+ * but it's found in O(n^2 * packages) per round instead of trying all assignments
+ */
+public class GreedyLocalSearchSolver implements MultipleKnapsackSolver {
+
+    /**
+     * the state of one solution, the arrays are in the order of the ItemBatch
+     */
+    private static class Solution {
+
+        ItemBatch itemBatch;
+        int amountOfItems;
+        long capacity;
+        int[] assignment;
+        long[] residuals;
+        int[] order;
+        long visitedMoves;
+
+        long weight(int index) {
+            return itemBatch.getFixedWeight(index);
+        }
+
+        long price(int index) {
+            return itemBatch.getFixedPrice(index);
+        }
+
+        void assign(int index, int packageIndex) {
+            if (assignment[index] >= 0) {
+                residuals[assignment[index]] += weight(index);
+            }
+            if (packageIndex >= 0) {
+                residuals[packageIndex] -= weight(index);
+            }
+            assignment[index] = packageIndex;
+        }
+    }
+
+    @Override
+    public List<BitmaskPacket> solve(ItemBatch itemBatch, int amountOfPackages) {
+
+        Solution solution       = new Solution();
+        solution.itemBatch      = itemBatch;
+        solution.amountOfItems  = itemBatch.size();
+        solution.capacity       = itemBatch.getFixedMaxWeightPackage();
+        solution.assignment     = new int[solution.amountOfItems];
+        // more packages than items stay empty
+        solution.residuals      = new long[Math.min(amountOfPackages, Math.max(1, solution.amountOfItems))];
+        solution.order          = orderByRatio(itemBatch);
+
+        Arrays.fill(solution.assignment, -1);
+        Arrays.fill(solution.residuals, solution.capacity);
+
+        // 1. best fit in the order of the ratio
+        for (int index : solution.order) {
+            if (improvesByInsert(solution, index)) {
+                solution.assign(index, bestFit(solution, solution.weight(index), -1));
+            }
+        }
+
+        // 2. local search
+        boolean improved = true;
+
+        while (improved) {
+            improved = false;
+
+            for (int index : solution.order) {
+                if (solution.assignment[index] < 0 && solution.weight(index) <= solution.capacity) {
+                    improved |= insert(solution, index) || swap(solution, index) || moveAndInsert(solution, index);
+                }
+            }
+        }
+        SolverStatistics.addVisitedSubsets(solution.visitedMoves);
+
+        return MultipleKnapsackSolver.toPackets(itemBatch, solution.assignment, amountOfPackages);
+    }
+
+    /**
+     * @param itemBatch
+     * @return the indexes of the items ordered by price/weight ratio descending
+     */
+    static int[] orderByRatio(ItemBatch itemBatch) {
+        return IntStream.range(0, itemBatch.size()).boxed()
+                .sorted((index1, index2) -> BranchAndBoundSolver.compareRatioDesc(itemBatch, index1, index2))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * an item without price only makes the solution better if it has no weight, because a lower weight is better
+     *
+     * @param solution
+     * @param index
+     * @return true if adding the item makes the solution better
+     */
+    private static boolean improvesByInsert(Solution solution, int index) {
+        return solution.price(index) > 0 || solution.weight(index) == 0;
+    }
+
+    /**
+     * @param solution
+     * @param weight
+     * @param excludedPackage this package is not used or -1
+     * @return the package with the smallest free space that the weight fits into or -1 if it fits nowhere
+     */
+    private static int bestFit(Solution solution, long weight, int excludedPackage) {
+        int bestPackage = -1;
+
+        for (int packageIndex = 0; packageIndex < solution.residuals.length; packageIndex++) {
+            if (packageIndex != excludedPackage && solution.residuals[packageIndex] >= weight
+                    && (bestPackage < 0 || solution.residuals[packageIndex] < solution.residuals[bestPackage])) {
+                bestPackage = packageIndex;
+            }
+        }
+        return bestPackage;
+    }
+
+    /**
+     * puts the item into a package with enough space
+     *
+     * @param solution
+     * @param index
+     * @return true if the item was added
+     */
+    private static boolean insert(Solution solution, int index) {
+        solution.visitedMoves++;
+
+        int packageIndex = bestFit(solution, solution.weight(index), -1);
+
+        if (packageIndex < 0 || !improvesByInsert(solution, index)) {
+            return false;
+        }
+        solution.assign(index, packageIndex);
+        return true;
+    }
+
+    /**
+     * replaces a worse item of a package with the item, the replaced item is in no package after that
+     *
+     * @param solution
+     * @param index
+     * @return true if the items were swapped
+     */
+    private static boolean swap(Solution solution, int index) {
+        for (int other = 0; other < solution.amountOfItems; other++) {
+            int packageIndex = solution.assignment[other];
+
+            if (packageIndex < 0) {
+                continue;
+            }
+            solution.visitedMoves++;
+
+            boolean better = solution.price(index) > solution.price(other)
+                    || (solution.price(index) == solution.price(other) && solution.weight(index) < solution.weight(other));
+
+            if (better && solution.residuals[packageIndex] + solution.weight(other) >= solution.weight(index)) {
+                solution.assign(other, -1);
+                solution.assign(index, packageIndex);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * moves an item of a package into another package, so the item fits into the free space
+     *
+     * @param solution
+     * @param index
+     * @return true if an item was moved and the item was added
+     */
+    private static boolean moveAndInsert(Solution solution, int index) {
+        if (!improvesByInsert(solution, index)) {
+            return false;
+        }
+
+        for (int other = 0; other < solution.amountOfItems; other++) {
+            int packageIndex = solution.assignment[other];
+
+            if (packageIndex < 0 || solution.residuals[packageIndex] + solution.weight(other) < solution.weight(index)) {
+                continue;
+            }
+            solution.visitedMoves++;
+
+            int targetPackage = bestFit(solution, solution.weight(other), packageIndex);
+
+            if (targetPackage >= 0) {
+                solution.assign(other, targetPackage);
+                solution.assign(index, packageIndex);
+                return true;
+            }
+        }
+        return false;
+    }
+}
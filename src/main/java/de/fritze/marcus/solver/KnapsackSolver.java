@@ -0,0 +1,80 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.model.PackageItem;
+import de.fritze.marcus.model.Packet;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A KnapsackSolver chooses the best packet for one line
+ *
+ * the best packet is the one that comes first in BitmaskPacket.PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDesc,
+ * if two packets are equal in price, weight and amount of items the subset that comes first in the subset order
+ * (item 1 is the lowest bit of a binary counter) is chosen, so every solver gives the same result as the subset enumeration
+ */
+public interface KnapsackSolver {
+
+    /**
+     * solves the line and returns the best packet or null if no packet with at least one item fits into the package
+     *
+     * @param itemBatch
+     * @return
+     */
+    BitmaskPacket solve(ItemBatch itemBatch);
+
+    /**
+     * @return true if solveAlternatives gives more than the best packet
+     */
+    default boolean hasAlternatives() {
+        return false;
+    }
+
+    /**
+     * solves the line and returns up to alternatives packets, the best packet first
+     * solvers that only find the best packet return only this one, see hasAlternatives
+     *
+     * @param itemBatch
+     * @param alternatives
+     * @return
+     */
+    default List<BitmaskPacket> solveAlternatives(ItemBatch itemBatch, int alternatives) {
+        BitmaskPacket bestPacket = solve(itemBatch);
+
+        return bestPacket != null ? Collections.singletonList(bestPacket) : Collections.emptyList();
+    }
+
+    /**
+     * solves the line given as PackageItem's and returns the best Packet or null if no packet fits into the package
+     *
+     * @param maxWeightPackage
+     * @param packageItems
+     * @return
+     */
+    default Packet solve(float maxWeightPackage, List<PackageItem> packageItems) {
+        BitmaskPacket bestPacket = solve(ItemBatch.fromPackageItems(maxWeightPackage, packageItems));
+
+        return bestPacket != null ? bestPacket.toPacket() : null;
+    }
+
+    /**
+     * the most items of a line that the solver can solve, the Packager rejects a longer line with an AppException
+     *
+     * @return
+     */
+    default int getMaxItems() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * the name and the settings of the solver, solvers with other settings can choose other packets for the same line,
+     * so the SolutionCache keeps their lines apart
+     *
+     * @return
+     */
+    default String getSettings() {
+        return getClass().getName();
+    }
+}
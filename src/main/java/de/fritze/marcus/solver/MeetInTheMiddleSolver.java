@@ -0,0 +1,305 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+import java.util.Arrays;
+
+/**
+ * This solver splits the items into a lower and an upper half and enumerates the 2^(n/2) subsets of each half
+ *
+ * the subsets of a half are built sorted by weight: we start with the empty subset and for every item we merge the list
+ * with a copy of the list where the item is added, both lists are sorted, so no sort is needed (Horowitz-Sahni).
+ * from the lower half we only keep the subsets that are not dominated (a lighter subset with at least the same price exists),
+ * so the price grows with the weight and for every subset of the upper half a binary search finds the best fitting lower subset.
+ *
+ * the solver only works with the fixed-point sums, so it doesn't depend on the amount of decimals of the weights,
+ * the runtime is O(2^(n/2) * n) and the memory O(2^(n/2)), that's fine for up to about 40 items
+ */
+public class MeetInTheMiddleSolver implements KnapsackSolver {
+
+    /* with more items the subsets of one half don't fit into memory */
+    public static final int MAX_ITEMS = 44;
+
+    private final KnapsackSolver fallbackSolver;
+
+    public MeetInTheMiddleSolver() {
+        this(new BranchAndBoundSolver());
+    }
+
+    /**
+     * @param fallbackSolver is used for lines with more than MAX_ITEMS items
+     */
+    public MeetInTheMiddleSolver(KnapsackSolver fallbackSolver) {
+        this.fallbackSolver = fallbackSolver;
+    }
+
+    /**
+     * the subsets of one half as parallel arrays, sorted by weight asc, price desc, amount of items desc, mask asc
+     */
+    private static class HalfSubsets {
+
+        long[] weights;
+        long[] prices;
+        int[] amounts;
+        long[] masks;
+        int size;
+
+        HalfSubsets(int capacity) {
+            weights = new long[capacity];
+            prices  = new long[capacity];
+            amounts = new int[capacity];
+            masks   = new long[capacity];
+        }
+
+        /**
+         * the arrays only grow when they are needed, because subsets that don't fit are never stored
+         *
+         * @param capacity
+         */
+        void ensureCapacity(int capacity) {
+            if (weights.length < capacity) {
+                weights = Arrays.copyOf(weights, capacity);
+                prices  = Arrays.copyOf(prices, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+                masks   = Arrays.copyOf(masks, capacity);
+            }
+        }
+    }
+
+    @Override
+    public String getSettings() {
+        return getClass().getName() + "(" + fallbackSolver.getSettings() + ")";
+    }
+
+    @Override
+    public BitmaskPacket solve(ItemBatch itemBatch) {
+
+        int amountOfItems = itemBatch.size();
+
+        if (amountOfItems > MAX_ITEMS) {
+            return fallbackSolver.solve(itemBatch);
+        }
+
+        long capacity   = itemBatch.getFixedMaxWeightPackage();
+        int lowerItems  = amountOfItems / 2;
+
+        HalfSubsets lower = enumerateSubsets(itemBatch, 0, lowerItems, capacity);
+        HalfSubsets upper = enumerateSubsets(itemBatch, lowerItems, amountOfItems, capacity);
+
+        SolverStatistics.addVisitedSubsets(lower.size + upper.size);
+
+        // the empty upper subset needs a lower subset with at least one item, so we look for it before we prune the lower half
+        int bestLowerAlone = -1;
+
+        for (int i = 0; i < lower.size; i++) {
+            if (lower.amounts[i] > 0 && (bestLowerAlone < 0 || isBetter(lower.prices[i], lower.weights[i], lower.amounts[i], 0, lower.masks[i],
+                    lower.prices[bestLowerAlone], lower.weights[bestLowerAlone], lower.amounts[bestLowerAlone], 0, lower.masks[bestLowerAlone]))) {
+                bestLowerAlone = i;
+            }
+        }
+
+        pruneDominated(lower);
+
+        boolean found       = false;
+        long bestPrice      = 0;
+        long bestWeight     = 0;
+        int bestAmount      = 0;
+        long bestUpperMask  = 0;
+        long bestLowerMask  = 0;
+
+        for (int u = 0; u < upper.size; u++) {
+            int l;
+
+            if (upper.amounts[u] == 0) {
+                l = bestLowerAlone;
+            } else {
+                // the heaviest lower subset that fits is the best one, because the pruned lower half has growing prices
+                l = lastFitting(lower, capacity - upper.weights[u]);
+            }
+            if (l < 0) {
+                continue;
+            }
+
+            long price  = upper.prices[u] + lower.prices[l];
+            long weight = upper.weights[u] + lower.weights[l];
+            int amount  = upper.amounts[u] + lower.amounts[l];
+
+            if (!found || isBetter(price, weight, amount, upper.masks[u], lower.masks[l], bestPrice, bestWeight, bestAmount, bestUpperMask, bestLowerMask)) {
+                found           = true;
+                bestPrice       = price;
+                bestWeight      = weight;
+                bestAmount      = amount;
+                bestUpperMask   = upper.masks[u];
+                bestLowerMask   = lower.masks[l];
+            }
+        }
+
+        if (!found) {
+            return null;
+        }
+
+        BitmaskPacket bestPacket = new BitmaskPacket(itemBatch);
+
+        for (int i = 0; i < lowerItems; i++) {
+            if ((bestLowerMask & (1L << i)) != 0) {
+                bestPacket.addItem(i);
+            }
+        }
+        for (int i = lowerItems; i < amountOfItems; i++) {
+            if ((bestUpperMask & (1L << (i - lowerItems))) != 0) {
+                bestPacket.addItem(i);
+            }
+        }
+        return bestPacket;
+    }
+
+    /**
+     * builds all subsets of the items from (inclusive) to (exclusive) that fit into the package, sorted by weight
+     *
+     * @param itemBatch
+     * @param from
+     * @param to
+     * @param capacity
+     * @return
+     */
+    private static HalfSubsets enumerateSubsets(ItemBatch itemBatch, int from, int to, long capacity) {
+        HalfSubsets subsets = new HalfSubsets(16);
+        HalfSubsets merged  = new HalfSubsets(16);
+
+        // we start with the empty subset
+        subsets.size = 1;
+
+        for (int item = from; item < to; item++) {
+            long itemWeight = itemBatch.getFixedWeight(item);
+            long itemPrice  = itemBatch.getFixedPrice(item);
+            long itemBit    = 1L << (item - from);
+
+            // merge the sorted subsets with the sorted subsets plus this item, the new bit is higher than all others,
+            // so adding it keeps the order of the mask too
+            int i = 0;
+            int j = 0;
+            merged.size = 0;
+            merged.ensureCapacity(subsets.size * 2);
+
+            while (i < subsets.size || j < subsets.size) {
+                boolean takeWithItem = false;
+
+                if (j < subsets.size && subsets.weights[j] + itemWeight > capacity) {
+                    // this and all following subsets plus the item are too heavy
+                    j = subsets.size;
+                    continue;
+                }
+                if (i >= subsets.size) {
+                    takeWithItem = true;
+                } else if (j < subsets.size) {
+                    takeWithItem = isBefore(subsets.weights[j] + itemWeight, subsets.prices[j] + itemPrice, subsets.amounts[j] + 1, subsets.masks[j] | itemBit,
+                            subsets.weights[i], subsets.prices[i], subsets.amounts[i], subsets.masks[i]);
+                }
+
+                int k = merged.size++;
+
+                if (takeWithItem) {
+                    merged.weights[k]   = subsets.weights[j] + itemWeight;
+                    merged.prices[k]    = subsets.prices[j] + itemPrice;
+                    merged.amounts[k]   = subsets.amounts[j] + 1;
+                    merged.masks[k]     = subsets.masks[j] | itemBit;
+                    j++;
+                } else {
+                    merged.weights[k]   = subsets.weights[i];
+                    merged.prices[k]    = subsets.prices[i];
+                    merged.amounts[k]   = subsets.amounts[i];
+                    merged.masks[k]     = subsets.masks[i];
+                    i++;
+                }
+            }
+
+            HalfSubsets swap    = subsets;
+            subsets             = merged;
+            merged              = swap;
+        }
+        return subsets;
+    }
+
+    /**
+     * removes every subset that has not a higher price than a lighter (or equal weight, but better) subset before it
+     *
+     * @param subsets
+     */
+    private static void pruneDominated(HalfSubsets subsets) {
+        int kept = 0;
+
+        for (int i = 0; i < subsets.size; i++) {
+            if (kept == 0 || subsets.prices[i] > subsets.prices[kept - 1]) {
+                subsets.weights[kept]   = subsets.weights[i];
+                subsets.prices[kept]    = subsets.prices[i];
+                subsets.amounts[kept]   = subsets.amounts[i];
+                subsets.masks[kept]     = subsets.masks[i];
+                kept++;
+            }
+        }
+        subsets.size = kept;
+    }
+
+    /**
+     * binary search for the last subset with a weight less or equal than maxWeight
+     *
+     * @param subsets
+     * @param maxWeight
+     * @return the index or -1 if no subset fits
+     */
+    private static int lastFitting(HalfSubsets subsets, long maxWeight) {
+        int low     = 0;
+        int high    = subsets.size - 1;
+        int found   = -1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if (subsets.weights[middle] <= maxWeight) {
+                found   = middle;
+                low     = middle + 1;
+            } else {
+                high    = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * the order of the subsets of a half: weight asc, price desc, amount of items desc, mask asc
+     */
+    private static boolean isBefore(long weight1, long price1, int amount1, long mask1, long weight2, long price2, int amount2, long mask2) {
+        if (weight1 != weight2) {
+            return weight1 < weight2;
+        }
+        if (price1 != price2) {
+            return price1 > price2;
+        }
+        if (amount1 != amount2) {
+            return amount1 > amount2;
+        }
+        return mask1 < mask2;
+    }
+
+    /**
+     * the order of the packets: price desc, weight asc, amount of items desc and then the subset enumeration order,
+     * where the upper items are the higher bits
+     */
+    private static boolean isBetter(long price1, long weight1, int amount1, long upperMask1, long lowerMask1,
+                                    long price2, long weight2, int amount2, long upperMask2, long lowerMask2) {
+        if (price1 != price2) {
+            return price1 > price2;
+        }
+        if (weight1 != weight2) {
+            return weight1 < weight2;
+        }
+        if (amount1 != amount2) {
+            return amount1 > amount2;
+        }
+        if (upperMask1 != upperMask2) {
+            return upperMask1 < upperMask2;
+        }
+        return lowerMask1 < lowerMask2;
+    }
+}
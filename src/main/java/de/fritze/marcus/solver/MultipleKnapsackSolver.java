@@ -0,0 +1,94 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.model.PackageItem;
+import de.fritze.marcus.model.Packet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A MultipleKnapsackSolver fills several packages with the same max weight from the items of one line
+ *
+ * every item is in at most one package. the best solution has the highest total price of all packages,
+ * if the price is the same the lowest total weight and then the most items, like the best single packet
+ */
+public interface MultipleKnapsackSolver {
+
+    /**
+     * solves the line for the amount of packages
+     *
+     * @param itemBatch
+     * @param amountOfPackages
+     * @return exactly amountOfPackages packets, packets without items are empty, the best packet first
+     */
+    List<BitmaskPacket> solve(ItemBatch itemBatch, int amountOfPackages);
+
+    /**
+     * solves the line given as PackageItem's and returns the Packet's, see solve for an ItemBatch
+     *
+     * @param maxWeightPackage
+     * @param packageItems
+     * @param amountOfPackages
+     * @return
+     */
+    default List<Packet> solve(float maxWeightPackage, List<PackageItem> packageItems, int amountOfPackages) {
+        return solve(ItemBatch.fromPackageItems(maxWeightPackage, packageItems), amountOfPackages).stream().map(BitmaskPacket::toPacket).collect(Collectors.toList());
+    }
+
+    /**
+     * the name and the settings of the solver, see KnapsackSolver.getSettings
+     *
+     * @return
+     */
+    default String getSettings() {
+        return getClass().getName();
+    }
+
+    /**
+     * creates the packets of an assignment of the items, the packets are sorted like single packets: the best packet first
+     *
+     * @param itemBatch
+     * @param assignment the package of every item of the batch or -1 if the item is in no package
+     * @param amountOfPackages
+     * @return
+     */
+    static List<BitmaskPacket> toPackets(ItemBatch itemBatch, int[] assignment, int amountOfPackages) {
+        List<BitmaskPacket> packets = new ArrayList<>(amountOfPackages);
+
+        for (int packageIndex = 0; packageIndex < amountOfPackages; packageIndex++) {
+            packets.add(new BitmaskPacket(itemBatch));
+        }
+        for (int i = 0; i < itemBatch.size(); i++) {
+            if (assignment[i] >= 0) {
+                packets.get(assignment[i]).addItem(i);
+            }
+        }
+        packets.sort(BitmaskPacket.PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDescAndSubsetOrder);
+
+        return packets;
+    }
+
+    /**
+     * compares two solutions by total price descending, total weight ascending and amount of items descending
+     *
+     * @param price1
+     * @param weight1
+     * @param amount1
+     * @param price2
+     * @param weight2
+     * @param amount2
+     * @return a negative value if the first solution is better
+     */
+    static int compareSolutions(long price1, long weight1, int amount1, long price2, long weight2, int amount2) {
+        if (price1 != price2) {
+            return Long.compare(price2, price1);
+        }
+        if (weight1 != weight2) {
+            return Long.compare(weight1, weight2);
+        }
+        return Integer.compare(amount2, amount1);
+    }
+}
@@ -0,0 +1,61 @@
+package de.fritze.marcus.solver;
+
+/**
+ * This counts the work of the solvers per thread, so the metrics can show how many subsets a line needed
+ *
+ * every solver counts what its search visits: the subset enumeration and the branch-and-bound solver the feasible subsets
+ * they compare, the meet-in-the-middle solver the feasible subsets of both halves and the dynamic programming solver the table cells.
+ * the solvers add once per line, so the counting costs nothing per subset
+ *
+ * an approximate solver also gives the guaranteed optimality gap of its last line, the exact solvers don't set it
+ */
+public final class SolverStatistics {
+
+    private static final ThreadLocal<long[]> VISITED_SUBSETS = ThreadLocal.withInitial(() -> new long[1]);
+
+    /* the optimality gap of the last approximate solve, -1 if no approximate solver ran since the last take */
+    private static final ThreadLocal<double[]> OPTIMALITY_GAP = ThreadLocal.withInitial(() -> new double[] {-1});
+
+    private SolverStatistics() {
+    }
+
+    /**
+     * adds the visited subsets of the current solve to the counter of this thread
+     *
+     * @param visitedSubsets
+     */
+    public static void addVisitedSubsets(long visitedSubsets) {
+        VISITED_SUBSETS.get()[0] += visitedSubsets;
+    }
+
+    /**
+     * @return the visited subsets since the last call in this thread, the counter starts again at 0
+     */
+    public static long takeVisitedSubsets() {
+        long[] visitedSubsets   = VISITED_SUBSETS.get();
+        long taken              = visitedSubsets[0];
+
+        visitedSubsets[0] = 0;
+        return taken;
+    }
+
+    /**
+     * sets the guaranteed optimality gap of the current solve: the found price is at least (1 - gap) of the best price
+     *
+     * @param optimalityGap between 0 and 1
+     */
+    public static void setOptimalityGap(double optimalityGap) {
+        OPTIMALITY_GAP.get()[0] = optimalityGap;
+    }
+
+    /**
+     * @return the optimality gap since the last call in this thread or -1 if the solve was exact, the gap is cleared
+     */
+    public static double takeOptimalityGap() {
+        double[] optimalityGap  = OPTIMALITY_GAP.get();
+        double taken            = optimalityGap[0];
+
+        optimalityGap[0] = -1;
+        return taken;
+    }
+}
@@ -0,0 +1,147 @@
+package de.fritze.marcus.solver;
+
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * This is the reference solver, it enumerates all 2^n subsets of the items
+ * the runtime grows exponential with the amount of items, so it's only usable for small lines
+ *
+ * the subsets come from the GrayCodeSubsetEnumerator, so every subset costs one addition to the sums and no allocation.
+ * we don't collect the valid packets, we only keep the best one (or the best alternatives in a bounded heap),
+ * so the memory per line is O(alternatives) and no sort is needed. the Gray code visits the subsets in another order
+ * than a binary counter, so a tie in price, weight and amount of items is broken by comparing the masks
+ */
+public class SubsetEnumerationSolver implements KnapsackSolver {
+
+    @Override
+    public boolean hasAlternatives() {
+        return true;
+    }
+
+    /**
+     * the subsets are enumerated over a long mask
+     *
+     * @return
+     */
+    @Override
+    public int getMaxItems() {
+        return GrayCodeSubsetEnumerator.MAX_ITEMS;
+    }
+
+    @Override
+    public BitmaskPacket solve(ItemBatch itemBatch) {
+
+        GrayCodeSubsetEnumerator subsets    = new GrayCodeSubsetEnumerator(itemBatch);
+        long maxWeightPackage               = itemBatch.getFixedMaxWeightPackage();
+        long feasibleSubsets                = 0;
+
+        // the best package of that line so far, an empty mask means no package
+        long bestMask       = 0;
+        long bestPrice      = 0;
+        long bestWeight     = 0;
+        int bestAmount      = 0;
+
+        // we loop through all subsets, the sums are updated by the enumerator ...
+        while (subsets.next()) {
+
+            // ... and we check if the sum is less or equal than the max weight of the package for that line
+            // and if it's better by price desc, weight asc, amount of items in package desc than the best package so far,
+            // on a tie the subset that comes first in the subset order stays
+            if (subsets.getAmountOfItems() > 0 && subsets.getTotalWeight() <= maxWeightPackage) {
+                feasibleSubsets++;
+
+                int comparison = bestMask == 0 ? -1 : compare(subsets.getTotalPrice(), subsets.getTotalWeight(), subsets.getAmountOfItems(), bestPrice, bestWeight, bestAmount);
+
+                if (comparison < 0 || (comparison == 0 && GrayCodeSubsetEnumerator.compareSubsetOrder(subsets.getMask(), bestMask) < 0)) {
+                    bestMask    = subsets.getMask();
+                    bestPrice   = subsets.getTotalPrice();
+                    bestWeight  = subsets.getTotalWeight();
+                    bestAmount  = subsets.getAmountOfItems();
+                }
+            }
+        }
+        SolverStatistics.addVisitedSubsets(feasibleSubsets);
+
+        return bestMask != 0 ? GrayCodeSubsetEnumerator.createPacket(itemBatch, bestMask) : null;
+    }
+
+    /**
+     * keeps the best packets in a heap with the worst of them at the top, so a new packet only has to beat the top
+     *
+     * @param itemBatch
+     * @param alternatives
+     * @return
+     */
+    @Override
+    public List<BitmaskPacket> solveAlternatives(ItemBatch itemBatch, int alternatives) {
+
+        PriorityQueue<BitmaskPacket> bestPackets = new PriorityQueue<>(alternatives + 1, BitmaskPacket.PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDescAndSubsetOrder.reversed());
+        GrayCodeSubsetEnumerator subsets    = new GrayCodeSubsetEnumerator(itemBatch);
+        long maxWeightPackage               = itemBatch.getFixedMaxWeightPackage();
+        long feasibleSubsets                = 0;
+
+        while (subsets.next()) {
+
+            // a packet is only created if the subset beats the worst packet in the heap
+            if (subsets.getAmountOfItems() > 0 && subsets.getTotalWeight() <= maxWeightPackage) {
+                feasibleSubsets++;
+
+                if (bestPackets.size() < alternatives || isBetter(subsets, bestPackets.peek())) {
+                    bestPackets.add(GrayCodeSubsetEnumerator.createPacket(itemBatch, subsets.getMask()));
+
+                    if (bestPackets.size() > alternatives) {
+                        bestPackets.poll();
+                    }
+                }
+            }
+        }
+        SolverStatistics.addVisitedSubsets(feasibleSubsets);
+
+        // the heap has the worst packet at the top, the result starts with the best packet
+        List<BitmaskPacket> result = new ArrayList<>(bestPackets.size());
+
+        while (!bestPackets.isEmpty()) {
+            result.add(bestPackets.poll());
+        }
+        Collections.reverse(result);
+
+        return result;
+    }
+
+    /**
+     * compares the sums by price desc, weight asc, amount of items desc
+     *
+     * @return a negative number if the first sums are better, 0 if they are equal
+     */
+    private static int compare(long totalPrice1, long totalWeight1, int amountOfItems1, long totalPrice2, long totalWeight2, int amountOfItems2) {
+        if (totalPrice1 != totalPrice2) {
+            return Long.compare(totalPrice2, totalPrice1);
+        }
+        if (totalWeight1 != totalWeight2) {
+            return Long.compare(totalWeight1, totalWeight2);
+        }
+        return Integer.compare(amountOfItems2, amountOfItems1);
+    }
+
+    /**
+     * checks if the current subset is strictly better by price desc, weight asc, amount of items desc and the subset order than the packet
+     *
+     * @param subsets
+     * @param packet
+     * @return
+     */
+    private static boolean isBetter(GrayCodeSubsetEnumerator subsets, BitmaskPacket packet) {
+        int comparison = compare(subsets.getTotalPrice(), subsets.getTotalWeight(), subsets.getAmountOfItems(), packet.getTotalPrice(), packet.getTotalWeight(), packet.getAmountOfItems());
+
+        if (comparison != 0) {
+            return comparison < 0;
+        }
+        return BitmaskPacket.compareSubsetOrder(GrayCodeSubsetEnumerator.createPacket(packet.getItemBatch(), subsets.getMask()), packet) < 0;
+    }
+}
@@ -0,0 +1,53 @@
+package de.fritze.marcus.stream;
+
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
+
+/**
+ * the result of one line of a PackagingProcessor, the output of the line or the error of the line
+ */
+public final class PackageResult {
+
+    private final int lineNumber;
+    private final String output;
+    private final AppException error;
+
+    PackageResult(int lineNumber, String output, AppException error) {
+        this.lineNumber = lineNumber;
+        this.output     = output;
+        this.error      = error;
+    }
+
+    /**
+     * @return the number of the line in the input stream, starting with 1
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return the ids of the packet separated by commas, "-" for no packet, an empty string for an empty line or null if the line has an error
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * @return the error of the line or null
+     */
+    public AppException getError() {
+        return error;
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    /**
+     * @return the output of the line like in the output file, "!" for a line with an error like in the fail-soft mode
+     */
+    @Override
+    public String toString() {
+        return error != null ? ErrorReport.ERROR_MARKER : output;
+    }
+}
@@ -0,0 +1,363 @@
+package de.fritze.marcus.stream;
+
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.output.ResultSink;
+import de.fritze.marcus.output.StringResultSink;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This packages the lines of a Flow.Publisher and publishes the result of every line, so the packager can be embedded
+ * into a service that gets the lines from a message stream, without files and without System.out
+ *
+ * the processor takes at most bufferSize lines from the publisher before they are packaged, a new part of the lines
+ * is requested only after the subscriber has taken half of the buffer. so a slow subscriber slows down the publisher
+ * and the lines are never collected in memory. the lines are packaged one after another on the executor, never
+ * on the thread of the publisher, and the results come in the order of the lines.
+ *
+ * a line with an error gets a result with the error and the next lines go on, the stream is never stopped by a line.
+ * with an ErrorReport in the configuration the errors are also added to the report and the stream fails with
+ * the (N+1)th error like the fail-soft mode. any other exception or error of a line fails the stream at once.
+ * the processor has one subscriber, a second subscriber gets an error
+ *
+ * @param <T> the lines as text or the already parsed ItemBatch of every line
+ */
+public class PackagingProcessor<T> implements Flow.Processor<T, PackageResult> {
+
+    /**
+     * packages one input and writes its output into the sink, like Packager.packageLine
+     *
+     * @param <T>
+     */
+    @FunctionalInterface
+    public interface LinePackager<T> {
+
+        void packageLine(int lineNumber, T input, PackagerConfiguration configuration, ResultSink resultSink) throws AppException, IOException;
+    }
+
+    private final PackagerConfiguration configuration;
+    private final LinePackager<? super T> linePackager;
+    private final Executor executor;
+    private final int bufferSize;
+    private final int replenishSize;
+
+    private final ArrayBlockingQueue<T> inputs;
+    private final AtomicReference<Flow.Subscription> upstream                          = new AtomicReference<>();
+    private final AtomicReference<Flow.Subscriber<? super PackageResult>> downstream    = new AtomicReference<>();
+    private final AtomicLong demand                                                     = new AtomicLong();
+    private final AtomicInteger pendingDrains                                           = new AtomicInteger();
+
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    private volatile Throwable invalidRequest;
+
+    // only used by the thread that drains the inputs
+    private final StringResultSink lineOutput = new StringResultSink();
+    private int lineNumber;
+    private int consumedInputs;
+
+    /**
+     * @param configuration the solver, the validator, the cache and the metrics for the lines
+     * @param linePackager
+     * @param executor the lines are packaged on this executor
+     * @param bufferSize the maximum amount of lines that are taken from the publisher but not yet packaged
+     */
+    public PackagingProcessor(PackagerConfiguration configuration, LinePackager<? super T> linePackager, Executor executor, int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("The buffer size must be at least 1");
+        }
+        this.configuration  = Objects.requireNonNull(configuration);
+        this.linePackager   = Objects.requireNonNull(linePackager);
+        this.executor       = Objects.requireNonNull(executor);
+        this.bufferSize     = bufferSize;
+        this.replenishSize  = Math.max(1, bufferSize / 2);
+        this.inputs         = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    /**
+     * a processor for text lines in the format of the input file, on the worker pool of the configuration
+     * or on the common pool with the default buffer size of Flow
+     *
+     * @param configuration
+     * @return
+     */
+    public static PackagingProcessor<CharSequence> ofLines(PackagerConfiguration configuration) {
+        return new PackagingProcessor<>(configuration, Packager::packageLine, executorOf(configuration), Flow.defaultBufferSize());
+    }
+
+    /**
+     * a processor for lines that are already parsed, every ItemBatch must be its own object because the
+     * items are packaged later on another thread
+     *
+     * @param configuration
+     * @return
+     */
+    public static PackagingProcessor<ItemBatch> ofItemBatches(PackagerConfiguration configuration) {
+        return new PackagingProcessor<>(configuration, Packager::packageLine, executorOf(configuration), Flow.defaultBufferSize());
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription);
+
+        if (!upstream.compareAndSet(null, subscription)) {
+            // we already have a publisher
+            subscription.cancel();
+            return;
+        }
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+        subscription.request(bufferSize);
+    }
+
+    @Override
+    public void onNext(T input) {
+        Objects.requireNonNull(input);
+
+        if (done || cancelled) {
+            return;
+        }
+        if (!inputs.offer(input)) {
+            // the publisher sent more lines than we requested
+            upstream.get().cancel();
+            onError(new IllegalStateException("The publisher sent more than the requested " + bufferSize + " lines"));
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        Objects.requireNonNull(throwable);
+
+        if (done) {
+            return;
+        }
+        failure = throwable;
+        done    = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PackageResult> subscriber) {
+        Objects.requireNonNull(subscriber);
+
+        if (!downstream.compareAndSet(null, subscriber)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("The processor has already a subscriber"));
+            return;
+        }
+
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    invalidRequest = new IllegalArgumentException("The subscriber must request at least 1 result, not " + n);
+                } else {
+                    // the demand doesn't overflow, Long.MAX_VALUE means unbounded
+                    demand.getAndUpdate(requested -> requested + n < 0 ? Long.MAX_VALUE : requested + n);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                stop();
+            }
+        });
+        drain();
+    }
+
+    /**
+     * starts the drain on the executor, if it already runs it loops once more
+     */
+    private void drain() {
+        if (pendingDrains.getAndIncrement() != 0) {
+            return;
+        }
+        try {
+            executor.execute(this::drainInputs);
+        } catch (RejectedExecutionException e) {
+            // we still own the drain, so we can signal the error here
+            Flow.Subscriber<? super PackageResult> subscriber   = downstream.get();
+            boolean stopped                                     = cancelled;
+
+            stop();
+
+            if (subscriber != null && !stopped) {
+                subscriber.onError(e);
+            }
+        }
+    }
+
+    /**
+     * packages the inputs as long as the subscriber has a demand, only one thread at a time runs this
+     */
+    private void drainInputs() {
+        int missedDrains = 1;
+
+        do {
+            Flow.Subscriber<? super PackageResult> subscriber = downstream.get();
+
+            // the results wait for the subscriber
+            if (subscriber != null && !cancelled) {
+                try {
+                    drainInputs(subscriber);
+                } catch (Throwable throwable) {
+                    // a line threw something else than an AppException, the stream is stopped so it never hangs
+                    boolean stopped = cancelled;
+
+                    stop();
+
+                    if (!stopped) {
+                        subscriber.onError(throwable);
+                    }
+                }
+            }
+            if (cancelled) {
+                inputs.clear();
+            }
+            missedDrains = pendingDrains.addAndGet(-missedDrains);
+        } while (missedDrains != 0);
+    }
+
+    private void drainInputs(Flow.Subscriber<? super PackageResult> subscriber) {
+        if (invalidRequest != null) {
+            stop();
+            subscriber.onError(invalidRequest);
+            return;
+        }
+
+        long requested  = demand.get();
+        long emitted    = 0;
+
+        while (!cancelled) {
+            // the publisher calls onNext before onComplete, so done and no inputs means all lines are packaged
+            if (done && inputs.isEmpty()) {
+                stop();
+
+                if (failure != null) {
+                    subscriber.onError(failure);
+                } else {
+                    subscriber.onComplete();
+                }
+                break;
+            }
+            if (emitted == requested) {
+                break;
+            }
+            T input = inputs.poll();
+
+            if (input == null) {
+                break;
+            }
+
+            PackageResult result = packageInput(input);
+
+            if (result.isError() && !addError(result.getError())) {
+                // too many errors
+                stop();
+                subscriber.onError(result.getError());
+                break;
+            }
+
+            subscriber.onNext(result);
+            emitted++;
+
+            if (++consumedInputs == replenishSize) {
+                // the subscriber has taken the results, so we have free places in the buffer
+                consumedInputs = 0;
+                upstream.get().request(replenishSize);
+            }
+        }
+
+        if (emitted != 0 && requested != Long.MAX_VALUE) {
+            demand.addAndGet(-emitted);
+        }
+    }
+
+    private PackageResult packageInput(T input) {
+        lineNumber++;
+        lineOutput.clear();
+
+        try {
+            linePackager.packageLine(lineNumber, input, configuration, lineOutput);
+
+            return new PackageResult(lineNumber, lineOutput.getOutput().toString(), null);
+        } catch (AppException e) {
+            return new PackageResult(lineNumber, null, e);
+        } catch (IOException ioException) {
+            // the output is only written into memory
+            return new PackageResult(lineNumber, null, new AppException(GlobalErrorCodes.ERROR_ON_WRITING_OUTPUT, ioException.getMessage()));
+        }
+    }
+
+    /**
+     * counts the error in the metrics and adds it to the ErrorReport of the configuration
+     *
+     * @param error
+     * @return false if the ErrorReport has one error too much
+     */
+    private boolean addError(AppException error) {
+        if (configuration.getMetrics() != null) {
+            configuration.getMetrics().recordError();
+        }
+
+        ErrorReport errorReport = configuration.getErrorReport();
+
+        try {
+            return errorReport == null || errorReport.add(lineNumber, error);
+        } catch (IOException ioException) {
+            return false;
+        }
+    }
+
+    /**
+     * stops taking lines from the publisher, the buffered lines are dropped by the drain
+     */
+    private void stop() {
+        cancelled = true;
+
+        Flow.Subscription subscription = upstream.get();
+
+        if (subscription != null) {
+            subscription.cancel();
+        }
+        drain();
+    }
+
+    private static Executor executorOf(PackagerConfiguration configuration) {
+        return configuration.getWorkerPool() != null ? configuration.getWorkerPool() : ForkJoinPool.commonPool();
+    }
+}
@@ -1,22 +1,64 @@
 package de.fritze.marcus.validation;
 
+import de.fritze.marcus.model.ItemBatch;
 import de.fritze.marcus.model.PackageItem;
 import de.fritze.marcus.exception.AppException;
 import de.fritze.marcus.exception.GlobalErrorCodes;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.BitSet;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
+/**
+ * This checks the constraints of a line in one pass over the primitive arrays of the ItemBatch
+ *
+ * the limits can be configured, the default limits are the limits of the specification.
+ * the weights and prices are compared as fixed-point longs with the limit in the scale of the line, so a value that is
+ * exactly the limit is always valid, without the rounding of a float or double comparison.
+ * the messages of the errors are only built if a constraint is violated
+ */
 public class Validator {
 
-    private static final int MAX_WEIGHT_PACKAGE = 100;
-    private static final int MAX_ITEMS_IN_LINE  = 15;
-    private static final int MAX_WEIGHT_ITEM    = 100;
-    private static final int MAX_PRICE_ITEM     = 100;
+    public static final double DEFAULT_MAX_WEIGHT_PACKAGE   = 100;
+    public static final int DEFAULT_MAX_ITEMS_IN_LINE       = 15;
+    public static final double DEFAULT_MAX_WEIGHT_ITEM      = 100;
+    public static final double DEFAULT_MAX_PRICE_ITEM       = 100;
+    public static final int DEFAULT_MAX_PACKAGES            = 100;
+
+    /* the ids of a line with up to this amount of items are marked in a long instead of a BitSet */
+    private static final int MAX_ITEMS_IN_MASK = Long.SIZE;
+
+    private static final Validator DEFAULT_VALIDATOR = new Validator();
+
+    private double maxWeightPackage = DEFAULT_MAX_WEIGHT_PACKAGE;
+    private int maxItemsInLine      = DEFAULT_MAX_ITEMS_IN_LINE;
+    private double maxWeightItem    = DEFAULT_MAX_WEIGHT_ITEM;
+    private double maxPriceItem     = DEFAULT_MAX_PRICE_ITEM;
+    private int maxPackages         = DEFAULT_MAX_PACKAGES;
+
+    /* the limits scaled by 10^scale for every scale a line can have */
+    private long[] fixedMaxWeightPackage    = fixedPointLimits(DEFAULT_MAX_WEIGHT_PACKAGE);
+    private long[] fixedMaxWeightItem       = fixedPointLimits(DEFAULT_MAX_WEIGHT_ITEM);
+    private long[] fixedMaxPriceItem        = fixedPointLimits(DEFAULT_MAX_PRICE_ITEM);
+
+    /* the limits as text for the SolutionCache, built again after a limit was changed */
+    private String settings;
+
+    /**
+     * This function checks the constraints of PackageItem's with the default limits, see checkConstraints for an ItemBatch
+     *
+     * @param lineNumber
+     * @param maxWeightPackage
+     * @param packageItems
+     * @throws AppException
+     */
+    public static void checkConstraints(int lineNumber, float maxWeightPackage, List<PackageItem> packageItems) throws AppException {
+        checkConstraints(lineNumber, ItemBatch.fromPackageItems(maxWeightPackage, packageItems));
+    }
 
     /**
-     * This function checks the constraints
+     * This function checks the constraints with the default limits
      * 1. The maximum weight that a package can hold must be <= 100.
      * 2. There may be up to 15 items you can to choose from.
      * 3. The maximum weight of an item should be <= 100.
@@ -24,51 +66,297 @@ public class Validator {
      * 5. check duplicate item numbers and missing item numbers and first item number should be 1
      *
      * @param lineNumber
+     * @param itemBatch
+     * @throws AppException
+     */
+    public static void checkConstraints(int lineNumber, ItemBatch itemBatch) throws AppException {
+        DEFAULT_VALIDATOR.validate(lineNumber, itemBatch);
+    }
+
+    public double getMaxWeightPackage() {
+        return maxWeightPackage;
+    }
+
+    /**
+     * the maximum weight that a package can hold
+     *
      * @param maxWeightPackage
-     * @param packageItems
+     * @return
+     */
+    public Validator setMaxWeightPackage(double maxWeightPackage) {
+        if (!(maxWeightPackage >= 0)) {
+            throw new IllegalArgumentException("The max weight of a package must not be negative");
+        }
+        this.maxWeightPackage       = maxWeightPackage;
+        this.fixedMaxWeightPackage  = fixedPointLimits(maxWeightPackage);
+        this.settings               = null;
+        return this;
+    }
+
+    public int getMaxItemsInLine() {
+        return maxItemsInLine;
+    }
+
+    /**
+     * the amount of items a line may have, more items need a solver that doesn't enumerate the subsets
+     *
+     * @param maxItemsInLine
+     * @return
+     */
+    public Validator setMaxItemsInLine(int maxItemsInLine) {
+        if (maxItemsInLine < 1) {
+            throw new IllegalArgumentException("The max items in a line must be at least 1");
+        }
+        this.maxItemsInLine = maxItemsInLine;
+        this.settings       = null;
+        return this;
+    }
+
+    public double getMaxWeightItem() {
+        return maxWeightItem;
+    }
+
+    /**
+     * the maximum weight of an item
+     *
+     * @param maxWeightItem
+     * @return
+     */
+    public Validator setMaxWeightItem(double maxWeightItem) {
+        if (!(maxWeightItem >= 0)) {
+            throw new IllegalArgumentException("The max weight of an item must not be negative");
+        }
+        this.maxWeightItem      = maxWeightItem;
+        this.fixedMaxWeightItem = fixedPointLimits(maxWeightItem);
+        this.settings           = null;
+        return this;
+    }
+
+    public double getMaxPriceItem() {
+        return maxPriceItem;
+    }
+
+    /**
+     * the maximum cost of an item
+     *
+     * @param maxPriceItem
+     * @return
+     */
+    public Validator setMaxPriceItem(double maxPriceItem) {
+        if (!(maxPriceItem >= 0)) {
+            throw new IllegalArgumentException("The max price of an item must not be negative");
+        }
+        this.maxPriceItem       = maxPriceItem;
+        this.fixedMaxPriceItem  = fixedPointLimits(maxPriceItem);
+        this.settings           = null;
+        return this;
+    }
+
+    public int getMaxPackages() {
+        return maxPackages;
+    }
+
+    /**
+     * the amount of packages a line may fill, the solvers for more packages need memory for every package
+     *
+     * @param maxPackages
+     * @return
+     */
+    public Validator setMaxPackages(int maxPackages) {
+        if (maxPackages < 1) {
+            throw new IllegalArgumentException("The max packages must be at least 1");
+        }
+        this.maxPackages    = maxPackages;
+        this.settings       = null;
+        return this;
+    }
+
+    /**
+     * the limits of the validator, the SolutionCache keeps the lines of validators with other limits apart
+     *
+     * @return
+     */
+    public String getSettings() {
+        String limits = settings;
+
+        if (limits == null) {
+            limits = format(maxWeightPackage) + "," + maxItemsInLine + "," + format(maxWeightItem) + "," + format(maxPriceItem) + "," + maxPackages;
+            settings = limits;
+        }
+        return limits;
+    }
+
+    /**
+     * This function checks the amount of packages of a line, from the prefix "N x " or from the configuration
+     *
+     * @param lineNumber
+     * @param amountOfPackages
+     * @throws AppException if the amount is 0 or above maxPackages
+     */
+    public void validateAmountOfPackages(int lineNumber, int amountOfPackages) throws AppException {
+        if (amountOfPackages < 1 || amountOfPackages > maxPackages) {
+            throw new AppException(GlobalErrorCodes.PACKAGES_AMOUNT_INVALID, "Invalid amount of packages in line " + lineNumber + ". The amount of packages must be between 1 and " + maxPackages + ".");
+        }
+    }
+
+    /**
+     * This function checks that the solver can solve the items of a line, the limit of the validator may be higher than the limit of the solver
+     *
+     * @param lineNumber
+     * @param amountOfItems
+     * @param maxItemsOfSolver
+     * @throws AppException if the line has more items than the solver can solve
+     */
+    public static void validateAmountOfItemsForSolver(int lineNumber, int amountOfItems, int maxItemsOfSolver) throws AppException {
+        if (amountOfItems > maxItemsOfSolver) {
+            throw new AppException(GlobalErrorCodes.PACKAGE_ITEMS_AMOUNT_EXCEEDED, "Too many items for the solver in line " + lineNumber + ". The solver can choose from up to " + maxItemsOfSolver + " items.");
+        }
+    }
+
+    /**
+     * This function checks the constraints with the limits of this validator
+     * 1. The maximum weight that a package can hold must be <= maxWeightPackage.
+     * 2. There may be up to maxItemsInLine items you can to choose from.
+     * 3. The maximum weight of an item should be <= maxWeightItem.
+     * 4. The maximum cost of an item should be <= maxPriceItem.
+     * 5. check duplicate item numbers and missing item numbers and first item number should be 1
+     *
+     * the items are checked in one pass, the ids 1 to n are marked in a bit mask,
+     * so the smallest id and the missing ids are known without sorting or boxing
+     *
+     * @param lineNumber
+     * @param itemBatch
      * @throws AppException
      */
-    public static void checkConstraints(int lineNumber, float maxWeightPackage, List<PackageItem> packageItems) throws AppException {
+    public void validate(int lineNumber, ItemBatch itemBatch) throws AppException {
+
+        int amountOfItemsInLine = itemBatch.size();
+
+        // the limits in the scales of the line
+        long maxWeightPackageOfLine = fixedMaxWeightPackage[itemBatch.getWeightScale()];
+        long maxWeightItemOfLine    = fixedMaxWeightItem[itemBatch.getWeightScale()];
+        long maxPriceItemOfLine     = fixedMaxPriceItem[itemBatch.getPriceScale()];
 
         // 1. The maximum weight that a package can hold must be <= 100.
-        if (maxWeightPackage > MAX_WEIGHT_PACKAGE) {
-            throw new AppException(GlobalErrorCodes.PACKAGE_MAX_WEIGHT_EXCEEDED, "Package max weight exceeded in line " + lineNumber + ". The maximum weight that a package can hold must be <= 100.");
+        if (itemBatch.getFixedMaxWeightPackage() > maxWeightPackageOfLine) {
+            throw new AppException(GlobalErrorCodes.PACKAGE_MAX_WEIGHT_EXCEEDED, "Package max weight exceeded in line " + lineNumber + ". The maximum weight that a package can hold must be <= " + format(maxWeightPackage) + ".");
         }
 
         // 2. There may be up to 15 items you can to choose from.
-        if (packageItems.size() > MAX_ITEMS_IN_LINE) {
-            throw new AppException(GlobalErrorCodes.PACKAGE_ITEMS_AMOUNT_EXCEEDED, "Too many items for the package in line " + lineNumber + ". There may be up to 15 items you can to choose from.");
+        if (amountOfItemsInLine > maxItemsInLine) {
+            throw new AppException(GlobalErrorCodes.PACKAGE_ITEMS_AMOUNT_EXCEEDED, "Too many items for the package in line " + lineNumber + ". There may be up to " + maxItemsInLine + " items you can to choose from.");
+        }
+
+        // one pass for the weights, the prices and the ids, the ids 1 to n are marked in the mask or in the BitSet for long lines
+        boolean tooHeavy        = false;
+        boolean tooExpensive    = false;
+        int smallestId          = Integer.MAX_VALUE;
+        long idMask             = 0;
+        BitSet idSet            = amountOfItemsInLine > MAX_ITEMS_IN_MASK ? new BitSet(amountOfItemsInLine) : null;
+
+        for (int i = 0; i < amountOfItemsInLine; i++) {
+            int id = itemBatch.getId(i);
+
+            tooHeavy        |= itemBatch.getFixedWeight(i) > maxWeightItemOfLine;
+            tooExpensive    |= itemBatch.getFixedPrice(i) > maxPriceItemOfLine;
+            smallestId      = Math.min(smallestId, id);
+
+            if (id >= 1 && id <= amountOfItemsInLine) {
+                if (idSet != null) {
+                    idSet.set(id - 1);
+                } else {
+                    idMask |= 1L << (id - 1);
+                }
+            }
         }
 
         // 3. The maximum weight of an item should be <= 100.
-        if (packageItems.stream().anyMatch(packageItem -> packageItem.getWeight() > MAX_WEIGHT_ITEM)) {
-            String tooHeavyPackages = packageItems.stream().filter(packageItem -> packageItem.getWeight() > MAX_WEIGHT_ITEM).map(Object::toString).collect(Collectors.joining(","));
+        if (tooHeavy) {
+            StringBuilder tooHeavyPackages = new StringBuilder();
 
-            throw new AppException(GlobalErrorCodes.PACKAGE_ITEM_MAX_WEIGHT_EXCEEDED, "The maximum weight of an item should be <= 100. The following items are too heavy in line " + lineNumber + ". " + tooHeavyPackages);
+            for (int i = 0; i < amountOfItemsInLine; i++) {
+                if (itemBatch.getFixedWeight(i) > maxWeightItemOfLine) {
+                    appendItem(tooHeavyPackages, itemBatch, i);
+                }
+            }
+            throw new AppException(GlobalErrorCodes.PACKAGE_ITEM_MAX_WEIGHT_EXCEEDED, "The maximum weight of an item should be <= " + format(maxWeightItem) + ". The following items are too heavy in line " + lineNumber + ". " + tooHeavyPackages);
         }
 
         // 4. The maximum cost of an item should be <= €100.
-        if (packageItems.stream().anyMatch(packageItem -> packageItem.getPrice() > MAX_PRICE_ITEM)) {
-            String tooExpensivePackages = packageItems.stream().filter(packageItem -> packageItem.getPrice() > MAX_PRICE_ITEM).map(Object::toString).collect(Collectors.joining(","));
+        if (tooExpensive) {
+            StringBuilder tooExpensivePackages = new StringBuilder();
 
-            throw new AppException(GlobalErrorCodes.PACKAGE_ITEM_MAX_PRICE_EXCEEDED, "The maximum cost of an item should be <= €100. The following items are too expensive in line " + lineNumber + ". " + tooExpensivePackages);
+            for (int i = 0; i < amountOfItemsInLine; i++) {
+                if (itemBatch.getFixedPrice(i) > maxPriceItemOfLine) {
+                    appendItem(tooExpensivePackages, itemBatch, i);
+                }
+            }
+            throw new AppException(GlobalErrorCodes.PACKAGE_ITEM_MAX_PRICE_EXCEEDED, "The maximum cost of an item should be <= €" + format(maxPriceItem) + ". The following items are too expensive in line " + lineNumber + ". " + tooExpensivePackages);
         }
 
         // 5. check duplicate item numbers and missing item numbers and first item number should be 1
-        int amountOfItemsInLine         = (int) packageItems.stream().map(PackageItem::getId).mapToInt(Integer::intValue).count();
-        List<Integer> actualDistinctIds = packageItems.stream().map(PackageItem::getId).distinct().sorted().collect(Collectors.toList());
-        List<Integer> validIdRange      = IntStream.rangeClosed(1, amountOfItemsInLine).boxed().collect(Collectors.toList());
-
         // check if item number 1 exists in line
-        if (actualDistinctIds.get(0) != 1) {
+        if (smallestId != 1) {
             throw new AppException(GlobalErrorCodes.PACKAGE_ITEMS_ITEM_NUMBER_1_MISSING, "The item number 1 is missing in the item list of line " + lineNumber);
         }
 
-        // remove the actual existing distinct item numbers from the generated valid id rage, so we have the missing item numbers
-        validIdRange.removeIf(actualDistinctIds::contains);
+        // the item numbers of the valid id range that are not marked are missing, a duplicate id leaves another id unmarked
+        int amountOfMarkedIds = idSet != null ? idSet.cardinality() : Long.bitCount(idMask);
 
-        if (validIdRange.size() > 0) {
-            throw new AppException(GlobalErrorCodes.PACKAGE_ITEMS_ITEM_NUMBER_MISSING, "The following item numbers are missing in the item list of line " + lineNumber + ": " + validIdRange.toString());
+        if (amountOfMarkedIds < amountOfItemsInLine) {
+            StringBuilder missingIds = new StringBuilder("[");
+
+            for (int id = 1; id <= amountOfItemsInLine; id++) {
+                boolean marked = idSet != null ? idSet.get(id - 1) : (idMask & (1L << (id - 1))) != 0;
+
+                if (!marked) {
+                    missingIds.append(missingIds.length() > 1 ? ", " : "").append(id);
+                }
+            }
+            throw new AppException(GlobalErrorCodes.PACKAGE_ITEMS_ITEM_NUMBER_MISSING, "The following item numbers are missing in the item list of line " + lineNumber + ": " + missingIds.append(']'));
         }
     }
+
+    /**
+     * appends the item like the PackageItem's are listed in the messages, separated by commas
+     *
+     * @param items
+     * @param itemBatch
+     * @param index
+     */
+    private static void appendItem(StringBuilder items, ItemBatch itemBatch, int index) {
+        if (items.length() > 0) {
+            items.append(',');
+        }
+        items.append(itemBatch.getPackageItem(index));
+    }
+
+    /**
+     * scales the limit by 10^scale for every scale of ItemBatch, rounded down, so a fixed-point value in this scale
+     * is above the limit exactly if the value is above the limit. the limit is taken with its shortest decimal representation
+     *
+     * @param limit
+     * @return
+     */
+    private static long[] fixedPointLimits(double limit) {
+        long[] fixedPointLimits = new long[ItemBatch.MAX_SCALE + 1];
+        BigDecimal decimalLimit = Double.isInfinite(limit) ? null : BigDecimal.valueOf(limit);
+
+        for (int scale = 0; scale <= ItemBatch.MAX_SCALE; scale++) {
+            BigDecimal scaledLimit = decimalLimit == null ? null : decimalLimit.movePointRight(scale).setScale(0, RoundingMode.FLOOR);
+
+            fixedPointLimits[scale] = scaledLimit == null || scaledLimit.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0 ? Long.MAX_VALUE : scaledLimit.longValue();
+        }
+        return fixedPointLimits;
+    }
+
+    /**
+     * formats a limit for the messages, a whole number is written without decimals like 100
+     *
+     * @param limit
+     * @return
+     */
+    private static String format(double limit) {
+        return limit == Math.rint(limit) && Math.abs(limit) < Long.MAX_VALUE ? Long.toString((long) limit) : Double.toString(limit);
+    }
 }
@@ -0,0 +1,92 @@
+import de.fritze.marcus.batch.BatchPackager;
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchPackagerTest {
+
+    private static Path copy(String resource, Path directory) throws Exception {
+        return Files.copy(Paths.get("src/test/resources", resource), directory.resolve(resource));
+    }
+
+    private static String read(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testBatchOfADirectory(@TempDir Path directory) throws Exception {
+        Path inputDirectory     = Files.createDirectory(directory.resolve("input"));
+        Path outputDirectory    = directory.resolve("output");
+
+        copy("sampleInput2.txt", inputDirectory);
+        copy("linesWithErrors.txt", inputDirectory);
+
+        List<Path> inputFiles                   = BatchPackager.findFiles(Collections.singletonList(inputDirectory.toString()));
+        List<BatchPackager.FileResult> results  = BatchPackager.startPackaging(inputFiles, outputDirectory,
+                new PackagerConfiguration().setParallelism(2).setErrorReport(new ErrorReport(5)));
+
+        // the files are sorted by name
+        assertEquals(2, results.size());
+        assertEquals("linesWithErrors.txt", results.get(0).getInputFile().getFileName().toString());
+
+        assertEquals("4\n!\n-\n!\n8,9\n", read(outputDirectory.resolve("linesWithErrors.txt.out")));
+        assertEquals(5, results.get(0).getLines());
+        assertEquals(2, results.get(0).getErrors().size());
+        assertNull(results.get(0).getFailure());
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", read(outputDirectory.resolve("sampleInput2.txt.out")));
+        assertEquals(0, results.get(1).getErrors().size());
+
+        assertTrue(BatchPackager.summary(results, 0).endsWith("2 files, 14 lines, 2 errors, 0 failed files, 0 ms"));
+    }
+
+    @Test
+    public void testBatchFailedFileDoesNotStopTheOtherFiles(@TempDir Path directory) throws Exception {
+        Path failingFile    = copy("linesWithErrors.txt", directory);
+        Path sampleFile     = copy("sampleInput2.txt", directory);
+
+        List<BatchPackager.FileResult> results = BatchPackager.startPackaging(Arrays.asList(failingFile, sampleFile), null, new PackagerConfiguration());
+
+        // without an ErrorReport the file stops at the first error, the output is next to the input file
+        assertEquals("4\n", read(directory.resolve("linesWithErrors.txt.out")));
+        assertEquals(GlobalErrorCodes.LINE_NOT_IN_CORRECT_FORMAT, results.get(0).getFailure().getCode());
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", read(directory.resolve("sampleInput2.txt.out")));
+        assertNull(results.get(1).getFailure());
+    }
+
+    @Test
+    public void testBatchGlobLeavesOutOutputFiles(@TempDir Path directory) throws Exception {
+        copy("sampleInput2.txt", directory);
+        copy("sampleInput.txt", directory);
+        copy("linesWithErrors.txt", directory);
+        Files.write(directory.resolve("sampleInput.txt.out"), new byte[0]);
+
+        List<Path> inputFiles = BatchPackager.findFiles(Collections.singletonList(directory + "/sample*"));
+
+        assertEquals(Arrays.asList(directory.resolve("sampleInput.txt"), directory.resolve("sampleInput2.txt")), inputFiles);
+    }
+
+    @Test
+    public void testBatchFileDoesNotExist() {
+        assertEquals(
+                GlobalErrorCodes.NO_PATH_DEFINED,
+                assertThrows(AppException.class, () -> BatchPackager.findFiles(Collections.singletonList("fileNotExists.txt"))).getCode()
+        );
+    }
+}
@@ -0,0 +1,165 @@
+import de.fritze.marcus.binary.BinaryConverter;
+import de.fritze.marcus.binary.BinaryRecordFormat;
+import de.fritze.marcus.binary.BinaryRecordReader;
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryRecordTest {
+
+    private PrintStream originalSystemOut;
+    private ByteArrayOutputStream systemOutContent;
+
+    @BeforeEach
+    void redirectSystemOutStream() {
+        originalSystemOut   = System.out;
+        systemOutContent    = new ByteArrayOutputStream();
+
+        System.setOut(new PrintStream(systemOutContent));
+    }
+
+    @AfterEach
+    void restoreSystemOutStream() {
+        System.setOut(originalSystemOut);
+    }
+
+    @Test
+    public void testSampleInput2Binary(@TempDir Path directory) throws AppException {
+        Path binaryFile = directory.resolve("sampleInput2.pkgb");
+
+        BinaryConverter.textToBinary(Paths.get("src/test/resources/sampleInput2.txt"), binaryFile);
+        Packager.startPackaging(binaryFile.toString(), new PackagerConfiguration().setBinaryInput(true));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
+    }
+
+    @Test
+    public void testSampleInput2BinaryParallel(@TempDir Path directory) throws AppException {
+        Path binaryFile = directory.resolve("sampleInput2.pkgb");
+
+        BinaryConverter.textToBinary(Paths.get("src/test/resources/sampleInput2.txt"), binaryFile);
+        Packager.startPackaging(binaryFile.toString(), new PackagerConfiguration().setBinaryInput(true).setParallelism(2).setLinesPerTask(2));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
+    }
+
+    @Test
+    public void testBinaryIsSmallerThanText(@TempDir Path directory) throws Exception {
+        Path textFile   = Paths.get("src/test/resources/sampleInput.txt");
+        Path binaryFile = directory.resolve("sampleInput.pkgb");
+
+        BinaryConverter.textToBinary(textFile, binaryFile);
+
+        assertTrue(Files.size(binaryFile) * 3 < Files.size(textFile));
+    }
+
+    @Test
+    public void testConvertBackToText(@TempDir Path directory) throws Exception {
+        Path binaryFile = directory.resolve("lines.pkgb");
+        Path textFile   = directory.resolve("lines.txt");
+
+        Files.write(directory.resolve("input.txt"), "81 : (1,53.38,€45) (2,8.6,€98)\n\n8 : (1,15.3,€34)\n".getBytes(StandardCharsets.UTF_8));
+        BinaryConverter.textToBinary(directory.resolve("input.txt"), binaryFile);
+        BinaryConverter.binaryToText(binaryFile, textFile);
+
+        assertEquals("81.00 : (1,53.38,€45) (2,8.60,€98)" + System.lineSeparator() + System.lineSeparator() + "8.0 : (1,15.3,€34)" + System.lineSeparator(),
+                new String(Files.readAllBytes(textFile), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testAmountOfPackagesRoundTrip(@TempDir Path directory) throws Exception {
+        Path inputFile  = directory.resolve("input.txt");
+        Path binaryFile = directory.resolve("lines.pkgb");
+        Path textFile   = directory.resolve("lines.txt");
+
+        Files.write(inputFile, "3 x 10 : (1,6,€10) (2,5,€9) (3,5,€8) (4,9,€30)\n10 : (1,6,€10) (2,5,€9)\n".getBytes(StandardCharsets.UTF_8));
+        BinaryConverter.textToBinary(inputFile, binaryFile);
+
+        Packager.startPackaging(inputFile.toString(), new PackagerConfiguration());
+        String textOutput = systemOutContent.toString();
+
+        systemOutContent.reset();
+        Packager.startPackaging(binaryFile.toString(), new PackagerConfiguration().setBinaryInput(true));
+
+        assertTrue(textOutput.startsWith("4 ; 2,3 ; 1\n"));
+        assertEquals(textOutput, systemOutContent.toString());
+
+        BinaryConverter.binaryToText(binaryFile, textFile);
+
+        assertEquals("3 x 10 : (1,6,€10) (2,5,€9) (3,5,€8) (4,9,€30)" + System.lineSeparator() + "10 : (1,6,€10) (2,5,€9)" + System.lineSeparator(),
+                new String(Files.readAllBytes(textFile), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadVersion1() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ItemBatch itemBatch         = new ItemBatch();
+
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeInt(BinaryRecordFormat.MAGIC);
+            output.writeShort(BinaryRecordFormat.VERSION_1);
+            // 1 item, the scales 0, max weight 8, the item (1,5,€10)
+            output.write(new byte[]{2, 0, 0, 8, 1, 5, 10});
+        }
+
+        try (BinaryRecordReader reader = new BinaryRecordReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertTrue(reader.nextRecord(itemBatch));
+            assertFalse(itemBatch.hasAmountOfPackages());
+            assertEquals(1, itemBatch.size());
+            assertEquals(8, itemBatch.getFixedMaxWeightPackage());
+            assertEquals(10, itemBatch.getFixedPrice(0));
+            assertFalse(reader.nextRecord(itemBatch));
+        }
+    }
+
+    @Test
+    public void testBinaryRecordFixedPointValues(@TempDir Path directory) throws Exception {
+        Path binaryFile = directory.resolve("sampleInput.pkgb");
+        ItemBatch itemBatch = new ItemBatch();
+
+        BinaryConverter.textToBinary(Paths.get("src/test/resources/sampleInput.txt"), binaryFile);
+
+        try (InputStream inputStream = Files.newInputStream(binaryFile); BinaryRecordReader reader = new BinaryRecordReader(inputStream)) {
+            reader.nextRecord(itemBatch);
+            assertTrue(reader.isEmptyLine());
+
+            reader.nextRecord(itemBatch);
+            assertEquals(2, reader.getLineNumber());
+            assertEquals(6, itemBatch.size());
+            assertEquals(8100, itemBatch.getFixedMaxWeightPackage());
+            assertEquals(5338, itemBatch.getFixedWeight(0));
+            assertEquals(45, itemBatch.getFixedPrice(0));
+            assertEquals(53.38, itemBatch.getWeight(0));
+            assertEquals(81f, itemBatch.getMaxWeightPackage());
+        }
+    }
+
+    @Test
+    public void testTextFileAsBinary() {
+        assertEquals(
+                GlobalErrorCodes.ERROR_ON_READING_FILE,
+                assertThrows(AppException.class, () -> Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setBinaryInput(true))).getCode()
+        );
+    }
+}
@@ -0,0 +1,120 @@
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.model.PackageItem;
+import de.fritze.marcus.model.Packet;
+import de.fritze.marcus.output.StringResultSink;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import de.fritze.marcus.parser.LineParser;
+import de.fritze.marcus.solver.BranchAndBoundSolver;
+import de.fritze.marcus.solver.DynamicProgrammingSolver;
+import de.fritze.marcus.solver.KnapsackSolver;
+import de.fritze.marcus.solver.MeetInTheMiddleSolver;
+import de.fritze.marcus.solver.SubsetEnumerationSolver;
+import de.fritze.marcus.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * the weights and prices are compared as fixed-point values, these lines would be wrong with float or double sums
+ */
+public class FixedPointConformanceTest {
+
+    private static final List<KnapsackSolver> SOLVERS = Arrays.asList(
+            new DynamicProgrammingSolver(), new MeetInTheMiddleSolver(), new BranchAndBoundSolver(), new SubsetEnumerationSolver());
+
+    private static String packageFile(String fileName, KnapsackSolver knapsackSolver, boolean memoryMapped) throws AppException {
+        StringResultSink resultSink = new StringResultSink();
+
+        Packager.startPackaging(fileName, new PackagerConfiguration().setResultSink(resultSink).setKnapsackSolver(knapsackSolver).setMemoryMappedInput(memoryMapped));
+
+        return resultSink.toString().replace(System.lineSeparator(), "\n");
+    }
+
+    @Test
+    public void testSamplesWithEverySolver() throws AppException {
+        for (KnapsackSolver knapsackSolver : SOLVERS) {
+            for (boolean memoryMapped : new boolean[] {false, true}) {
+                assertEquals("\n4\n\n-\n\n2,7\n\n8,9\n", packageFile("src/test/resources/sampleInput.txt", knapsackSolver, memoryMapped));
+                assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", packageFile("src/test/resources/sampleInput2.txt", knapsackSolver, memoryMapped));
+            }
+        }
+    }
+
+    @Test
+    public void testWeightsThatSumUpToTheMaxWeight() throws AppException {
+        // 0.1 + 0.2 is 0.30000000000000004 as double
+        for (KnapsackSolver knapsackSolver : SOLVERS) {
+            PackagerConfiguration configuration = new PackagerConfiguration().setKnapsackSolver(knapsackSolver);
+
+            assertEquals("1,2", Packager.packageLine(1, "0.3 : (1,0.1,€1) (2,0.2,€1)", configuration));
+            assertEquals("1,2,3", Packager.packageLine(1, "0.6 : (1,0.1,€1) (2,0.2,€1) (3,0.3,€1)", configuration));
+            assertEquals("2,3", Packager.packageLine(1, "99.99 : (1,33.33,€1) (2,33.33,€2) (3,66.66,€3)", configuration));
+        }
+    }
+
+    @Test
+    public void testPricesThatAreEqualAsDecimals() throws AppException {
+        // 0.1 + 0.2 and 0.3 have the same price, so the lighter packet wins
+        assertEquals("3", Packager.packageLine(1, "4 : (1,2,€0.1) (2,2,€0.2) (3,3,€0.3)", new PackagerConfiguration()));
+        assertEquals("3", Packager.packageLine(1, "4 : (1,2,€0.1) (2,2,€0.2) (3,3,€0.3)", new PackagerConfiguration().setKnapsackSolver(new SubsetEnumerationSolver())));
+    }
+
+    @Test
+    public void testLimitsAreExact() throws AppException {
+        PackagerConfiguration configuration = new PackagerConfiguration();
+
+        assertEquals("1", Packager.packageLine(1, "100.00 : (1,100.00,€100.00)", configuration));
+        assertEquals(GlobalErrorCodes.PACKAGE_MAX_WEIGHT_EXCEEDED, assertThrows(AppException.class, () -> Packager.packageLine(1, "100.000001 : (1,1,€1)", configuration)).getCode());
+        assertEquals(GlobalErrorCodes.PACKAGE_ITEM_MAX_WEIGHT_EXCEEDED, assertThrows(AppException.class, () -> Packager.packageLine(1, "100 : (1,100.000001,€1)", configuration)).getCode());
+        assertEquals(GlobalErrorCodes.PACKAGE_ITEM_MAX_PRICE_EXCEEDED, assertThrows(AppException.class, () -> Packager.packageLine(1, "100 : (1,1,€100.01)", configuration)).getCode());
+
+        // a limit with decimals that are not exact as double
+        configuration.setValidator(new Validator().setMaxWeightItem(0.3).setMaxPriceItem(19.99));
+
+        assertEquals("1", Packager.packageLine(1, "1 : (1,0.3,€19.99)", configuration));
+        assertEquals(GlobalErrorCodes.PACKAGE_ITEM_MAX_WEIGHT_EXCEEDED, assertThrows(AppException.class, () -> Packager.packageLine(1, "1 : (1,0.31,€1)", configuration)).getCode());
+        assertEquals(GlobalErrorCodes.PACKAGE_ITEM_MAX_PRICE_EXCEEDED, assertThrows(AppException.class, () -> Packager.packageLine(1, "1 : (1,0.3,€19.991)", configuration)).getCode());
+    }
+
+    @Test
+    public void testParserGivesTheDigits() {
+        LineParser lineParser = new LineParser();
+
+        assertTrue(lineParser.parse("8.5 : (1,0.1,€0.7) (2,1.005,€3) (3,2.1234567894,€1.0000000005)"));
+
+        ItemBatch itemBatch = lineParser.getItemBatch();
+
+        // the weights have 9 decimals after the rounding, the prices too
+        assertEquals(9, itemBatch.getWeightScale());
+        assertEquals(9, itemBatch.getPriceScale());
+        assertEquals(8_500_000_000L, itemBatch.getFixedMaxWeightPackage());
+        assertEquals(100_000_000L, itemBatch.getFixedWeight(0));
+        assertEquals(1_005_000_000L, itemBatch.getFixedWeight(1));
+        assertEquals(2_123_456_789L, itemBatch.getFixedWeight(2));
+        assertEquals(700_000_000L, itemBatch.getFixedPrice(0));
+        assertEquals(1_000_000_001L, itemBatch.getFixedPrice(2));
+    }
+
+    @Test
+    public void testPacketSumsAreExact() {
+        Packet packet = new Packet(new ArrayList<>(Arrays.asList(new PackageItem(1, 0.1, 0.7), new PackageItem(2, 0.2, 0.1))));
+
+        assertEquals(new BigDecimal("0.3"), packet.getExactTotalWeight());
+        assertEquals(new BigDecimal("0.8"), packet.getExactTotalPrice());
+
+        packet.removePackage(packet.getPackageItems().get(1));
+
+        assertEquals(new BigDecimal("0.1"), packet.getExactTotalWeight());
+        assertEquals(0.7, packet.getTotalPrice());
+    }
+}
@@ -0,0 +1,333 @@
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.model.PackageItem;
+import de.fritze.marcus.model.Packet;
+import de.fritze.marcus.parser.LineParser;
+import de.fritze.marcus.solver.BranchAndBoundSolver;
+import de.fritze.marcus.solver.DynamicProgrammingSolver;
+import de.fritze.marcus.solver.FptasSolver;
+import de.fritze.marcus.solver.GrayCodeSubsetEnumerator;
+import de.fritze.marcus.solver.KnapsackSolver;
+import de.fritze.marcus.solver.MeetInTheMiddleSolver;
+import de.fritze.marcus.solver.SolverStatistics;
+import de.fritze.marcus.solver.SubsetEnumerationSolver;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KnapsackSolverTest {
+
+    private final KnapsackSolver referenceSolver = new SubsetEnumerationSolver();
+
+    /**
+     * creates random lines, with few different values we get a lot of ties in price and weight
+     *
+     * @param random
+     * @param amountOfItems
+     * @param differentValues
+     * @return
+     */
+    private static List<PackageItem> randomItems(Random random, int amountOfItems, int differentValues) {
+        List<PackageItem> packageItems = new ArrayList<>();
+
+        for (int id = 1; id <= amountOfItems; id++) {
+            packageItems.add(new PackageItem(id, random.nextInt(differentValues) * 12.5, random.nextInt(differentValues) * 5));
+        }
+        return packageItems;
+    }
+
+    private static String ids(Packet packet) {
+        return packet == null ? "-" : packet.getPackageItems().stream().map(packageItem -> String.valueOf(packageItem.getId())).collect(Collectors.joining(","));
+    }
+
+    private void assertSameAsReference(KnapsackSolver knapsackSolver, long seed, int maxItems) {
+        Random random = new Random(seed);
+
+        for (int run = 0; run < 500; run++) {
+            float maxWeightPackage          = random.nextInt(101);
+            List<PackageItem> packageItems  = randomItems(random, 1 + random.nextInt(maxItems), 1 + random.nextInt(8));
+
+            assertEquals(
+                    ids(referenceSolver.solve(maxWeightPackage, packageItems)),
+                    ids(knapsackSolver.solve(maxWeightPackage, packageItems)),
+                    "max weight " + maxWeightPackage + " items " + packageItems
+            );
+        }
+    }
+
+    @Test
+    public void testDynamicProgrammingSolverMatchesSubsetEnumeration() {
+        assertSameAsReference(new DynamicProgrammingSolver(), 4711, 12);
+    }
+
+    @Test
+    public void testMeetInTheMiddleSolverMatchesSubsetEnumeration() {
+        assertSameAsReference(new MeetInTheMiddleSolver(), 815, 12);
+    }
+
+    @Test
+    public void testBranchAndBoundSolverMatchesSubsetEnumeration() {
+        assertSameAsReference(new BranchAndBoundSolver(), 1337, 12);
+    }
+
+    @Test
+    public void testBranchAndBoundSolverMatchesDynamicProgrammingSolverWithManyItems() {
+        Random random = new Random(7);
+
+        for (int run = 0; run < 20; run++) {
+            float maxWeightPackage          = random.nextInt(101);
+            List<PackageItem> packageItems  = randomItems(random, 50 + random.nextInt(51), 1 + random.nextInt(20));
+
+            assertEquals(ids(new DynamicProgrammingSolver().solve(maxWeightPackage, packageItems)), ids(new BranchAndBoundSolver().solve(maxWeightPackage, packageItems)));
+        }
+    }
+
+    @Test
+    public void testMeetInTheMiddleSolverMatchesDynamicProgrammingSolverWithManyItems() {
+        Random random = new Random(99);
+
+        for (int run = 0; run < 20; run++) {
+            float maxWeightPackage          = random.nextInt(101);
+            List<PackageItem> packageItems  = randomItems(random, 30 + random.nextInt(11), 1 + random.nextInt(20));
+
+            assertEquals(ids(new DynamicProgrammingSolver().solve(maxWeightPackage, packageItems)), ids(new MeetInTheMiddleSolver().solve(maxWeightPackage, packageItems)));
+        }
+    }
+
+    @Test
+    public void testMeetInTheMiddleSolverManyDecimals() {
+        List<PackageItem> packageItems = Arrays.asList(new PackageItem(1, 5.0000001, 10), new PackageItem(2, 5.0000002, 10), new PackageItem(3, 4.9999999, 9.999));
+
+        assertEquals("1,3", ids(new MeetInTheMiddleSolver().solve(10, packageItems)));
+    }
+
+    @Test
+    public void testDynamicProgrammingSolverSampleLine() {
+        List<PackageItem> packageItems = Arrays.asList(
+                new PackageItem(1, 90.72, 13), new PackageItem(2, 33.80, 40), new PackageItem(3, 43.15, 10),
+                new PackageItem(4, 37.97, 16), new PackageItem(5, 46.81, 36), new PackageItem(6, 48.77, 79),
+                new PackageItem(7, 81.80, 45), new PackageItem(8, 19.36, 79), new PackageItem(9, 6.76, 64)
+        );
+
+        assertEquals("8,9", ids(new DynamicProgrammingSolver().solve(56, packageItems)));
+    }
+
+    @Test
+    public void testDynamicProgrammingSolverNoItemFits() {
+        assertNull(new DynamicProgrammingSolver().solve(8, Arrays.asList(new PackageItem(1, 15.3, 34))));
+    }
+
+    @Test
+    public void testDynamicProgrammingSolverZeroWeightItems() {
+        List<PackageItem> packageItems = Arrays.asList(new PackageItem(1, 0, 0), new PackageItem(2, 0, 0), new PackageItem(3, 0, 0));
+
+        assertEquals("1,2,3", ids(new DynamicProgrammingSolver().solve(34, packageItems)));
+    }
+
+    @Test
+    public void testDynamicProgrammingSolverMoreThanTwoDecimals() {
+        List<PackageItem> packageItems = Arrays.asList(new PackageItem(1, 5.005, 10), new PackageItem(2, 5.001, 10), new PackageItem(3, 4.995, 9));
+
+        assertEquals("2,3", ids(new DynamicProgrammingSolver().solve(10, packageItems)));
+    }
+
+    @Test
+    public void testDynamicProgrammingSolverHighCapacityTakesTheFallback() {
+        LineParser lineParser   = new LineParser();
+        int[] fallbackLines     = new int[1];
+
+        // the capacity is 10^8 in the scale of the line, the arrays per weight would need 1.2 GB for two items
+        assertTrue(lineParser.parse("100 : (1,99.999999,€5) (2,99.999998,€4)"));
+        assertEquals(100_000_000, lineParser.getItemBatch().getFixedMaxWeightPackage());
+
+        KnapsackSolver fallbackSolver = itemBatch -> {
+            fallbackLines[0]++;
+            return new MeetInTheMiddleSolver().solve(itemBatch);
+        };
+
+        assertEquals("1", ids(new DynamicProgrammingSolver(fallbackSolver).solve(lineParser.getItemBatch()).toPacket()));
+        assertEquals(1, fallbackLines[0]);
+        assertEquals("1", ids(new DynamicProgrammingSolver().solve(lineParser.getItemBatch()).toPacket()));
+    }
+
+    @Test
+    public void testDynamicProgrammingSolverHundredsOfItems() {
+        List<PackageItem> packageItems = randomItems(new Random(42), 500, 9);
+
+        // the solver must not depend on 2^n, this finishes in milliseconds
+        assertEquals(false, ids(new DynamicProgrammingSolver().solve(100, packageItems)).isEmpty());
+    }
+
+    @Test
+    public void testFptasSolverKeepsTheErrorBound() {
+        Random random = new Random(2024);
+
+        for (int run = 0; run < 50; run++) {
+            ItemBatch itemBatch = ItemBatch.fromPackageItems(random.nextInt(101), randomItems(random, 20 + random.nextInt(181), 1 + random.nextInt(20)));
+
+            BitmaskPacket exactPacket   = new DynamicProgrammingSolver().solve(itemBatch);
+            BitmaskPacket approxPacket  = new FptasSolver(0.2, 0).solve(itemBatch);
+            double gap                  = SolverStatistics.takeOptimalityGap();
+            long exactPrice             = exactPacket == null ? 0 : exactPacket.getTotalPrice();
+            long approxPrice            = approxPacket == null ? 0 : approxPacket.getTotalPrice();
+
+            assertTrue(approxPacket == null || approxPacket.getTotalWeight() <= itemBatch.getFixedMaxWeightPackage());
+            assertTrue(approxPrice >= 0.8 * exactPrice, approxPrice + " of " + exactPrice);
+
+            // the reported gap is a guarantee, so the exact price can't be above the found price / (1 - gap)
+            assertTrue(gap >= 0 && gap <= 0.2, "gap " + gap);
+            assertTrue(approxPrice >= (1 - gap) * exactPrice - 1e-6, "gap " + gap + " with " + approxPrice + " of " + exactPrice);
+        }
+    }
+
+    @Test
+    public void testFptasSolverReportsTheGapOfASmallTable() {
+        Random random   = new Random(7);
+        int widerGaps   = 0;
+
+        for (int run = 0; run < 50; run++) {
+            List<PackageItem> packageItems = new ArrayList<>();
+
+            for (int id = 1, amountOfItems = 20 + random.nextInt(81); id <= amountOfItems; id++) {
+                packageItems.add(new PackageItem(id, random.nextInt(10000) / 100.0, random.nextInt(10000) / 100.0));
+            }
+            ItemBatch itemBatch = ItemBatch.fromPackageItems(random.nextInt(101), packageItems);
+
+            // the table is too small for epsilon, so K is raised for the size of the table
+            BitmaskPacket exactPacket   = new DynamicProgrammingSolver().solve(itemBatch);
+            BitmaskPacket approxPacket  = new FptasSolver(0.1, 0, 1 << 12).solve(itemBatch);
+            double gap                  = SolverStatistics.takeOptimalityGap();
+            long exactPrice             = exactPacket == null ? 0 : exactPacket.getTotalPrice();
+            long approxPrice            = approxPacket == null ? 0 : approxPacket.getTotalPrice();
+
+            assertTrue(gap >= 0 && gap < 1, "gap " + gap);
+            assertTrue(approxPrice >= (1 - gap) * exactPrice - 1e-6, "gap " + gap + " with " + approxPrice + " of " + exactPrice);
+
+            if (gap > 0.1) {
+                widerGaps++;
+            }
+        }
+        // the gap is not the epsilon, it's the guarantee of the raised K
+        assertTrue(widerGaps > 0);
+    }
+
+    @Test
+    public void testFptasSolverOneItemWithTinyEpsilon() {
+        LineParser lineParser = new LineParser();
+
+        // epsilon * maxPrice / n would give about 10^9 rounded prices, 8 GB for the lightest weight per price
+        assertTrue(lineParser.parse("100 : (1,5,€99.999999999)"));
+
+        BitmaskPacket packet = assertTimeout(Duration.ofSeconds(2), () -> new FptasSolver(1e-9, 0).solve(lineParser.getItemBatch()));
+
+        assertEquals("1", ids(packet.toPacket()));
+        assertEquals(0, SolverStatistics.takeOptimalityGap());
+    }
+
+    @Test
+    public void testFptasSolverIsExactForSmallPrices() {
+        List<PackageItem> packageItems = Arrays.asList(new PackageItem(1, 53.38, 45), new PackageItem(2, 88.62, 98), new PackageItem(3, 78.48, 3),
+                new PackageItem(4, 72.30, 76), new PackageItem(5, 30.18, 9), new PackageItem(6, 46.34, 48));
+
+        // K = 0.05 * 98 / 6 is below 1, so the prices are not rounded
+        assertEquals("4", ids(new FptasSolver(0.05, 0).solve(81, packageItems)));
+        assertEquals(0, SolverStatistics.takeOptimalityGap());
+    }
+
+    @Test
+    public void testFptasSolverTimeBudgetReturnsAPacket() {
+        ItemBatch itemBatch     = ItemBatch.fromPackageItems(100, randomItems(new Random(3), 400, 20));
+        BitmaskPacket packet    = new FptasSolver(0.01, 1).solve(itemBatch);
+        double gap              = SolverStatistics.takeOptimalityGap();
+
+        // the budget of one nanosecond is over before the table starts, so it's the greedy packet with its LP gap
+        assertTrue(packet != null && packet.getTotalWeight() <= itemBatch.getFixedMaxWeightPackage());
+        assertTrue(gap >= 0 && gap < 1, "gap " + gap);
+    }
+
+    @Test
+    public void testBitmaskPacketSumsFixedPointValues() {
+        ItemBatch itemBatch     = ItemBatch.fromPackageItems(81, Arrays.asList(new PackageItem(1, 53.38, 45), new PackageItem(2, 0.1, 9.5), new PackageItem(3, 0.2, 0.25)));
+        BitmaskPacket packet    = new BitmaskPacket(itemBatch);
+
+        packet.addItem(1);
+        packet.addItem(2);
+        packet.addItem(2);
+
+        assertEquals(30, packet.getTotalWeight());
+        assertEquals(975, packet.getTotalPrice());
+        assertEquals(2, packet.getAmountOfItems());
+        assertEquals("2,3", packet.getPackageItemIdsOfPackage());
+
+        packet.removeItem(1);
+
+        assertEquals(20, packet.getTotalWeight());
+        assertEquals("3", packet.getPackageItemIdsOfPackage());
+    }
+
+    @Test
+    public void testGrayCodeSubsetEnumeratorVisitsEverySubsetOnce() {
+        ItemBatch itemBatch                 = ItemBatch.fromPackageItems(100, randomItems(new Random(11), 10, 9));
+        GrayCodeSubsetEnumerator subsets    = new GrayCodeSubsetEnumerator(itemBatch);
+        Set<Long> masks                     = new HashSet<>();
+        long previousMask                   = 0;
+
+        while (subsets.next()) {
+            BitmaskPacket packet = GrayCodeSubsetEnumerator.createPacket(itemBatch, subsets.getMask());
+
+            // one item changes per step and the running sums are the sums of the mask
+            assertEquals(1, Long.bitCount(previousMask ^ subsets.getMask()));
+            assertEquals(packet.getTotalWeight(), subsets.getTotalWeight());
+            assertEquals(packet.getTotalPrice(), subsets.getTotalPrice());
+            assertEquals(packet.getAmountOfItems(), subsets.getAmountOfItems());
+            assertTrue(masks.add(subsets.getMask()));
+
+            previousMask = subsets.getMask();
+        }
+        assertEquals((1 << 10) - 1, masks.size());
+        assertEquals(false, masks.contains(0L));
+    }
+
+    @Test
+    public void testSubsetEnumerationSolverAlternatives() {
+        Random random = new Random(7);
+
+        for (int run = 0; run < 200; run++) {
+            ItemBatch itemBatch = ItemBatch.fromPackageItems(random.nextInt(101), randomItems(random, 1 + random.nextInt(10), 1 + random.nextInt(6)));
+
+            // all valid packets in the enumeration order, sorted stable like the reference did it before
+            List<BitmaskPacket> allPackets = new ArrayList<>();
+
+            for (long mask = 1; mask < 1L << itemBatch.size(); mask++) {
+                BitmaskPacket packet = new BitmaskPacket(itemBatch);
+
+                for (int i = 0; i < itemBatch.size(); i++) {
+                    if ((mask & (1L << i)) != 0) {
+                        packet.addItem(i);
+                    }
+                }
+                if (packet.getTotalWeight() <= itemBatch.getFixedMaxWeightPackage()) {
+                    allPackets.add(packet);
+                }
+            }
+            allPackets.sort(BitmaskPacket.PackageItemComparatorPriceDescAndWeightAscAndAmountOfItemsInPacketDesc);
+
+            List<String> expected   = allPackets.stream().limit(5).map(BitmaskPacket::getPackageItemIdsOfPackage).collect(Collectors.toList());
+            List<String> actual     = new SubsetEnumerationSolver().solveAlternatives(itemBatch, 5).stream().map(BitmaskPacket::getPackageItemIdsOfPackage).collect(Collectors.toList());
+
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.model.PackageItem;
+import de.fritze.marcus.parser.LineParser;
+import de.fritze.marcus.parser.MappedLineReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LineParserTest {
+
+    /* the patterns of the former regex based parsing, the parser must give the same results */
+    private static final Pattern LINE_PATTERN = Pattern.compile("([0-9]+([\\.][0-9]+)?)\\s:((\\s\\(\\d+,[0-9]+([\\.][0-9]+)?,€[0-9]+([\\.][0-9]+)?\\))+)");
+    private static final Pattern ITEM_PATTERN = Pattern.compile("\\((\\d+),([0-9]+([\\.][0-9]+)?),€([0-9]+([\\.][0-9]+)?)\\)");
+
+    private static final String SAMPLE_LINE = "81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)";
+
+    /**
+     * parses the line like before with regular expressions
+     *
+     * @param line
+     * @return null if the line doesn't match
+     */
+    private static String parseWithPattern(String line) {
+        Matcher matcher = LINE_PATTERN.matcher(line);
+
+        if (!matcher.find()) {
+            return null;
+        }
+        return Float.parseFloat(matcher.group(1)) + " : " + Arrays.stream(matcher.group(3).trim().split("\\s+")).map(item -> {
+            Matcher itemMatcher = ITEM_PATTERN.matcher(item);
+            itemMatcher.find();
+            return new PackageItem(Integer.parseInt(itemMatcher.group(1)), Double.parseDouble(itemMatcher.group(2)), Double.parseDouble(itemMatcher.group(4))).toString();
+        }).collect(Collectors.joining(" "));
+    }
+
+    private static String parseBytesWithParser(LineParser lineParser, String line) {
+        byte[] bytes = ("xx" + line + "yy").getBytes(StandardCharsets.UTF_8);
+
+        // the line is in the middle of the buffer
+        if (!lineParser.parse(ByteBuffer.wrap(bytes), 2, bytes.length - 2)) {
+            return null;
+        }
+        return describe(lineParser.getItemBatch());
+    }
+
+    private static String parseWithParser(LineParser lineParser, String line) {
+        if (!lineParser.parse(line)) {
+            return null;
+        }
+        return describe(lineParser.getItemBatch());
+    }
+
+    private static String describe(ItemBatch itemBatch) {
+        return itemBatch.getMaxWeightPackage() + " : " + IntStream.range(0, itemBatch.size()).mapToObj(i -> itemBatch.getPackageItem(i).toString()).collect(Collectors.joining(" "));
+    }
+
+    @Test
+    public void testSampleLine() {
+        LineParser lineParser = new LineParser();
+
+        assertTrue(lineParser.parse(SAMPLE_LINE));
+
+        ItemBatch itemBatch = lineParser.getItemBatch();
+
+        assertEquals(81f, itemBatch.getMaxWeightPackage());
+        assertEquals(6, itemBatch.size());
+        assertEquals(4, itemBatch.getId(3));
+        assertEquals(72.30, itemBatch.getWeight(3));
+        assertEquals(76, itemBatch.getPrice(3));
+        assertEquals(2, itemBatch.getWeightScale());
+        assertEquals(0, itemBatch.getPriceScale());
+        assertEquals(8100, itemBatch.getFixedMaxWeightPackage());
+        assertEquals(7230, itemBatch.getFixedWeight(3));
+        assertEquals(76, itemBatch.getFixedPrice(3));
+    }
+
+    @Test
+    public void testSameResultsLikePattern() {
+        List<String> lines = Arrays.asList(
+                SAMPLE_LINE,
+                "8 : (1,15.3,€34)",
+                "81 : (1,53.38,,€45) (2,88.62,€98)",
+                "81 :(1,53.38,€45)",
+                "81: (1,53.38,€45)",
+                "x181 : (1,53.38,€45) garbage (2,1,€1)",
+                "1.2.3 : (1,5,€5)",
+                "8. : (1,5,€5)",
+                "8 : (1,5.,€5)",
+                "8 : (1,5,€5) (2,6,€6)(3,7,€7)",
+                "8\t:\t(1,5,€5)\f(2,0.000001,€123456789.123456789)",
+                "8 : (1,5,€5) 9 : (1,5,€5)",
+                "abc 7 : nothing 8 : (1,5,€5)",
+                "100.1234567891 : (01,0005.50,€0)",
+                "8 : ()",
+                ""
+        );
+        LineParser lineParser = new LineParser();
+
+        for (String line : lines) {
+            assertEquals(parseWithPattern(line), parseWithParser(lineParser, line), line);
+            assertEquals(parseWithPattern(line), parseBytesWithParser(lineParser, line), line);
+        }
+    }
+
+    @Test
+    public void testSameResultsLikePatternOnMutatedLines() {
+        Random random       = new Random(1234);
+        String alphabet     = "0123456789.,:() €x";
+        LineParser lineParser = new LineParser();
+
+        for (int run = 0; run < 20000; run++) {
+            StringBuilder line = new StringBuilder(SAMPLE_LINE.substring(0, random.nextInt(SAMPLE_LINE.length() + 1)));
+
+            for (int mutation = random.nextInt(4); mutation > 0 && line.length() > 0; mutation--) {
+                line.setCharAt(random.nextInt(line.length()), alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            assertEquals(parseWithPattern(line.toString()), parseWithParser(lineParser, line.toString()), line.toString());
+            assertEquals(parseWithPattern(line.toString()), parseBytesWithParser(lineParser, line.toString()), line.toString());
+        }
+    }
+
+    @Test
+    public void testReadLinesFromMappedFile() throws IOException {
+        Path file = Files.createTempFile("mappedLines", ".txt");
+
+        try {
+            Files.write(file, "\r81 : (1,5,€5)\r\r8 : x\r\n\n€€\n\r\nlast".getBytes(StandardCharsets.UTF_8));
+
+            List<String> expectedLines = new BufferedReader(new StringReader(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))).lines().collect(Collectors.toList());
+
+            // the tiny window makes the reader map a new window in the middle of lines and between \r and \n
+            for (int windowSize : new int[]{2, 3, 5, 1024}) {
+                List<String> lines = new ArrayList<>();
+
+                try (MappedLineReader reader = new MappedLineReader(file, windowSize)) {
+                    while (reader.nextLine()) {
+                        byte[] line = new byte[reader.getLineEnd() - reader.getLineStart()];
+
+                        for (int i = 0; i < line.length; i++) {
+                            line[i] = reader.getBuffer().get(reader.getLineStart() + i);
+                        }
+                        lines.add(new String(line, StandardCharsets.UTF_8));
+                        assertEquals(lines.size(), reader.getLineNumber());
+                    }
+                }
+                assertEquals(expectedLines, lines, "window size " + windowSize);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testReadLinesFromSplitFile() throws IOException {
+        Path file = Files.createTempFile("splitLines", ".txt");
+
+        try {
+            byte[] content = "\r81 : (1,5,€5)\r\r8 : x\r\n\n€€\n\r\nlast".getBytes(StandardCharsets.UTF_8);
+            Files.write(file, content);
+
+            List<String> expectedLines = new BufferedReader(new StringReader(new String(content, StandardCharsets.UTF_8))).lines().collect(Collectors.toList());
+
+            // the file is split at every offset, the ranges must have the same lines like the whole file
+            for (int splitOffset = 0; splitOffset <= content.length; splitOffset++) {
+                long rangeStart     = MappedLineReader.findLineStart(file, splitOffset);
+                List<String> lines  = new ArrayList<>();
+
+                for (long[] range : new long[][]{{0, rangeStart}, {rangeStart, content.length}}) {
+                    try (MappedLineReader reader = new MappedLineReader(file, 3, range[0], range[1], lines.size() + 1)) {
+                        while (reader.nextLine()) {
+                            byte[] line = new byte[reader.getLineEnd() - reader.getLineStart()];
+
+                            for (int i = 0; i < line.length; i++) {
+                                line[i] = reader.getBuffer().get(reader.getLineStart() + i);
+                            }
+                            lines.add(new String(line, StandardCharsets.UTF_8));
+                            assertEquals(lines.size(), reader.getLineNumber());
+                        }
+                    }
+                }
+                assertEquals(expectedLines, lines, "split offset " + splitOffset);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCreateFromString() {
+        assertEquals(new PackageItem(3, 78.48, 3).toString(), PackageItem.createFromString("(3,78.48,€3)").toString());
+        assertNull(PackageItem.createFromString("(3,78.48,3)"));
+        assertFalse(new LineParser().parseItem("3,78.48,€3"));
+
+        // the parser is reused, an item that was created before doesn't change
+        PackageItem packageItem = PackageItem.createFromString("(1,53.38,€45)");
+
+        assertEquals(new PackageItem(2, 88.62, 98).toString(), PackageItem.createFromString("(2,88.62,€98)").toString());
+        assertEquals(new PackageItem(1, 53.38, 45).toString(), packageItem.toString());
+    }
+}
@@ -0,0 +1,184 @@
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.model.BitmaskPacket;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.model.PackageItem;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import de.fritze.marcus.solver.ExactMultipleKnapsackSolver;
+import de.fritze.marcus.solver.GreedyLocalSearchSolver;
+import de.fritze.marcus.solver.MultipleKnapsackSolver;
+import de.fritze.marcus.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MultipleKnapsackSolverTest {
+
+    private static ItemBatch randomLine(Random random, int amountOfItems) {
+        List<PackageItem> packageItems = new ArrayList<>();
+
+        for (int id = 1; id <= amountOfItems; id++) {
+            packageItems.add(new PackageItem(id, random.nextInt(8) * 5, random.nextInt(6) * 2.5));
+        }
+        return ItemBatch.fromPackageItems(random.nextInt(41), packageItems);
+    }
+
+    /**
+     * @return price, weight and amount of items of all packets, after checking that every packet fits and no item is packed twice
+     */
+    private static long[] totals(ItemBatch itemBatch, List<BitmaskPacket> packets, int amountOfPackages) {
+        long[] totals       = new long[3];
+        boolean[] packed    = new boolean[itemBatch.size()];
+
+        assertEquals(amountOfPackages, packets.size());
+
+        for (BitmaskPacket packet : packets) {
+            assertTrue(packet.getTotalWeight() <= itemBatch.getFixedMaxWeightPackage());
+
+            for (int i = 0; i < itemBatch.size(); i++) {
+                if (packet.containsItem(i)) {
+                    assertFalse(packed[i]);
+                    packed[i] = true;
+                }
+            }
+            totals[0] += packet.getTotalPrice();
+            totals[1] += packet.getTotalWeight();
+            totals[2] += packet.getAmountOfItems();
+        }
+        return totals;
+    }
+
+    /**
+     * tries all (packages + 1)^n assignments
+     */
+    private static long[] bruteForce(ItemBatch itemBatch, int amountOfPackages) {
+        long[] best         = new long[3];
+        int[] assignment    = new int[itemBatch.size()];
+        long combinations   = (long) Math.pow(amountOfPackages + 1, itemBatch.size());
+
+        for (long combination = 0; combination < combinations; combination++) {
+            long rest       = combination;
+            long[] weights  = new long[amountOfPackages];
+            long[] totals   = new long[3];
+            boolean fits    = true;
+
+            for (int i = 0; i < itemBatch.size(); i++) {
+                assignment[i] = (int) (rest % (amountOfPackages + 1)) - 1;
+                rest /= amountOfPackages + 1;
+
+                if (assignment[i] >= 0) {
+                    weights[assignment[i]] += itemBatch.getFixedWeight(i);
+                    fits &= weights[assignment[i]] <= itemBatch.getFixedMaxWeightPackage();
+                    totals[0] += itemBatch.getFixedPrice(i);
+                    totals[1] += itemBatch.getFixedWeight(i);
+                    totals[2]++;
+                }
+            }
+            if (fits && MultipleKnapsackSolver.compareSolutions(totals[0], totals[1], (int) totals[2], best[0], best[1], (int) best[2]) < 0) {
+                best = totals;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testExactSolverMatchesBruteForce() {
+        Random random = new Random(21);
+
+        for (int run = 0; run < 300; run++) {
+            int amountOfPackages    = 2 + random.nextInt(2);
+            ItemBatch itemBatch     = randomLine(random, 1 + random.nextInt(7));
+
+            long[] expected = bruteForce(itemBatch, amountOfPackages);
+            long[] actual   = totals(itemBatch, new ExactMultipleKnapsackSolver().solve(itemBatch, amountOfPackages), amountOfPackages);
+
+            assertEquals(expected[0], actual[0], "price");
+            assertEquals(expected[1], actual[1], "weight");
+            assertEquals(expected[2], actual[2], "amount of items");
+        }
+    }
+
+    @Test
+    public void testGreedySolverIsValidAndNotBetterThanExact() {
+        Random random   = new Random(5);
+        long greedyPrice = 0;
+        long exactPrice  = 0;
+
+        for (int run = 0; run < 300; run++) {
+            int amountOfPackages    = 2 + random.nextInt(3);
+            ItemBatch itemBatch     = randomLine(random, 1 + random.nextInt(15));
+
+            long[] greedy   = totals(itemBatch, new GreedyLocalSearchSolver().solve(itemBatch, amountOfPackages), amountOfPackages);
+            long[] exact    = totals(itemBatch, new ExactMultipleKnapsackSolver().solve(itemBatch, amountOfPackages), amountOfPackages);
+
+            assertTrue(MultipleKnapsackSolver.compareSolutions(exact[0], exact[1], (int) exact[2], greedy[0], greedy[1], (int) greedy[2]) <= 0);
+
+            greedyPrice += greedy[0];
+            exactPrice  += exact[0];
+        }
+        // the heuristic is close to the best solution on these lines
+        assertTrue(greedyPrice * 100 >= exactPrice * 95, greedyPrice + " of " + exactPrice);
+    }
+
+    @Test
+    public void testPackagesOfLines() throws AppException {
+        PackagerConfiguration configuration = new PackagerConfiguration().setAmountOfPackages(2);
+
+        assertEquals("4 ; 2,3", Packager.packageLine(1, "10 : (1,6,€10) (2,5,€9) (3,5,€8) (4,9,€30)", configuration));
+        assertEquals("4 ; 2,3 ; 1", Packager.packageLine(1, "3 x 10 : (1,6,€10) (2,5,€9) (3,5,€8) (4,9,€30)", configuration));
+        assertEquals("1 ; -", Packager.packageLine(1, "8 : (1,5,€10)", configuration));
+        assertEquals("4", Packager.packageLine(1, "1x 10 : (1,6,€10) (2,5,€9) (3,5,€8) (4,9,€30)", configuration));
+    }
+
+    @Test
+    public void testAmountOfPackagesIsValidated() throws AppException {
+        PackagerConfiguration configuration = new PackagerConfiguration();
+
+        // the amount is checked before any array of the solvers is created
+        assertEquals(GlobalErrorCodes.PACKAGES_AMOUNT_INVALID, assertThrows(AppException.class,
+                () -> Packager.packageLine(1, "999999999 x 81 : (1,53.38,€45) (2,88.62,€98)", configuration)).getCode());
+        assertEquals(GlobalErrorCodes.PACKAGES_AMOUNT_INVALID, assertThrows(AppException.class,
+                () -> Packager.packageLine(1, "99999999999 x 81 : (1,53.38,€45) (2,88.62,€98)", configuration)).getCode());
+        assertEquals(GlobalErrorCodes.PACKAGES_AMOUNT_INVALID, assertThrows(AppException.class,
+                () -> Packager.packageLine(1, "0 x 81 : (1,53.38,€45) (2,88.62,€98)", configuration)).getCode());
+        assertEquals(GlobalErrorCodes.PACKAGES_AMOUNT_INVALID, assertThrows(AppException.class,
+                () -> Packager.packageLine(1, "8 : (1,5,€10)", new PackagerConfiguration().setAmountOfPackages(101))).getCode());
+
+        // more packages than items, the packages without items are empty
+        assertEquals("1 ; - ; - ; - ; -", Packager.packageLine(1, "5 x 8 : (1,5,€10)", configuration));
+
+        configuration.setValidator(new Validator().setMaxPackages(4));
+
+        assertEquals("1 ; - ; - ; -", Packager.packageLine(1, "4 x 8 : (1,5,€10)", configuration));
+        assertEquals(GlobalErrorCodes.PACKAGES_AMOUNT_INVALID, assertThrows(AppException.class,
+                () -> Packager.packageLine(1, "5 x 8 : (1,5,€10)", configuration)).getCode());
+    }
+
+    @Test
+    public void testExactSolverStopsAtTheBudget() {
+        // 20 items of almost the same ratio and 8 packages for 2 items each, without the budget this takes seconds to minutes
+        List<PackageItem> packageItems = new ArrayList<>();
+
+        for (int id = 1; id <= 20; id++) {
+            packageItems.add(new PackageItem(id, 10 + id * 0.13, 40 + id % 7));
+        }
+        ItemBatch itemBatch = ItemBatch.fromPackageItems(30, packageItems);
+
+        long[] exact    = assertTimeout(Duration.ofSeconds(2), () -> totals(itemBatch, new ExactMultipleKnapsackSolver().solve(itemBatch, 8), 8));
+        long[] greedy   = totals(itemBatch, new GreedyLocalSearchSolver().solve(itemBatch, 8), 8);
+
+        // the stopped search is never worse than the fallback
+        assertTrue(exact[0] >= greedy[0]);
+        assertEquals(16, exact[2]);
+    }
+}
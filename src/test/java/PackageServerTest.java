@@ -0,0 +1,73 @@
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import de.fritze.marcus.server.PackageServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PackageServerTest {
+
+    private static final String LINE_1 = "81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)";
+    private static final String LINE_2 = "8 : (1,15.3,€34)";
+
+    @Test
+    public void testServeAnswersEveryLineAndGoesOnAfterErrors() throws Exception {
+        StringWriter output = new StringWriter();
+
+        try (PackageServer packageServer = new PackageServer(new PackagerConfiguration())) {
+            packageServer.serve(new StringReader(LINE_1 + "\nno line\n\n101 : (1,15.3,€34)\n" + LINE_2 + "\n"), output);
+        }
+
+        String separator = System.lineSeparator();
+
+        assertEquals(
+                "4" + separator
+                + "error " + GlobalErrorCodes.LINE_NOT_IN_CORRECT_FORMAT + ": The line 2 in the file is not in correct format!" + separator
+                + separator
+                + "error " + GlobalErrorCodes.PACKAGE_MAX_WEIGHT_EXCEEDED + ": " + "Package max weight exceeded in line 4. The maximum weight that a package can hold must be <= 100." + separator
+                + "-" + separator,
+                output.toString()
+        );
+    }
+
+    @Test
+    public void testServeLocalPort() throws Exception {
+        try (PackageServer packageServer = new PackageServer(new PackagerConfiguration())) {
+            int port = packageServer.bind(0);
+
+            Thread acceptThread = new Thread(() -> {
+                try {
+                    packageServer.acceptConnections();
+                } catch (Exception ignored) {
+                    // the test fails with the missing answer
+                }
+            });
+            acceptThread.setDaemon(true);
+            acceptThread.start();
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+                 Writer request = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                 BufferedReader answer = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+
+                // the answer of a line comes before the next line is sent
+                request.write(LINE_1 + "\n");
+                request.flush();
+                assertEquals("4", answer.readLine());
+
+                request.write(LINE_2 + "\n");
+                request.flush();
+                assertEquals("-", answer.readLine());
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
+import de.fritze.marcus.metrics.Histogram;
+import de.fritze.marcus.metrics.PackagerMetrics;
+import de.fritze.marcus.output.StringResultSink;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import de.fritze.marcus.solver.SubsetEnumerationSolver;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackagerMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        Histogram histogram = new Histogram();
+
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean());
+
+        // the buckets have a relative error of about 3%
+        assertEquals(500, histogram.getPercentile(50), 500 * 0.04);
+        assertEquals(990, histogram.getPercentile(99), 990 * 0.04);
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testHistogramSmallValuesAreExact() {
+        Histogram histogram = new Histogram();
+
+        histogram.record(3);
+        histogram.record(7);
+        histogram.record(-5);
+
+        assertEquals(0, histogram.getMin());
+        assertEquals(3, histogram.getPercentile(50));
+        assertEquals(7, histogram.getPercentile(90));
+    }
+
+    @Test
+    public void testSampleInput2Metrics() throws AppException {
+        PackagerMetrics metrics = new PackagerMetrics();
+
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration()
+                .setKnapsackSolver(new SubsetEnumerationSolver())
+                .setResultSink(new StringResultSink())
+                .setMetrics(metrics));
+
+        assertEquals(5, metrics.getLines());
+        assertEquals(4, metrics.getEmptyLines());
+        assertEquals(0, metrics.getErrors());
+        assertEquals(5, metrics.getStageLatency(PackagerMetrics.Stage.PARSE).getCount());
+        assertEquals(5, metrics.getStageLatency(PackagerMetrics.Stage.SOLVE).getCount());
+        assertEquals(1, metrics.getItemsPerLine().getMin());
+        assertEquals(9, metrics.getItemsPerLine().getMax());
+
+        // the line "8 : (1,15.3,€34)" has no feasible subset
+        assertEquals(0, metrics.getVisitedSubsets().getMin());
+        assertTrue(metrics.getJson().startsWith("{\"lines\":5,\"emptyLines\":4,\"errors\":0,\"stageLatencyNanos\":{\"parse\":{\"count\":5,"));
+    }
+
+    @Test
+    public void testFailSoftErrorsAreCounted() throws AppException {
+        PackagerMetrics metrics = new PackagerMetrics();
+
+        Packager.startPackaging("src/test/resources/linesWithErrors.txt", new PackagerConfiguration()
+                .setErrorReport(new ErrorReport(2))
+                .setResultSink(new StringResultSink())
+                .setMetrics(metrics)
+                .setParallelism(2));
+
+        assertEquals(5, metrics.getLines());
+        assertEquals(2, metrics.getErrors());
+        assertEquals(3, metrics.getStageLatency(PackagerMetrics.Stage.SOLVE).getCount());
+    }
+}
@@ -1,13 +1,31 @@
 import com.ginsberg.junit.exit.ExpectSystemExitWithStatus;
+import de.fritze.marcus.Main;
+import de.fritze.marcus.cache.SolutionCache;
 import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.ErrorReport;
 import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.packer.Checkpoint;
 import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.output.BufferedResultSink;
+import de.fritze.marcus.output.StringResultSink;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import de.fritze.marcus.solver.FptasSolver;
+import de.fritze.marcus.solver.SubsetEnumerationSolver;
+import de.fritze.marcus.validation.Validator;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -101,4 +119,282 @@ public class PackagerTest {
 
         assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
     }
+
+    @Test
+    public void testSampleInput1Parallel() throws AppException {
+        Packager.startPackaging("src/test/resources/sampleInput.txt", new PackagerConfiguration().setParallelism(4).setLinesPerTask(1));
+
+        assertEquals("\n4\n\n-\n\n2,7\n\n8,9\n", systemOutContent.toString());
+    }
+
+    @Test
+    public void testSampleInput2Parallel() throws AppException {
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setParallelism(3).setLinesPerTask(2));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
+    }
+
+    @Test
+    @ExpectSystemExitWithStatus(GlobalErrorCodes.PACKAGE_ITEMS_ITEM_NUMBER_MISSING)
+    public void testPackageItemsItemNumberMissingParallel() {
+        assertThrows(Exception.class, () -> Packager.startPackaging("src/test/resources/packageItemsItemNumberMissing.txt", new PackagerConfiguration().setParallelism(4).setLinesPerTask(1)));
+    }
+
+    @Test
+    public void testSampleInput1MemoryMapped() throws AppException {
+        Packager.startPackaging("src/test/resources/sampleInput.txt", new PackagerConfiguration().setMemoryMappedInput(true));
+
+        assertEquals("\n4\n\n-\n\n2,7\n\n8,9\n", systemOutContent.toString());
+    }
+
+    @Test
+    public void testSampleInput2MemoryMappedParallel() throws AppException {
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setMemoryMappedInput(true).setParallelism(3).setLinesPerTask(2));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
+    }
+
+    @Test
+    public void testFileDoesNotExistsMemoryMapped() {
+        assertEquals(
+                GlobalErrorCodes.NO_PATH_DEFINED,
+                assertThrows(AppException.class, () -> Packager.startPackaging("fileNotExists.txt", new PackagerConfiguration().setMemoryMappedInput(true))).getCode()
+        );
+    }
+
+    @Test
+    @ExpectSystemExitWithStatus(GlobalErrorCodes.LINE_NOT_IN_CORRECT_FORMAT)
+    public void testLineNotInCorrectFormatMemoryMapped() {
+        assertThrows(Exception.class, () -> Packager.startPackaging("src/test/resources/lineNotInCorrectFormat.txt", new PackagerConfiguration().setMemoryMappedInput(true)));
+    }
+
+    @Test
+    public void testSampleInput2Alternatives() throws AppException {
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setKnapsackSolver(new SubsetEnumerationSolver()).setAlternatives(2));
+
+        assertEquals("4 | 5,6\n\n-\n\n2,7 | 2,3,4\n\n8,9 | 6,9\n\n1,2,3 | 1,2\n", systemOutContent.toString());
+    }
+
+    @Test
+    public void testTooManyItemsForTheSolver() {
+        StringBuilder line = new StringBuilder("50 :");
+
+        for (int id = 1; id <= 64; id++) {
+            line.append(" (").append(id).append(",1,€1)");
+        }
+        PackagerConfiguration configuration = new PackagerConfiguration().setKnapsackSolver(new SubsetEnumerationSolver()).setValidator(new Validator().setMaxItemsInLine(100));
+
+        // the validator allows the line, but the subsets of 64 items can't be enumerated
+        AppException exception = assertThrows(AppException.class, () -> Packager.packageLine(1, line, configuration));
+
+        assertEquals(GlobalErrorCodes.PACKAGE_ITEMS_AMOUNT_EXCEEDED, exception.getCode());
+        assertEquals("Too many items for the solver in line 1. The solver can choose from up to 63 items.", exception.getMessage());
+    }
+
+    @Test
+    @ExpectSystemExitWithStatus(GlobalErrorCodes.INVALID_ARGUMENT)
+    public void testAlternativesNeedTheSubsetEnumeration() {
+        // the default solver only finds the best package
+        Main.main(new String[] {"--alternatives=2", "src/test/resources/sampleInput2.txt"});
+    }
+
+    @Test
+    public void testSampleInput2FlushInterval() throws AppException {
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setFlushInterval(2));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
+    }
+
+    @Test
+    public void testSampleInput2OwnResultSink() throws AppException {
+        StringResultSink resultSink = new StringResultSink();
+
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setResultSink(resultSink).setParallelism(2).setLinesPerTask(2));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", resultSink.toString());
+        assertEquals(9, resultSink.getAmountOfLines());
+        assertEquals("", systemOutContent.toString());
+    }
+
+    @Test
+    public void testBufferedResultSinkSmallBuffer() throws Exception {
+        StringWriter writer = new StringWriter();
+
+        try (BufferedResultSink resultSink = new BufferedResultSink(writer, 11, 0)) {
+            resultSink.append("a text longer than the buffer");
+            resultSink.append(',');
+            resultSink.appendInt(0);
+            resultSink.append(',');
+            resultSink.appendInt(-1234567890);
+            resultSink.append(',');
+            resultSink.appendInt(Integer.MIN_VALUE);
+            resultSink.append(',');
+            resultSink.appendInt(Integer.MAX_VALUE);
+            resultSink.endLine();
+        }
+
+        assertEquals("a text longer than the buffer,0,-1234567890," + Integer.MIN_VALUE + "," + Integer.MAX_VALUE + System.lineSeparator(), writer.toString());
+    }
+
+    @Test
+    public void testSampleInput2SolutionCache() throws AppException {
+        SolutionCache solutionCache = new SolutionCache(16);
+
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setSolutionCache(solutionCache));
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setSolutionCache(solutionCache));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
+        assertEquals(5, solutionCache.size());
+        assertEquals(5, solutionCache.getMisses());
+        assertEquals(5, solutionCache.getHits());
+    }
+
+    @Test
+    public void testSampleInput2SolutionCacheFile(@TempDir Path directory) throws AppException {
+        Path cacheFile = directory.resolve("solutions.cache");
+
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setSolutionCache(new SolutionCache(16)).setSolutionCacheFile(cacheFile));
+
+        // the second run takes all lines from the cache file
+        SolutionCache solutionCache = new SolutionCache(16);
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setSolutionCache(solutionCache).setSolutionCacheFile(cacheFile));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
+        assertEquals(5, solutionCache.size());
+        assertEquals(0, solutionCache.getMisses());
+        assertEquals(5, solutionCache.getHits());
+    }
+
+    @Test
+    public void testSolutionCacheKeepsTheSettingsApart(@TempDir Path directory) throws AppException {
+        Path cacheFile = directory.resolve("solutions.cache");
+
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setSolutionCache(new SolutionCache(16)).setSolutionCacheFile(cacheFile));
+
+        // another solver doesn't take the lines of the cache file
+        SolutionCache solutionCache = new SolutionCache(16);
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setSolutionCache(solutionCache).setSolutionCacheFile(cacheFile)
+                .setKnapsackSolver(new FptasSolver(0.5, 0)));
+
+        assertEquals(10, solutionCache.size());
+        assertEquals(5, solutionCache.getMisses());
+        assertEquals(0, solutionCache.getHits());
+
+        // and also other limits of the validator don't take the lines of the same cache
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setSolutionCache(solutionCache)
+                .setValidator(new Validator().setMaxPackages(2)));
+
+        assertEquals(15, solutionCache.size());
+        assertEquals(10, solutionCache.getMisses());
+        assertEquals(0, solutionCache.getHits());
+    }
+
+    @Test
+    public void testFailSoftLinesWithErrors() throws AppException {
+        ErrorReport errorReport = new ErrorReport(2);
+
+        Packager.startPackaging("src/test/resources/linesWithErrors.txt", new PackagerConfiguration().setErrorReport(errorReport));
+
+        assertEquals("4\n!\n-\n!\n8,9\n", systemOutContent.toString());
+        assertEquals("[line 2, code 30: The line 2 in the file is not in correct format!, "
+                + "line 4, code 40: Package max weight exceeded in line 4. The maximum weight that a package can hold must be <= 100.]", errorReport.getErrors().toString());
+    }
+
+    @Test
+    public void testFailSoftLinesWithErrorsParallelAndMemoryMapped() throws AppException {
+        ErrorReport errorReport = new ErrorReport(2);
+
+        Packager.startPackaging("src/test/resources/linesWithErrors.txt", new PackagerConfiguration().setErrorReport(errorReport).setParallelism(2).setLinesPerTask(1).setMemoryMappedInput(true));
+
+        assertEquals("4\n!\n-\n!\n8,9\n", systemOutContent.toString());
+        assertEquals(2, errorReport.size());
+        assertEquals(4, errorReport.getErrors().get(1).getLineNumber());
+    }
+
+    @Test
+    @ExpectSystemExitWithStatus(GlobalErrorCodes.PACKAGE_MAX_WEIGHT_EXCEEDED)
+    public void testFailSoftTooManyErrors() {
+        assertThrows(Exception.class, () -> Packager.startPackaging("src/test/resources/linesWithErrors.txt", new PackagerConfiguration().setErrorReport(new ErrorReport(1))));
+    }
+
+    @Test
+    @ExpectSystemExitWithStatus(GlobalErrorCodes.PACKAGE_MAX_WEIGHT_EXCEEDED)
+    public void testFailSoftTooManyErrorsParallel() {
+        assertThrows(Exception.class, () -> Packager.startPackaging("src/test/resources/linesWithErrors.txt", new PackagerConfiguration().setErrorReport(new ErrorReport(1)).setParallelism(2).setLinesPerTask(2)));
+    }
+
+    @Test
+    public void testSampleInput2OutputFileWithCheckpoints(@TempDir Path directory) throws Exception {
+        Path outputFile = directory.resolve("output.txt");
+
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setOutputFile(outputFile).setCheckpointInterval(2));
+
+        Checkpoint checkpoint = Checkpoint.read(Checkpoint.fileOf(outputFile));
+
+        assertEquals("", systemOutContent.toString());
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8));
+        assertEquals(9, checkpoint.getLineNumber());
+        assertEquals(Files.size(Paths.get("src/test/resources/sampleInput2.txt")), checkpoint.getInputOffset());
+        assertEquals(Files.size(outputFile), checkpoint.getOutputOffset());
+    }
+
+    @Test
+    public void testSampleInput2ResumeAfterCheckpoint(@TempDir Path directory) throws Exception {
+        byte[] input        = Files.readAllBytes(Paths.get("src/test/resources/sampleInput2.txt"));
+        Path inputFile      = directory.resolve("input.txt");
+        Path outputFile     = directory.resolve("output.txt");
+
+        // the first run only sees the first four lines, then it "crashes" after writing some output behind the checkpoint
+        int lineEnds    = 0;
+        int end         = 0;
+
+        while (lineEnds < 4) {
+            if (input[end++] == '\r') {
+                lineEnds++;
+            }
+        }
+        Files.write(inputFile, Arrays.copyOf(input, end));
+        Packager.startPackaging(inputFile.toString(), new PackagerConfiguration().setOutputFile(outputFile).setCheckpointInterval(1));
+        Files.write(outputFile, "half a li".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        // the second run goes on at the fifth line of the whole file, on the worker pool
+        Files.write(inputFile, input);
+        Packager.startPackaging(inputFile.toString(), new PackagerConfiguration().setOutputFile(outputFile).setCheckpointInterval(1).setResume(true).setParallelism(2).setLinesPerTask(2));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", new String(Files.readAllBytes(outputFile), StandardCharsets.UTF_8));
+        assertEquals(9, Checkpoint.read(Checkpoint.fileOf(outputFile)).getLineNumber());
+    }
+
+    @Test
+    public void testCheckpointWithoutOutputFile() {
+        assertEquals(
+                GlobalErrorCodes.INVALID_ARGUMENT,
+                assertThrows(AppException.class, () -> Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setCheckpointInterval(2))).getCode()
+        );
+    }
+
+    @Test
+    public void testSampleInput2Split() throws AppException {
+        Packager.startPackaging("src/test/resources/sampleInput2.txt", new PackagerConfiguration().setSplitInput(true).setSplitRangeSize(50).setParallelism(3));
+
+        assertEquals("4\n\n-\n\n2,7\n\n8,9\n\n1,2,3\n", systemOutContent.toString());
+    }
+
+    @Test
+    public void testFailSoftLinesWithErrorsSplit() throws AppException {
+        ErrorReport errorReport = new ErrorReport(2);
+
+        // every line is its own range, so the line numbers of the errors are global
+        Packager.startPackaging("src/test/resources/linesWithErrors.txt", new PackagerConfiguration().setErrorReport(errorReport).setSplitInput(true).setSplitRangeSize(1).setParallelism(2));
+
+        assertEquals("4\n!\n-\n!\n8,9\n", systemOutContent.toString());
+        assertEquals("[line 2, code 30: The line 2 in the file is not in correct format!, "
+                + "line 4, code 40: Package max weight exceeded in line 4. The maximum weight that a package can hold must be <= 100.]", errorReport.getErrors().toString());
+    }
+
+    @Test
+    @ExpectSystemExitWithStatus(GlobalErrorCodes.LINE_NOT_IN_CORRECT_FORMAT)
+    public void testLineNotInCorrectFormatSplit() {
+        assertThrows(Exception.class, () -> Packager.startPackaging("src/test/resources/linesWithErrors.txt", new PackagerConfiguration().setSplitInput(true).setSplitRangeSize(1).setParallelism(2)));
+    }
 }
@@ -0,0 +1,238 @@
+import de.fritze.marcus.exception.ErrorReport;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.packer.Packager;
+import de.fritze.marcus.packer.PackagerConfiguration;
+import de.fritze.marcus.parser.LineParser;
+import de.fritze.marcus.stream.PackageResult;
+import de.fritze.marcus.stream.PackagingProcessor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PackagingProcessorTest {
+
+    private static final List<String> SAMPLE_LINES = Arrays.asList(
+            "81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)",
+            "8 : (1,15.3,€34)",
+            "",
+            "75 : (1,85.31,€29) (2,14.55,€74) (3,3.98,€16) (4,26.24,€55) (5,63.69,€52) (6,76.25,€75) (7,60.02,€74) (8,93.18,€35) (9,89.95,€78)",
+            "56 : (1,90.72,€13) (2,33.80,€40) (3,43.15,€10) (4,37.97,€16) (5,46.81,€36) (6,48.77,€79) (7,81.80,€45) (8,19.36,€79) (9,6.76,€64)"
+    );
+
+    /**
+     * takes the results one by one like a slow consumer
+     */
+    private static class CollectingSubscriber implements Flow.Subscriber<PackageResult> {
+
+        private final List<PackageResult> results                   = new ArrayList<>();
+        private final CompletableFuture<List<PackageResult>> finished = new CompletableFuture<>();
+        private final long initialRequest;
+        private Flow.Subscription subscription;
+
+        CollectingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+
+            if (initialRequest != 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(PackageResult result) {
+            results.add(result);
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            finished.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            finished.complete(results);
+        }
+    }
+
+    /**
+     * counts how many lines the processor requested
+     */
+    private static class CountingPublisher implements Flow.Publisher<String> {
+
+        private final List<Long> requests = new ArrayList<>();
+        private Flow.Subscriber<? super String> subscriber;
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super String> subscriber) {
+            this.subscriber = subscriber;
+
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    requests.add(n);
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+
+        long requested() {
+            return requests.stream().mapToLong(Long::longValue).sum();
+        }
+    }
+
+    @Test
+    public void testLinesOfAPublisher() throws Exception {
+        PackagingProcessor<CharSequence> processor  = PackagingProcessor.ofLines(new PackagerConfiguration());
+        CollectingSubscriber subscriber             = new CollectingSubscriber(1);
+
+        processor.subscribe(subscriber);
+
+        try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            SAMPLE_LINES.forEach(publisher::submit);
+            publisher.submit("101 : (1,15.3,€34)");
+        }
+
+        List<PackageResult> results = subscriber.finished.get(10, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("4", "-", "", "2,7", "8,9", "!"), results.stream().map(PackageResult::toString).collect(Collectors.toList()));
+        assertEquals(6, results.get(5).getLineNumber());
+        assertEquals(GlobalErrorCodes.PACKAGE_MAX_WEIGHT_EXCEEDED, results.get(5).getError().getCode());
+        assertNull(results.get(5).getOutput());
+    }
+
+    @Test
+    public void testItemBatchesOfAPublisher() throws Exception {
+        PackagingProcessor<ItemBatch> processor = PackagingProcessor.ofItemBatches(new PackagerConfiguration());
+        CollectingSubscriber subscriber         = new CollectingSubscriber(1);
+
+        processor.subscribe(subscriber);
+
+        try (SubmissionPublisher<ItemBatch> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+
+            for (String line : Arrays.asList(SAMPLE_LINES.get(0), SAMPLE_LINES.get(4))) {
+                // every line has its own parser, so every ItemBatch is its own object
+                LineParser lineParser = new LineParser();
+
+                assertTrue(lineParser.parse(line));
+                publisher.submit(lineParser.getItemBatch());
+            }
+        }
+
+        assertEquals(Arrays.asList("4", "8,9"), subscriber.finished.get(10, TimeUnit.SECONDS).stream().map(PackageResult::getOutput).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testBackPressure() throws Exception {
+        // the lines are packaged on the calling thread, so we can count the requests after every step
+        PackagingProcessor<CharSequence> processor  = new PackagingProcessor<>(new PackagerConfiguration(), Packager::packageLine, Runnable::run, 4);
+        CountingPublisher publisher                 = new CountingPublisher();
+        CollectingSubscriber subscriber             = new CollectingSubscriber(0);
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        // the buffer is full, but nothing was requested by the subscriber
+        assertEquals(4, publisher.requested());
+
+        for (int i = 0; i < 4; i++) {
+            publisher.subscriber.onNext("8 : (1,15.3,€34)");
+        }
+        assertEquals(0, subscriber.results.size());
+        assertEquals(4, publisher.requested());
+
+        // the subscriber takes the results one by one, after half of the buffer the next lines are requested
+        subscriber.subscription.request(1);
+
+        assertEquals(4, subscriber.results.size());
+        assertEquals(8, publisher.requested());
+
+        publisher.subscriber.onNext("8 : (1,15.3,€34)");
+        publisher.subscriber.onComplete();
+
+        assertEquals(5, subscriber.finished.get(10, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void testTooManyErrorsStopTheStream() throws Exception {
+        PackagerConfiguration configuration         = new PackagerConfiguration().setErrorReport(new ErrorReport(1));
+        PackagingProcessor<CharSequence> processor  = new PackagingProcessor<>(configuration, Packager::packageLine, Runnable::run, 8);
+        CountingPublisher publisher                 = new CountingPublisher();
+        CollectingSubscriber subscriber             = new CollectingSubscriber(Long.MAX_VALUE);
+
+        processor.subscribe(subscriber);
+        publisher.subscribe(processor);
+
+        publisher.subscriber.onNext("8 : (1,15.3,€34)");
+        publisher.subscriber.onNext("wrong line");
+        publisher.subscriber.onNext("8 : (1,15.3,€101)");
+        publisher.subscriber.onNext("8 : (1,15.3,€34)");
+
+        // the first error is a result, the second error stops the stream
+        assertEquals(Arrays.asList("-", "!"), subscriber.results.stream().map(PackageResult::toString).collect(Collectors.toList()));
+        assertTrue(subscriber.finished.isCompletedExceptionally());
+        assertEquals(1, configuration.getErrorReport().getErrors().size());
+    }
+
+    @Test
+    public void testInvalidRequest() {
+        PackagingProcessor<CharSequence> processor  = new PackagingProcessor<>(new PackagerConfiguration(), Packager::packageLine, Runnable::run, 8);
+        CollectingSubscriber subscriber             = new CollectingSubscriber(0);
+
+        processor.subscribe(subscriber);
+        new CountingPublisher().subscribe(processor);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.finished.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testUnexpectedExceptionFailsTheStream() throws Exception {
+        PackagingProcessor.LinePackager<CharSequence> linePackager = (lineNumber, line, configuration, resultSink) -> {
+            if (lineNumber == 2) {
+                throw new IllegalArgumentException("unexpected");
+            }
+            Packager.packageLine(lineNumber, line, configuration, resultSink);
+        };
+        PackagingProcessor<CharSequence> processor  = new PackagingProcessor<>(new PackagerConfiguration(), linePackager, ForkJoinPool.commonPool(), 8);
+        CollectingSubscriber subscriber             = new CollectingSubscriber(1);
+
+        processor.subscribe(subscriber);
+
+        try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>()) {
+            publisher.subscribe(processor);
+            SAMPLE_LINES.forEach(publisher::submit);
+        }
+
+        // the subscriber gets the error instead of waiting forever
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> subscriber.finished.get(10, TimeUnit.SECONDS));
+
+        assertTrue(exception.getCause() instanceof IllegalArgumentException);
+        assertEquals(Arrays.asList("4"), subscriber.results.stream().map(PackageResult::toString).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,71 @@
+import de.fritze.marcus.exception.AppException;
+import de.fritze.marcus.exception.GlobalErrorCodes;
+import de.fritze.marcus.model.ItemBatch;
+import de.fritze.marcus.model.PackageItem;
+import de.fritze.marcus.validation.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ValidatorTest {
+
+    private static AppException validationError(Validator validator, float maxWeightPackage, List<PackageItem> packageItems) {
+        return assertThrows(AppException.class, () -> validator.validate(7, ItemBatch.fromPackageItems(maxWeightPackage, packageItems)));
+    }
+
+    private static List<PackageItem> items(int amountOfItems) {
+        List<PackageItem> packageItems = new ArrayList<>();
+
+        for (int id = 1; id <= amountOfItems; id++) {
+            packageItems.add(new PackageItem(id, 1, 1));
+        }
+        return packageItems;
+    }
+
+    @Test
+    public void testMessagesWithDefaultLimits() {
+        Validator validator = new Validator();
+
+        assertEquals("Package max weight exceeded in line 7. The maximum weight that a package can hold must be <= 100.",
+                validationError(validator, 100.5f, items(1)).getMessage());
+        assertEquals("Too many items for the package in line 7. There may be up to 15 items you can to choose from.",
+                validationError(validator, 50, items(16)).getMessage());
+        assertEquals("The maximum weight of an item should be <= 100. The following items are too heavy in line 7. "
+                        + "PackageItem{id=2, weight=100.01, price=€5.0},PackageItem{id=3, weight=101.0, price=€500.0}",
+                validationError(validator, 50, Arrays.asList(new PackageItem(1, 5, 5), new PackageItem(2, 100.01, 5), new PackageItem(3, 101, 500))).getMessage());
+        assertEquals("The maximum cost of an item should be <= €100. The following items are too expensive in line 7. PackageItem{id=1, weight=5.0, price=€100.5}",
+                validationError(validator, 50, Arrays.asList(new PackageItem(1, 5, 100.5), new PackageItem(2, 5, 5))).getMessage());
+        assertEquals("The item number 1 is missing in the item list of line 7",
+                validationError(validator, 50, Arrays.asList(new PackageItem(2, 5, 5), new PackageItem(3, 5, 5))).getMessage());
+        assertEquals("The following item numbers are missing in the item list of line 7: [3, 4]",
+                validationError(validator, 50, Arrays.asList(new PackageItem(1, 5, 5), new PackageItem(2, 5, 5), new PackageItem(2, 5, 5), new PackageItem(9, 5, 5))).getMessage());
+    }
+
+    @Test
+    public void testConfiguredLimits() throws AppException {
+        Validator validator = new Validator().setMaxItemsInLine(200).setMaxWeightPackage(1000).setMaxWeightItem(12.5);
+
+        validator.validate(7, ItemBatch.fromPackageItems(999, items(200)));
+
+        assertEquals(GlobalErrorCodes.PACKAGE_ITEMS_AMOUNT_EXCEEDED, validationError(validator, 50, items(201)).getCode());
+        assertEquals("The maximum weight of an item should be <= 12.5. The following items are too heavy in line 7. PackageItem{id=1, weight=13.0, price=€1.0}",
+                validationError(validator, 50, Arrays.asList(new PackageItem(1, 13, 1))).getMessage());
+    }
+
+    @Test
+    public void testMissingIdsInLongLine() {
+        // more than 64 items are marked in a BitSet instead of the long mask
+        List<PackageItem> packageItems = items(100);
+
+        packageItems.set(64, new PackageItem(1, 1, 1));
+        packageItems.set(99, new PackageItem(150, 1, 1));
+
+        assertEquals("The following item numbers are missing in the item list of line 7: [65, 100]",
+                validationError(new Validator().setMaxItemsInLine(100), 50, packageItems).getMessage());
+    }
+}